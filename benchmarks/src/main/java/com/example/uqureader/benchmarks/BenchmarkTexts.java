@@ -0,0 +1,73 @@
+package com.example.uqureader.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Access to the texts and the transducer bundled with the web module, shared by all benchmarks.
+ */
+final class BenchmarkTexts {
+
+    static final String TRANSDUCER_RESOURCE = "/tatar_last.hfstol";
+
+    private BenchmarkTexts() {
+    }
+
+    /**
+     * Reads one of the texts in {@code web-app/src/main/resources/texts}.
+     *
+     * @param name file name without the {@code .txt} extension
+     * @return text contents
+     */
+    static String text(String name) {
+        try (InputStream stream = open("/texts/" + name + ".txt")) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Splits a text into the lower-cased letter/hyphen runs that the analysers receive as tokens.
+     */
+    static String[] words(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : text.split("[^\\p{L}-]+")) {
+            if (!word.isEmpty()) {
+                words.add(word.toLowerCase(Locale.ROOT));
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+
+    static InputStream open(String resource) {
+        InputStream stream = BenchmarkTexts.class.getResourceAsStream(resource);
+        if (stream == null) {
+            throw new IllegalStateException("Missing resource: " + resource);
+        }
+        return stream;
+    }
+
+    /**
+     * Copies the bundled transducer to a temporary file so that it can be memory-mapped even when
+     * the benchmarks run from a packaged JAR.
+     */
+    static Path extractTransducer() {
+        try (InputStream stream = open(TRANSDUCER_RESOURCE)) {
+            Path file = Files.createTempFile("uqureader-bench", ".hfstol");
+            file.toFile().deleteOnExit();
+            Files.copy(stream, file, StandardCopyOption.REPLACE_EXISTING);
+            return file;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.uqureader.benchmarks;
+
+import com.example.uqureader.webapp.morphology.hfst.HfstTransducer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-word lookups against {@code tatar_last.hfstol}, cycling through the words of a bundled
+ * text. Run with {@code -t N} to measure the shared transducer under concurrent lookups.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HfstTransducerBenchmark {
+
+    @Param({"berenche_teatr", "harri_potter_ham_lagnetle_bala"})
+    public String text;
+
+    /** {@code read} copies the tables onto the heap, {@code map} reads them from a mapped file. */
+    @Param({"read", "map"})
+    public String loading;
+
+    private HfstTransducer transducer;
+    private String[] words;
+
+    @Setup
+    public void setUp() throws IOException {
+        if ("map".equals(loading)) {
+            transducer = HfstTransducer.map(BenchmarkTexts.extractTransducer());
+        } else {
+            try (InputStream stream = BenchmarkTexts.open(BenchmarkTexts.TRANSDUCER_RESOURCE)) {
+                transducer = HfstTransducer.read(stream);
+            }
+        }
+        words = BenchmarkTexts.words(BenchmarkTexts.text(text));
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public List<HfstTransducer.Analysis> analyze(Cursor cursor) {
+        String word = words[cursor.next];
+        cursor.next = cursor.next + 1 == words.length ? 0 : cursor.next + 1;
+        return transducer.analyze(word);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.uqureader.benchmarks;
+
+import com.example.uqureader.webapp.morphology.MorphologyAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full analyser pipeline: single tokens through {@link MorphologyAnalyzer#analyseToken(String)}
+ * and whole bundled texts through {@link MorphologyAnalyzer#analyze(String)}. With
+ * {@code analysisCache=false} the analyser's word cache is disabled, so every word goes through the
+ * transducer; with {@code true} it is enabled and, after warm-up, holds every word of the text.
+ */
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MorphologyAnalyzerBenchmark {
+
+    @Param({"berenche_teatr", "harri_potter_ham_lagnetle_bala", "qubiz_qabiz", "yazgi_cillar"})
+    public String text;
+
+    @Param({"false", "true"})
+    public boolean analysisCache;
+
+    private MorphologyAnalyzer analyzer;
+    private String content;
+    private String[] words;
+
+    @Setup
+    public void setUp() {
+        analyzer = analysisCache ? MorphologyAnalyzer.loadDefault() : loadWithoutAnalysisCache();
+        content = BenchmarkTexts.text(text);
+        words = BenchmarkTexts.words(content);
+    }
+
+    private static MorphologyAnalyzer loadWithoutAnalysisCache() {
+        String property = "morphology.cache.analysis.max-entries";
+        String previous = System.getProperty(property);
+        System.setProperty(property, "0");
+        try {
+            return MorphologyAnalyzer.loadDefault();
+        } finally {
+            if (previous == null) {
+                System.clearProperty(property);
+            } else {
+                System.setProperty(property, previous);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public String analyseToken(Cursor cursor) {
+        String word = words[cursor.next];
+        cursor.next = cursor.next + 1 == words.length ? 0 : cursor.next + 1;
+        return analyzer.analyseToken(word);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public MorphologyAnalyzer.TextAnalysis analyzeText() {
+        return analyzer.analyze(content);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.uqureader.benchmarks;
+
+import com.example.uqureader.webapp.MorphologyService;
+import com.example.uqureader.webapp.morphology.MorphologyAnalyzer;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MorphologyService#analyzeText(String)} as served by {@code /api/text}. The cold variant
+ * gets a fresh service and an emptied analyser word cache before every call, so no cache holds the
+ * text; the warm variant reuses one service whose caches already hold the text.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MorphologyServiceBenchmark {
+
+    @Param({"berenche_teatr", "qubiz_qabiz"})
+    public String text;
+
+    private MorphologyAnalyzer analyzer;
+    private String content;
+
+    @Setup
+    public void setUp() {
+        analyzer = MorphologyAnalyzer.loadDefault();
+        content = BenchmarkTexts.text(text);
+    }
+
+    @State(Scope.Thread)
+    public static class ColdService {
+        MorphologyService service;
+
+        @Setup(Level.Invocation)
+        public void setUp(MorphologyServiceBenchmark benchmark) {
+            benchmark.analyzer.clearAnalysisCache();
+            service = new MorphologyService(benchmark.analyzer);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class WarmService {
+        MorphologyService service;
+
+        @Setup(Level.Trial)
+        public void setUp(MorphologyServiceBenchmark benchmark) {
+            service = new MorphologyService(benchmark.analyzer);
+            service.analyzeText(benchmark.content);
+        }
+    }
+
+    @Benchmark
+    public JsonObject analyzeTextCold(ColdService state) {
+        return state.service.analyzeText(content);
+    }
+
+    @Benchmark
+    public JsonObject analyzeTextWarm(WarmService state) {
+        return state.service.analyzeText(content);
+    }
+}
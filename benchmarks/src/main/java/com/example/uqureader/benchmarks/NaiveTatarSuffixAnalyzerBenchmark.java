@@ -0,0 +1,53 @@
+package com.example.uqureader.benchmarks;
+
+import com.example.uqureader.webapp.cli.NaiveTatarSuffixAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Suffix stripping with the rules from {@code suffixes_tat.json}, as used by the FB2 pipeline.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NaiveTatarSuffixAnalyzerBenchmark {
+
+    @Param({"berenche_teatr", "harri_potter_ham_lagnetle_bala"})
+    public String text;
+
+    private NaiveTatarSuffixAnalyzer analyzer;
+    private String[] words;
+
+    @Setup
+    public void setUp() {
+        analyzer = NaiveTatarSuffixAnalyzer.fromClasspathOrDefault("/suffixes_tat.json", 4);
+        words = BenchmarkTexts.words(BenchmarkTexts.text(text));
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public List<NaiveTatarSuffixAnalyzer.Analysis> analyze(Cursor cursor) {
+        String word = words[cursor.next];
+        cursor.next = cursor.next + 1 == words.length ? 0 : cursor.next + 1;
+        return analyzer.analyze(word);
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.uqureader.webapp;
+
+import java.util.Locale;
+
+/**
+ * Execution model of {@link WebMorphologyApplication}: how exchanges are dispatched to threads, how
+ * many requests may wait for a worker and the TCP accept backlog.
+ *
+ * <p>{@link #fromSystemProperties()} reads {@code morphology.http.executor}
+ * ({@code pool}, {@code virtual} or {@code dispatcher}), {@code morphology.http.threads},
+ * {@code morphology.http.queue} and {@code morphology.http.backlog}.
+ */
+public final class HttpServerSettings {
+
+    /**
+     * Thread model used to run request handlers.
+     */
+    public enum ExecutionMode {
+        /** Handlers run on the single {@code HttpServer} dispatcher thread. */
+        DISPATCHER,
+        /** Handlers run on a fixed pool of platform threads with a bounded wait queue. */
+        POOL,
+        /**
+         * Each request runs on its own virtual thread. Requires a JDK with virtual threads (21 or
+         * later); on older runtimes the server falls back to {@link #POOL}.
+         */
+        VIRTUAL
+    }
+
+    private final ExecutionMode mode;
+    private final int threads;
+    private final int queueCapacity;
+    private final int backlog;
+
+    public HttpServerSettings(ExecutionMode mode, int threads, int queueCapacity, int backlog) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode must not be null");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("queueCapacity must not be negative: " + queueCapacity);
+        }
+        if (backlog < 0) {
+            throw new IllegalArgumentException("backlog must not be negative: " + backlog);
+        }
+        this.mode = mode;
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.backlog = backlog;
+    }
+
+    /**
+     * @return a pool with one worker per available processor, a queue of 64 requests per worker and an
+     *         accept backlog of 256 connections
+     */
+    public static HttpServerSettings defaults() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return new HttpServerSettings(ExecutionMode.POOL, processors, processors * 64, 256);
+    }
+
+    public static HttpServerSettings fromSystemProperties() {
+        HttpServerSettings defaults = defaults();
+        String modeValue = System.getProperty("morphology.http.executor");
+        ExecutionMode mode = defaults.mode;
+        if (modeValue != null && !modeValue.isBlank()) {
+            try {
+                mode = ExecutionMode.valueOf(modeValue.strip().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Invalid value for morphology.http.executor: " + modeValue, ex);
+            }
+        }
+        return new HttpServerSettings(mode,
+                readInt("morphology.http.threads", defaults.threads),
+                readInt("morphology.http.queue", defaults.queueCapacity),
+                readInt("morphology.http.backlog", defaults.backlog));
+    }
+
+    private static int readInt(String property, int defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.strip());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid value for " + property + ": " + value, ex);
+        }
+    }
+
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return number of pool workers; ignored by the other modes
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return requests that may wait for a pool worker before new ones are answered with {@code 503};
+     *         ignored by the other modes
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return accept backlog passed to {@link com.sun.net.httpserver.HttpServer#create}; {@code 0}
+     *         selects the system default
+     */
+    public int getBacklog() {
+        return backlog;
+    }
+}
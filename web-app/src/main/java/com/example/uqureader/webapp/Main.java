@@ -2,12 +2,15 @@ package com.example.uqureader.webapp;
 
 import com.example.uqureader.webapp.assets.JsonlTranslationAugmenter;
 import com.example.uqureader.webapp.dictionary.TatRusDictionaryImporter;
+import com.example.uqureader.webapp.morphology.FallbackDictionary;
+import com.example.uqureader.webapp.morphology.MorphologyAnalyzer;
 import com.sun.net.httpserver.HttpServer;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -25,8 +28,50 @@ public final class Main {
                     ? Paths.get(args[1])
                     : Paths.get("data", "tat_rus_dictionary.db");
             TatRusDictionaryImporter importer = new TatRusDictionaryImporter();
-            int count = importer.importLatest(database);
-            System.out.printf("Imported %d dictionary entries into %s%n", count, database.toAbsolutePath());
+            TatRusDictionaryImporter.ImportResult result = args.length > 2
+                    ? importer.importFile(Paths.get(args[2]), database)
+                    : importer.importLatest(database);
+            System.out.printf("Imported %d dictionary entries into %s%n", result.entries(), database.toAbsolutePath());
+            System.out.printf("Generation %d: %d inserted, %d updated, %d deleted%n",
+                    result.generation(), result.inserted(), result.updated(), result.deleted());
+            return;
+        }
+
+        if (args.length > 0 && "--upgrade-tat-rus".equals(args[0])) {
+            Path database = args.length > 1
+                    ? Paths.get(args[1])
+                    : Paths.get("data", "tat_rus_dictionary.db");
+            TatRusDictionaryImporter importer = new TatRusDictionaryImporter();
+            int count = importer.upgrade(database);
+            System.out.printf("Updated lemma keys of %d dictionary entries in %s%n", count, database.toAbsolutePath());
+            return;
+        }
+
+        if (args.length > 0 && "--compile-fallback".equals(args[0])) {
+            boolean packaged = args.length > 1 && "--packaged".equals(args[1]);
+            int first = packaged ? 2 : 1;
+            Path markupDirectory = args.length > first
+                    ? Paths.get(args[first])
+                    : Paths.get("web-app", "target", "classes", "markup");
+            Path output = args.length > first + 1
+                    ? Paths.get(args[first + 1])
+                    : markupDirectory.resolve(FallbackDictionary.COMPILED_RESOURCE);
+            FallbackDictionary dictionary = packaged
+                    ? FallbackDictionary.compilePackaged(markupDirectory)
+                    : FallbackDictionary.compile(markupDirectory);
+            dictionary.write(output);
+            System.out.printf("Compiled %d fallback analyses from %d markup files into %s (%d bytes)%n",
+                    dictionary.size(), dictionary.sources().size(), output.toAbsolutePath(), Files.size(output));
+            return;
+        }
+
+        if (args.length > 0 && "--compile-analyzer".equals(args[0])) {
+            Path output = args.length > 1
+                    ? Paths.get(args[1])
+                    : Paths.get("data", "morphology_analyzer.img");
+            long size = MorphologyAnalyzer.compileImage(output);
+            System.out.printf("Compiled analyser image %s (%d bytes); load it with -Dmorphology.analyzer.image=%s%n",
+                    output.toAbsolutePath(), size, output);
             return;
         }
 
@@ -1,37 +1,90 @@
 package com.example.uqureader.webapp;
 
+import com.example.uqureader.webapp.cache.CacheSettings;
+import com.example.uqureader.webapp.cache.CacheStats;
+import com.example.uqureader.webapp.cache.LruResultCache;
+import com.example.uqureader.webapp.cache.ResultCache;
 import com.example.uqureader.webapp.morphology.MorphologyAnalyzer;
 import com.example.uqureader.webapp.morphology.MorphologyAnalyzer.TextAnalysis;
+import com.example.uqureader.webapp.morphology.MorphologyAnalyzer.TextStatistics;
 import com.example.uqureader.webapp.morphology.MorphologyAnalyzer.TokenEntry;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonWriter;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 
 /**
  * Pure Java implementation of the morphology service that mirrors the structure of the
  * original Python library but operates entirely on pre-calculated lexical data bundled with the
  * application resources.
+ *
+ * <p>Token, text and markup results are kept in bounded LRU caches. Their limits default to
+ * {@link #DEFAULT_TOKEN_CACHE}, {@link #DEFAULT_TEXT_CACHE} and {@link #DEFAULT_MARKUP_CACHE} and can
+ * be overridden with the system properties {@code morphology.cache.<token|text|markup>.max-entries},
+ * {@code .max-bytes} and {@code .ttl-seconds}.
  */
 public class MorphologyService implements Closeable {
 
     private static final String VERSION = "1.2.10-java";
 
+    public static final CacheSettings DEFAULT_TOKEN_CACHE = new CacheSettings(100_000, 32L << 20, null);
+    public static final CacheSettings DEFAULT_TEXT_CACHE = new CacheSettings(256, 64L << 20, null);
+    public static final CacheSettings DEFAULT_MARKUP_CACHE = new CacheSettings(256, 32L << 20, null);
+
+    // Rough JVM object sizes used to estimate the retained size of cached entries.
+    private static final long STRING_OVERHEAD = 40;
+    private static final long JSON_ELEMENT_OVERHEAD = 32;
+    private static final long REFERENCE_SIZE = 8;
+
     private final MorphologyAnalyzer analyzer;
-    private final ConcurrentMap<String, JsonObject> tokenCache = new ConcurrentHashMap<>();
-    private final ConcurrentMap<String, JsonObject> textCache = new ConcurrentHashMap<>();
-    private final ConcurrentMap<String, String> markupCache = new ConcurrentHashMap<>();
+    private final ResultCache<String, JsonObject> tokenCache;
+    private final ResultCache<String, JsonObject> textCache;
+    private final ResultCache<String, String> markupCache;
 
     public MorphologyService() {
         this(MorphologyAnalyzer.loadDefault());
     }
 
-    MorphologyService(MorphologyAnalyzer analyzer) {
+    /**
+     * Creates a service around an already loaded analyser so that several services (or benchmark
+     * iterations) can share one transducer.
+     *
+     * @param analyzer analyser to delegate to
+     */
+    public MorphologyService(MorphologyAnalyzer analyzer) {
+        this(analyzer,
+                new LruResultCache<>(CacheSettings.fromSystemProperties("morphology.cache.token", DEFAULT_TOKEN_CACHE),
+                        MorphologyService::weighJson),
+                new LruResultCache<>(CacheSettings.fromSystemProperties("morphology.cache.text", DEFAULT_TEXT_CACHE),
+                        MorphologyService::weighJson),
+                new LruResultCache<>(CacheSettings.fromSystemProperties("morphology.cache.markup", DEFAULT_MARKUP_CACHE),
+                        MorphologyService::weighStrings));
+    }
+
+    /**
+     * Creates a service with caller supplied caches, for example to plug in a different eviction
+     * policy or to share caches between services.
+     */
+    public MorphologyService(MorphologyAnalyzer analyzer,
+                             ResultCache<String, JsonObject> tokenCache,
+                             ResultCache<String, JsonObject> textCache,
+                             ResultCache<String, String> markupCache) {
         this.analyzer = Objects.requireNonNull(analyzer, "analyzer");
+        this.tokenCache = Objects.requireNonNull(tokenCache, "tokenCache");
+        this.textCache = Objects.requireNonNull(textCache, "textCache");
+        this.markupCache = Objects.requireNonNull(markupCache, "markupCache");
     }
 
     public String getVersion() {
@@ -40,17 +93,62 @@ public class MorphologyService implements Closeable {
 
     public JsonObject analyzeToken(String token) {
         String key = token == null ? "" : token;
-        return tokenCache.computeIfAbsent(key, this::computeTokenAnalysis).deepCopy();
+        return tokenCache.get(key, this::computeTokenAnalysis).deepCopy();
     }
 
     public JsonObject analyzeText(String text) {
         String key = text == null ? "" : text;
-        return textCache.computeIfAbsent(key, this::computeTextAnalysis).deepCopy();
+        return textCache.get(key, this::computeTextAnalysis).deepCopy();
+    }
+
+    /**
+     * Analyses {@code input} sentence by sentence and writes the result to {@code output} as
+     * newline-delimited JSON: one {@code [[token, tag], ...]} array per sentence followed by a summary
+     * object with the fields of {@link #analyzeText(String)} except {@code sentences}. Results are not
+     * cached, and neither the input nor the output is held in memory as a whole.
+     *
+     * @param input  text to analyse; not closed
+     * @param output destination of the NDJSON lines; flushed but not closed
+     * @throws IOException when reading or writing fails
+     */
+    public void streamTextAnalysis(Reader input, Writer output) throws IOException {
+        JsonWriter json = new JsonWriter(output);
+        json.setStrictness(Strictness.LENIENT); // several top-level values, one per line
+        TextStatistics statistics = analyzer.analyze(input, sentence -> {
+            json.beginArray();
+            for (TokenEntry entry : sentence) {
+                json.beginArray().value(entry.token()).value(entry.analysis()).endArray();
+            }
+            json.endArray();
+            output.write('\n');
+        });
+        json.beginObject()
+                .name("tokens_count").value(statistics.tokensCount())
+                .name("unique_tokens_count").value(statistics.uniqueTokensCount())
+                .name("sentenes_count").value(statistics.sentencesCount())
+                .name("morphan_version").value(VERSION)
+                .name("format").value(1)
+                .endObject();
+        output.write('\n');
+        output.flush();
     }
 
     public String markup(String text) {
         String key = text == null ? "" : text;
-        return markupCache.computeIfAbsent(key, this::computeMarkup);
+        return markupCache.get(key, this::computeMarkup);
+    }
+
+    /**
+     * @return hit, miss and eviction counters of the {@code token}, {@code text} and {@code markup}
+     *         caches and of the analyser's shared word {@code analysis} cache
+     */
+    public Map<String, CacheStats> cacheStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put("token", tokenCache.stats());
+        stats.put("text", textCache.stats());
+        stats.put("markup", markupCache.stats());
+        stats.put("analysis", analyzer.analysisCacheStats());
+        return stats;
     }
 
     private JsonObject computeTokenAnalysis(String token) {
@@ -92,6 +190,35 @@ public class MorphologyService implements Closeable {
         return analysis.markup();
     }
 
+    private static long weighStrings(String key, String value) {
+        return weighString(key) + weighString(value);
+    }
+
+    private static long weighJson(String key, JsonElement value) {
+        return weighString(key) + weighElement(value);
+    }
+
+    private static long weighString(String value) {
+        return STRING_OVERHEAD + 2L * value.length();
+    }
+
+    private static long weighElement(JsonElement element) {
+        if (element instanceof JsonPrimitive primitive) {
+            return JSON_ELEMENT_OVERHEAD + (primitive.isString() ? weighString(primitive.getAsString()) : 16);
+        }
+        long weight = JSON_ELEMENT_OVERHEAD;
+        if (element instanceof JsonArray array) {
+            for (JsonElement child : array) {
+                weight += REFERENCE_SIZE + weighElement(child);
+            }
+        } else if (element instanceof JsonObject object) {
+            for (Entry<String, JsonElement> member : object.entrySet()) {
+                weight += JSON_ELEMENT_OVERHEAD + weighString(member.getKey()) + weighElement(member.getValue());
+            }
+        }
+        return weight;
+    }
+
     @Override
     public void close() {
         // No external resources to close; method retained for API compatibility.
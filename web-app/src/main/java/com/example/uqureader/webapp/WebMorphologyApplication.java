@@ -4,28 +4,53 @@ import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.InetSocketAddress;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * Minimal HTTP facade that exposes the morphology service via REST endpoints compatible with the
  * original Flask API.
+ *
+ * <p>Requests are handled according to {@link HttpServerSettings}. With the default bounded pool a
+ * request that finds every worker busy and the wait queue full is answered with {@code 503} and a
+ * {@code Retry-After} header instead of queueing without limit.
  */
 public class WebMorphologyApplication {
 
     private static final String CALLBACK_PARAM = "callback";
+    private static final String RETRY_AFTER_SECONDS = "1";
+    private static final ThreadLocal<Boolean> OVERLOADED = ThreadLocal.withInitial(() -> Boolean.FALSE);
 
     private final MorphologyService service;
     private final Gson gson = new Gson();
@@ -35,22 +60,80 @@ public class WebMorphologyApplication {
     }
 
     /**
-     * Starts the HTTP server and returns it so callers may manage its lifecycle.
+     * Starts the HTTP server with settings from {@link HttpServerSettings#fromSystemProperties()} and
+     * returns it so callers may manage its lifecycle.
      *
      * @param port port to bind to. If {@code 0} a random free port will be used.
      * @return started {@link HttpServer}
      * @throws IOException when server creation fails
      */
     public HttpServer start(int port) throws IOException {
-        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
-        server.createContext("/", this::handleRoot);
-        server.createContext("/api/token", this::handleToken);
-        server.createContext("/api/token/", this::handleToken);
-        server.createContext("/api/text", this::handleText);
-        server.createContext("/api/text/", this::handleText);
-        server.setExecutor(null); // use the default executor
+        return start(port, HttpServerSettings.fromSystemProperties());
+    }
+
+    /**
+     * Starts the HTTP server with the given execution model. Stopping the returned server also shuts
+     * down its worker threads.
+     *
+     * @param port     port to bind to. If {@code 0} a random free port will be used.
+     * @param settings executor and backlog configuration
+     * @return started {@link HttpServer}
+     * @throws IOException when server creation fails
+     */
+    public HttpServer start(int port, HttpServerSettings settings) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), settings.getBacklog());
+        server.createContext("/", guarded(this::handleRoot));
+        server.createContext("/api/token", guarded(this::handleToken));
+        server.createContext("/api/token/", guarded(this::handleToken));
+        server.createContext("/api/text", guarded(this::handleText));
+        server.createContext("/api/text/", guarded(this::handleText));
+        server.createContext("/api/text/stream", guarded(this::handleTextStream));
+        ExecutorService executor = createExecutor(settings);
+        server.setExecutor(executor);
         server.start();
-        return server;
+        return executor == null ? server : new ManagedHttpServer(server, executor);
+    }
+
+    private static ExecutorService createExecutor(HttpServerSettings settings) {
+        switch (settings.getMode()) {
+            case DISPATCHER:
+                return null; // run handlers on the dispatcher thread
+            case VIRTUAL:
+                ExecutorService virtual = newVirtualThreadExecutor();
+                if (virtual != null) {
+                    return virtual;
+                }
+                return new BoundedExecutor(settings.getThreads(), settings.getQueueCapacity());
+            case POOL:
+            default:
+                return new BoundedExecutor(settings.getThreads(), settings.getQueueCapacity());
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Answers with {@code 503} when the exchange was rejected by the worker pool and is therefore
+     * running on a rejection thread of {@link BoundedExecutor}.
+     */
+    private HttpHandler guarded(HttpHandler handler) {
+        return exchange -> {
+            if (OVERLOADED.get()) {
+                try {
+                    sendServiceUnavailable(exchange);
+                } finally {
+                    exchange.close();
+                }
+                return;
+            }
+            handler.handle(exchange);
+        };
     }
 
     private void handleRoot(HttpExchange exchange) throws IOException {
@@ -132,6 +215,37 @@ public class WebMorphologyApplication {
         }
     }
 
+    /**
+     * Accepts the raw UTF-8 text as request body and answers with chunked
+     * {@code application/x-ndjson}: one line per sentence and a final summary line, see
+     * {@link MorphologyService#streamTextAnalysis}. An error after the response has started is
+     * reported as a last line with {@code status} and {@code message}.
+     */
+    private void handleTextStream(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sendMethodNotAllowed(exchange, "POST");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (Reader input = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8);
+                 Writer output = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+                try {
+                    service.streamTextAnalysis(input, output);
+                } catch (MorphologyException ex) {
+                    JsonObject payload = new JsonObject();
+                    payload.addProperty("status", 500);
+                    payload.addProperty("message", ex.getMessage());
+                    output.write(gson.toJson(payload));
+                    output.write('\n');
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
     private JsonObject readJsonBody(HttpExchange exchange) throws IOException {
         try (InputStream input = exchange.getRequestBody();
              InputStreamReader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
@@ -189,6 +303,11 @@ public class WebMorphologyApplication {
         sendJson(exchange, 500, payload);
     }
 
+    private void sendServiceUnavailable(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+        sendError(exchange, 503, "Service Unavailable");
+    }
+
     private void sendError(HttpExchange exchange, int status, String message) throws IOException {
         JsonObject payload = new JsonObject();
         payload.addProperty("status", status);
@@ -212,4 +331,155 @@ public class WebMorphologyApplication {
     private String urlDecode(String value) {
         return URLDecoder.decode(value, StandardCharsets.UTF_8);
     }
+
+    /**
+     * Fixed pool of daemon workers with a bounded queue. An exchange that does not fit is handed to a
+     * small separate pool with {@link #OVERLOADED} set, so that {@link #guarded} can reject it with a
+     * response instead of dropping the connection. The dispatcher thread never runs an exchange itself,
+     * because reading the request line and headers blocks. When the rejection pool is full as well the
+     * exchange is refused and {@code HttpServer} closes the connection.
+     */
+    private static final class BoundedExecutor extends AbstractExecutorService {
+        private static final AtomicInteger POOL_IDS = new AtomicInteger();
+        private static final int REJECTION_THREADS = 2;
+        private static final int REJECTION_QUEUE = 64;
+
+        private final ThreadPoolExecutor pool;
+        private final ThreadPoolExecutor rejections;
+
+        private BoundedExecutor(int threads, int queueCapacity) {
+            BlockingQueue<Runnable> queue = queueCapacity == 0
+                    ? new SynchronousQueue<>()
+                    : new ArrayBlockingQueue<>(queueCapacity);
+            String prefix = "morphology-http-" + POOL_IDS.incrementAndGet() + "-";
+            pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, queue,
+                    daemonThreads(prefix));
+            pool.allowCoreThreadTimeOut(true);
+            rejections = new ThreadPoolExecutor(REJECTION_THREADS, REJECTION_THREADS, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(REJECTION_QUEUE), daemonThreads(prefix + "rejected-"));
+            rejections.allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            try {
+                pool.execute(command);
+            } catch (RejectedExecutionException ex) {
+                rejections.execute(() -> {
+                    OVERLOADED.set(Boolean.TRUE);
+                    try {
+                        command.run();
+                    } finally {
+                        OVERLOADED.remove();
+                    }
+                });
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            pool.shutdown();
+            rejections.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> pending = new ArrayList<>(pool.shutdownNow());
+            pending.addAll(rejections.shutdownNow());
+            return pending;
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return pool.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return pool.isTerminated() && rejections.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(timeout);
+            return pool.awaitTermination(timeout, unit)
+                    && rejections.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        private static ThreadFactory daemonThreads(String prefix) {
+            AtomicInteger ids = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(runnable, prefix + ids.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    /**
+     * {@link HttpServer} that shuts down the executor it was started with once it has stopped.
+     */
+    private static final class ManagedHttpServer extends HttpServer {
+        private final HttpServer server;
+        private final ExecutorService executor;
+
+        private ManagedHttpServer(HttpServer server, ExecutorService executor) {
+            this.server = server;
+            this.executor = executor;
+        }
+
+        @Override
+        public void bind(InetSocketAddress address, int backlog) throws IOException {
+            server.bind(address, backlog);
+        }
+
+        @Override
+        public void start() {
+            server.start();
+        }
+
+        @Override
+        public void setExecutor(Executor executor) {
+            server.setExecutor(executor);
+        }
+
+        @Override
+        public Executor getExecutor() {
+            return server.getExecutor();
+        }
+
+        @Override
+        public void stop(int delay) {
+            try {
+                server.stop(delay);
+            } finally {
+                executor.shutdown();
+            }
+        }
+
+        @Override
+        public HttpContext createContext(String path, HttpHandler handler) {
+            return server.createContext(path, handler);
+        }
+
+        @Override
+        public HttpContext createContext(String path) {
+            return server.createContext(path);
+        }
+
+        @Override
+        public void removeContext(String path) {
+            server.removeContext(path);
+        }
+
+        @Override
+        public void removeContext(HttpContext context) {
+            server.removeContext(context);
+        }
+
+        @Override
+        public InetSocketAddress getAddress() {
+            return server.getAddress();
+        }
+    }
 }
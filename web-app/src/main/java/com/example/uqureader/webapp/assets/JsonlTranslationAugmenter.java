@@ -1,5 +1,7 @@
 package com.example.uqureader.webapp.assets;
 
+import com.example.uqureader.webapp.dictionary.TatRusDictionarySchema;
+import com.example.uqureader.webapp.dictionary.TranslationDictionary;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
@@ -13,18 +15,13 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
@@ -36,6 +33,20 @@ public final class JsonlTranslationAugmenter {
 
     private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
 
+    /**
+     * Order of SQLite's {@code COLLATE NOCASE}: code points with only ASCII letters folded.
+     */
+    private static final Comparator<String> NOCASE_ORDER = (left, right) -> {
+        int length = Math.min(left.length(), right.length());
+        for (int i = 0; i < length; i++) {
+            int diff = foldAscii(left.charAt(i)) - foldAscii(right.charAt(i));
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return left.length() - right.length();
+    };
+
     /**
      * Result of an augmentation run.
      */
@@ -96,20 +107,16 @@ public final class JsonlTranslationAugmenter {
         int tokensWithTranslations = 0;
         int translationsWritten = 0;
 
+        TranslationDictionary dictionary = TranslationDictionary.load(dictionaryFile);
         Map<String, List<String>> cache = new HashMap<>();
-        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dictionaryFile.toAbsolutePath());
-             PreparedStatement lookup = connection.prepareStatement(
-                     "SELECT DISTINCT rus_lemma FROM tat_rus_dictionary "
-                             + "WHERE tat_lemma = ? COLLATE NOCASE ORDER BY rus_lemma COLLATE NOCASE")) {
-            try (DirectoryStream<Path> stream = Files.newDirectoryStream(assetsDirectory, "*.jsonl")) {
-                for (Path file : stream) {
-                    FileReport report = augmentFile(file, lookup, cache);
-                    if (report.tokensProcessed > 0) {
-                        filesProcessed++;
-                        tokensProcessed += report.tokensProcessed;
-                        tokensWithTranslations += report.tokensWithTranslations;
-                        translationsWritten += report.translationsWritten;
-                    }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(assetsDirectory, "*.jsonl")) {
+            for (Path file : stream) {
+                FileReport report = augmentFile(file, dictionary, cache);
+                if (report.tokensProcessed > 0) {
+                    filesProcessed++;
+                    tokensProcessed += report.tokensProcessed;
+                    tokensWithTranslations += report.tokensWithTranslations;
+                    translationsWritten += report.translationsWritten;
                 }
             }
         }
@@ -118,8 +125,8 @@ public final class JsonlTranslationAugmenter {
     }
 
     private FileReport augmentFile(Path file,
-                                   PreparedStatement lookup,
-                                   Map<String, List<String>> cache) throws IOException, SQLException {
+                                   TranslationDictionary dictionary,
+                                   Map<String, List<String>> cache) throws IOException {
         List<String> output = new ArrayList<>();
         boolean modified = false;
         int tokensProcessed = 0;
@@ -135,7 +142,7 @@ public final class JsonlTranslationAugmenter {
                 }
                 JsonObject object = GSON.fromJson(line, JsonObject.class);
                 tokensProcessed++;
-                List<String> translations = resolveTranslations(object, lookup, cache);
+                List<String> translations = resolveTranslations(object, dictionary, cache);
                 if (translations.isEmpty()) {
                     if (object.has("translations")) {
                         object.remove("translations");
@@ -178,8 +185,8 @@ public final class JsonlTranslationAugmenter {
     }
 
     private List<String> resolveTranslations(JsonObject object,
-                                             PreparedStatement lookup,
-                                             Map<String, List<String>> cache) throws SQLException {
+                                             TranslationDictionary dictionary,
+                                             Map<String, List<String>> cache) {
         if (object == null || !object.has("analysis")) {
             return Collections.emptyList();
         }
@@ -193,8 +200,10 @@ public final class JsonlTranslationAugmenter {
         }
 
         Set<String> translations = new LinkedHashSet<>();
-        for (String lemma : extractCandidateLemmas(analysis)) {
-            List<String> values = lookupTranslations(lemma, lookup, cache);
+        Map<String, List<TranslationDictionary.Entry>> entries =
+                dictionary.lookupAll(extractCandidateLemmas(analysis));
+        for (Map.Entry<String, List<TranslationDictionary.Entry>> lemma : entries.entrySet()) {
+            List<String> values = cache.computeIfAbsent(lemma.getKey(), key -> sortedTranslations(lemma.getValue()));
             for (String value : values) {
                 if (value != null && !value.isBlank()) {
                     translations.add(value);
@@ -223,36 +232,30 @@ public final class JsonlTranslationAugmenter {
             if (lemma.isEmpty()) {
                 continue;
             }
-            String normalised = Normalizer.normalize(lemma, Normalizer.Form.NFC)
-                    .toLowerCase(Locale.ROOT);
-            lemmas.add(normalised);
+            lemmas.add(TatRusDictionarySchema.lemmaKey(lemma));
         }
         return new ArrayList<>(lemmas);
     }
 
-    private List<String> lookupTranslations(String lemma,
-                                             PreparedStatement lookup,
-                                             Map<String, List<String>> cache) throws SQLException {
-        if (lemma == null || lemma.isEmpty()) {
-            return Collections.emptyList();
-        }
-        List<String> cached = cache.get(lemma);
-        if (cached != null) {
-            return cached;
+    /**
+     * @return distinct translations of the entries sorted like the former
+     *         {@code SELECT DISTINCT rus_lemma ... ORDER BY rus_lemma COLLATE NOCASE} query
+     */
+    private List<String> sortedTranslations(List<TranslationDictionary.Entry> entries) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (TranslationDictionary.Entry entry : entries) {
+            distinct.add(entry.translation());
         }
-        List<String> results = new ArrayList<>();
-        lookup.setString(1, lemma);
-        try (ResultSet rs = lookup.executeQuery()) {
-            while (rs.next()) {
-                String value = rs.getString(1);
-                if (value != null) {
-                    results.add(value);
-                }
-            }
+        if (distinct.isEmpty()) {
+            return Collections.emptyList();
         }
-        List<String> unmodifiable = Collections.unmodifiableList(results);
-        cache.put(lemma, unmodifiable);
-        return unmodifiable;
+        List<String> sorted = new ArrayList<>(distinct);
+        sorted.sort(NOCASE_ORDER);
+        return Collections.unmodifiableList(sorted);
+    }
+
+    private static int foldAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
     }
 
     private boolean matches(JsonArray existing, List<String> translations) {
@@ -0,0 +1,76 @@
+package com.example.uqureader.webapp.cache;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Limits of a {@link ResultCache}: maximum number of entries, maximum estimated retained bytes and
+ * an optional time to live. A limit of {@code 0} disables caching altogether; a {@code null} or zero
+ * time to live keeps entries until they are evicted.
+ */
+public final class CacheSettings {
+    private final long maxEntries;
+    private final long maxBytes;
+    private final Duration timeToLive;
+
+    public CacheSettings(long maxEntries, long maxBytes, Duration timeToLive) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("maxEntries must not be negative: " + maxEntries);
+        }
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        }
+        if (timeToLive != null && timeToLive.isNegative()) {
+            throw new IllegalArgumentException("timeToLive must not be negative: " + timeToLive);
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.timeToLive = timeToLive == null || timeToLive.isZero() ? null : timeToLive;
+    }
+
+    /**
+     * Reads the settings from system properties {@code <prefix>.max-entries},
+     * {@code <prefix>.max-bytes} and {@code <prefix>.ttl-seconds}, falling back to {@code defaults}
+     * for any property that is not set.
+     */
+    public static CacheSettings fromSystemProperties(String prefix, CacheSettings defaults) {
+        Objects.requireNonNull(prefix, "prefix");
+        Objects.requireNonNull(defaults, "defaults");
+        long maxEntries = readLong(prefix + ".max-entries", defaults.maxEntries);
+        long maxBytes = readLong(prefix + ".max-bytes", defaults.maxBytes);
+        long ttlSeconds = readLong(prefix + ".ttl-seconds",
+                defaults.timeToLive == null ? 0 : defaults.timeToLive.getSeconds());
+        return new CacheSettings(maxEntries, maxBytes, Duration.ofSeconds(ttlSeconds));
+    }
+
+    private static long readLong(String property, long defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.strip());
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid value for " + property + ": " + value, ex);
+        }
+    }
+
+    public long getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return time to live, or {@code null} when entries do not expire
+     */
+    public Duration getTimeToLive() {
+        return timeToLive;
+    }
+
+    boolean isDisabled() {
+        return maxEntries == 0 || maxBytes == 0;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.uqureader.webapp.cache;
+
+/**
+ * Immutable snapshot of the counters of a {@link ResultCache}.
+ */
+public final class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final long entries;
+    private final long weightBytes;
+
+    public CacheStats(long hits, long misses, long evictions, long expirations, long entries, long weightBytes) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.entries = entries;
+        this.weightBytes = weightBytes;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return number of entries removed to respect the entry or byte limit
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of entries dropped because their time to live elapsed
+     */
+    public long getExpirations() {
+        return expirations;
+    }
+
+    public long getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return estimated retained size of the cached keys and values in bytes
+     */
+    public long getWeightBytes() {
+        return weightBytes;
+    }
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0.0 : (double) hits / requests;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{hits=" + hits
+                + ", misses=" + misses
+                + ", evictions=" + evictions
+                + ", expirations=" + expirations
+                + ", entries=" + entries
+                + ", weightBytes=" + weightBytes
+                + '}';
+    }
+}
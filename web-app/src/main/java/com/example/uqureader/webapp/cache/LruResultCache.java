@@ -0,0 +1,127 @@
+package com.example.uqureader.webapp.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * {@link ResultCache} with least-recently-used eviction bounded by entry count and by estimated
+ * retained bytes. Entries are weighed once when they are inserted; a value heavier than the whole
+ * byte budget is returned without being cached.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class LruResultCache<K, V> implements ResultCache<K, V> {
+
+    private final CacheSettings settings;
+    private final ToLongBiFunction<? super K, ? super V> weigher;
+    private final LongSupplier nanoClock;
+    private final long timeToLiveNanos;
+    private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long weightBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    public LruResultCache(CacheSettings settings, ToLongBiFunction<? super K, ? super V> weigher) {
+        this(settings, weigher, System::nanoTime);
+    }
+
+    LruResultCache(CacheSettings settings,
+                   ToLongBiFunction<? super K, ? super V> weigher,
+                   LongSupplier nanoClock) {
+        this.settings = Objects.requireNonNull(settings, "settings");
+        this.weigher = Objects.requireNonNull(weigher, "weigher");
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+        this.timeToLiveNanos = settings.getTimeToLive() == null ? 0L : settings.getTimeToLive().toNanos();
+    }
+
+    @Override
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        Objects.requireNonNull(loader, "loader");
+        synchronized (this) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (!isExpired(entry)) {
+                    hits++;
+                    return entry.value;
+                }
+                remove(key, entry);
+                expirations++;
+            }
+            misses++;
+        }
+        V value = loader.apply(key);
+        if (value == null || settings.isDisabled()) {
+            return value;
+        }
+        long weight = weigher.applyAsLong(key, value);
+        if (weight > settings.getMaxBytes()) {
+            return value;
+        }
+        synchronized (this) {
+            Entry<V> existing = entries.get(key);
+            if (existing != null && !isExpired(existing)) {
+                return existing.value;
+            }
+            if (existing != null) {
+                remove(key, existing);
+                expirations++;
+            }
+            entries.put(key, new Entry<>(value, weight, nanoClock.getAsLong()));
+            weightBytes += weight;
+            evictIfNeeded();
+        }
+        return value;
+    }
+
+    @Override
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits, misses, evictions, expirations, entries.size(), weightBytes);
+    }
+
+    @Override
+    public synchronized void clear() {
+        entries.clear();
+        weightBytes = 0;
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return timeToLiveNanos > 0 && nanoClock.getAsLong() - entry.createdNanos >= timeToLiveNanos;
+    }
+
+    private void remove(K key, Entry<V> entry) {
+        entries.remove(key);
+        weightBytes -= entry.weight;
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > settings.getMaxEntries() || weightBytes > settings.getMaxBytes())
+                && iterator.hasNext()) {
+            Map.Entry<K, Entry<V>> eldest = iterator.next();
+            iterator.remove();
+            weightBytes -= eldest.getValue().weight;
+            evictions++;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long weight;
+        private final long createdNanos;
+
+        private Entry(V value, long weight, long createdNanos) {
+            this.value = value;
+            this.weight = weight;
+            this.createdNanos = createdNanos;
+        }
+    }
+}
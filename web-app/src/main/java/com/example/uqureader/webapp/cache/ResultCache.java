@@ -0,0 +1,29 @@
+package com.example.uqureader.webapp.cache;
+
+import java.util.function.Function;
+
+/**
+ * Cache for computed analysis results. Implementations must be safe for concurrent use.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public interface ResultCache<K, V> {
+
+    /**
+     * Returns the cached value for {@code key}, computing and caching it with {@code loader} when it
+     * is absent or expired. The loader runs without holding any cache lock, so concurrent misses for
+     * the same key may compute the value more than once.
+     */
+    V get(K key, Function<? super K, ? extends V> loader);
+
+    /**
+     * @return snapshot of the hit, miss and eviction counters and of the current size
+     */
+    CacheStats stats();
+
+    /**
+     * Removes all entries. Counters are kept.
+     */
+    void clear();
+}
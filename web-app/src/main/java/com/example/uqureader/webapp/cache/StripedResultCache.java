@@ -0,0 +1,90 @@
+package com.example.uqureader.webapp.cache;
+
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * {@link ResultCache} split into independently locked {@link LruResultCache} segments selected by key
+ * hash, for caches that are hit from many threads on every token. The entry and byte limits of the
+ * settings are divided evenly between the segments, so eviction is LRU per segment rather than
+ * globally.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class StripedResultCache<K, V> implements ResultCache<K, V> {
+
+    private final LruResultCache<K, V>[] segments;
+
+    public StripedResultCache(CacheSettings settings, ToLongBiFunction<? super K, ? super V> weigher) {
+        this(settings, weigher, defaultSegmentCount());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public StripedResultCache(CacheSettings settings,
+                              ToLongBiFunction<? super K, ? super V> weigher,
+                              int segmentCount) {
+        Objects.requireNonNull(settings, "settings");
+        Objects.requireNonNull(weigher, "weigher");
+        if (segmentCount < 1 || Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("segmentCount must be a positive power of two: " + segmentCount);
+        }
+        CacheSettings segmentSettings = new CacheSettings(
+                divide(settings.getMaxEntries(), segmentCount),
+                divide(settings.getMaxBytes(), segmentCount),
+                settings.getTimeToLive());
+        segments = new LruResultCache[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new LruResultCache<>(segmentSettings, weigher);
+        }
+    }
+
+    @Override
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        return segmentFor(key).get(key, loader);
+    }
+
+    @Override
+    public CacheStats stats() {
+        long hits = 0;
+        long misses = 0;
+        long evictions = 0;
+        long expirations = 0;
+        long entries = 0;
+        long weightBytes = 0;
+        for (LruResultCache<K, V> segment : segments) {
+            CacheStats stats = segment.stats();
+            hits += stats.getHits();
+            misses += stats.getMisses();
+            evictions += stats.getEvictions();
+            expirations += stats.getExpirations();
+            entries += stats.getEntries();
+            weightBytes += stats.getWeightBytes();
+        }
+        return new CacheStats(hits, misses, evictions, expirations, entries, weightBytes);
+    }
+
+    @Override
+    public void clear() {
+        for (LruResultCache<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private LruResultCache<K, V> segmentFor(K key) {
+        int hash = key == null ? 0 : key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static long divide(long limit, int segmentCount) {
+        // Keep a non-zero limit non-zero so that small caches are not silently disabled.
+        return limit == 0 ? 0 : Math.max(1, limit / segmentCount);
+    }
+
+    private static int defaultSegmentCount() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return Integer.highestOneBit(Math.min(64, Math.max(1, processors * 2)));
+    }
+}
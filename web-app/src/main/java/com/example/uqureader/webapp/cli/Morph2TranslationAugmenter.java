@@ -1,8 +1,7 @@
 package com.example.uqureader.webapp.cli;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
-import com.google.gson.JsonParser;
+import com.example.uqureader.webapp.dictionary.TatRusDictionarySchema;
+import com.example.uqureader.webapp.dictionary.TranslationDictionary;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
@@ -11,12 +10,7 @@ import java.io.PrintStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -37,7 +31,7 @@ import java.util.Set;
  */
 public final class Morph2TranslationAugmenter {
 
-    private static final String DEFAULT_DICTIONARY = "data/tat_rus_dictionary.db";
+    static final String DEFAULT_DICTIONARY = "data/tat_rus_dictionary.db";
 
     private final PrintStream out;
     private final PrintStream err;
@@ -95,35 +89,31 @@ public final class Morph2TranslationAugmenter {
             return 2;
         }
 
-        String jdbcUrl = "jdbc:sqlite:" + dictionary.toAbsolutePath();
-        try (Connection connection = DriverManager.getConnection(jdbcUrl);
-             PreparedStatement lookup = connection.prepareStatement(
-                     "SELECT rus_lemma, tat_tags FROM tat_rus_dictionary "
-                             + "WHERE tat_lemma = ? COLLATE NOCASE")) {
-            Map<String, List<DictionaryEntry>> dictionaryCache = new HashMap<>();
-            int failures = 0;
-            for (Path file : files) {
-                try {
-                    processFile(file, lookup, dictionaryCache);
-                } catch (IOException ex) {
-                    failures++;
-                    err.printf("Не удалось обработать файл %s: %s%n", file, ex.getMessage());
-                }
-            }
-            if (failures > 0) {
-                err.printf("Завершено с ошибками (%d файлов не обработано).%n", failures);
-                return 3;
-            }
-            return 0;
+        TranslationDictionary translations;
+        try {
+            translations = TranslationDictionary.load(dictionary);
         } catch (SQLException ex) {
             err.printf("Не удалось подключиться к базе словаря: %s%n", ex.getMessage());
             return 4;
         }
+
+        int failures = 0;
+        for (Path file : files) {
+            try {
+                processFile(file, translations);
+            } catch (IOException ex) {
+                failures++;
+                err.printf("Не удалось обработать файл %s: %s%n", file, ex.getMessage());
+            }
+        }
+        if (failures > 0) {
+            err.printf("Завершено с ошибками (%d файлов не обработано).%n", failures);
+            return 3;
+        }
+        return 0;
     }
 
-    private void processFile(Path file,
-                             PreparedStatement lookup,
-                             Map<String, List<DictionaryEntry>> dictionaryCache) throws IOException {
+    private void processFile(Path file, TranslationDictionary dictionary) throws IOException {
         List<String> lines = new ArrayList<>();
         int tokens = 0;
         int tokensWithTranslations = 0;
@@ -133,12 +123,7 @@ public final class Morph2TranslationAugmenter {
             String line;
             while ((line = reader.readLine()) != null) {
                 tokens++;
-                AugmentedLine augmented;
-                try {
-                    augmented = augmentLine(line, lookup, dictionaryCache);
-                } catch (SQLException ex) {
-                    throw new IOException("Ошибка обращения к словарю: " + ex.getMessage(), ex);
-                }
+                AugmentedLine augmented = augment(line, dictionary);
                 if (augmented.translationCount() > 0) {
                     tokensWithTranslations++;
                     translationsWritten += augmented.translationCount();
@@ -165,9 +150,15 @@ public final class Morph2TranslationAugmenter {
                 translationsWritten);
     }
 
-    private AugmentedLine augmentLine(String line,
-                                      PreparedStatement lookup,
-                                      Map<String, List<DictionaryEntry>> dictionaryCache) throws SQLException {
+    /**
+     * Adds the translation column to a single {@code *.morph2.tsv} line, for callers that produce
+     * {@code *.morph2.tsv} records in memory instead of reading them from a file.
+     *
+     * @param line       line without the line terminator
+     * @param dictionary loaded dictionary
+     * @return the line as it is written to {@code *.morph3.tsv} and the number of translations
+     */
+    AugmentedLine augment(String line, TranslationDictionary dictionary) {
         if (line == null || line.isEmpty()) {
             return new AugmentedLine(line == null ? "" : line, 0);
         }
@@ -184,10 +175,16 @@ public final class Morph2TranslationAugmenter {
             return new AugmentedLine(value, 0);
         }
 
+        List<String> lemmas = new ArrayList<>(candidates.size());
+        for (LemmaCandidate candidate : candidates) {
+            lemmas.add(candidate.lookupLemma());
+        }
+        Map<String, List<TranslationDictionary.Entry>> entriesByLemma = dictionary.lookupAll(lemmas);
+
         List<String> formatted = new ArrayList<>();
         int translationCount = 0;
         for (LemmaCandidate candidate : candidates) {
-            List<DictionaryEntry> entries = lookupDictionaryEntries(candidate.lookupLemma(), lookup, dictionaryCache);
+            List<TranslationDictionary.Entry> entries = entriesByLemma.get(candidate.lookupLemma());
             List<String> translations = selectTranslations(entries, candidate.pos());
             if (translations.isEmpty()) {
                 continue;
@@ -254,7 +251,7 @@ public final class Morph2TranslationAugmenter {
         if (lemma.isEmpty()) {
             return null;
         }
-        String lookup = Normalizer.normalize(lemma, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+        String lookup = TatRusDictionarySchema.lemmaKey(lemma);
         String posDisplay = null;
         String pos = null;
         for (int i = 1; i < parts.length; i++) {
@@ -283,61 +280,13 @@ public final class Morph2TranslationAugmenter {
         return PART_OF_SPEECH_TAGS.contains(tag.toUpperCase(Locale.ROOT));
     }
 
-    private List<DictionaryEntry> lookupDictionaryEntries(String lemma,
-                                                          PreparedStatement lookup,
-                                                          Map<String, List<DictionaryEntry>> dictionaryCache) throws SQLException {
-        List<DictionaryEntry> cached = dictionaryCache.get(lemma);
-        if (cached != null) {
-            return cached;
-        }
-        List<DictionaryEntry> entries = new ArrayList<>();
-        lookup.setString(1, lemma);
-        try (ResultSet rs = lookup.executeQuery()) {
-            while (rs.next()) {
-                String translation = rs.getString(1);
-                String tagsJson = rs.getString(2);
-                Set<String> tags = parseTags(tagsJson);
-                entries.add(new DictionaryEntry(translation, tags));
-            }
-        }
-        List<DictionaryEntry> unmodifiable = Collections.unmodifiableList(entries);
-        dictionaryCache.put(lemma, unmodifiable);
-        return unmodifiable;
-    }
-
-    private Set<String> parseTags(String json) {
-        if (json == null || json.isBlank()) {
-            return Collections.emptySet();
-        }
-        JsonElement element = JsonParser.parseString(json);
-        if (!element.isJsonArray()) {
-            return Collections.emptySet();
-        }
-        JsonArray array = element.getAsJsonArray();
-        Set<String> tags = new LinkedHashSet<>();
-        for (JsonElement value : array) {
-            if (!value.isJsonPrimitive()) {
-                continue;
-            }
-            String tag = value.getAsString();
-            if (tag == null) {
-                continue;
-            }
-            String lower = tag.trim().toLowerCase(Locale.ROOT);
-            if (!lower.isEmpty()) {
-                tags.add(lower);
-            }
-        }
-        return tags;
-    }
-
-    private List<String> selectTranslations(List<DictionaryEntry> entries, String pos) {
+    private List<String> selectTranslations(List<TranslationDictionary.Entry> entries, String pos) {
         if (entries == null || entries.isEmpty()) {
             return Collections.emptyList();
         }
         LinkedHashSet<String> all = new LinkedHashSet<>();
         LinkedHashSet<String> filtered = new LinkedHashSet<>();
-        for (DictionaryEntry entry : entries) {
+        for (TranslationDictionary.Entry entry : entries) {
             String translation = entry.translation();
             if (translation == null) {
                 continue;
@@ -401,7 +350,7 @@ public final class Morph2TranslationAugmenter {
         err.println("Каждый указанный файл будет сохранён в новый *.morph3 файл с переводами для обнаруженных основ.");
     }
 
-    private record AugmentedLine(String value, int translationCount) {
+    record AugmentedLine(String value, int translationCount) {
     }
 
     private record LemmaCandidate(String displayLemma,
@@ -413,9 +362,6 @@ public final class Morph2TranslationAugmenter {
         }
     }
 
-    private record DictionaryEntry(String translation, Set<String> tags) {
-    }
-
     private static final Set<String> PART_OF_SPEECH_TAGS = Set.of(
             "N",
             "V",
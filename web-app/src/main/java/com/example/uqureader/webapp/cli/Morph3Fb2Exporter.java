@@ -4,15 +4,20 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
 
@@ -20,6 +25,11 @@ import java.util.Set;
  * Command line utility that converts {@code *.morph3.tsv} files and the matching
  * original text into a FictionBook 2.0 document with morphology metadata embedded
  * into additional markup for every token.
+ *
+ * <p>The morphology records and the original text are read incrementally and every paragraph is
+ * written as soon as it is aligned, so memory use depends on the longest paragraph rather than on
+ * the size of the book. The document is written to a {@code .part} file that replaces the output
+ * only when the export succeeds.</p>
  */
 public final class Morph3Fb2Exporter {
 
@@ -203,48 +213,82 @@ public final class Morph3Fb2Exporter {
     }
 
     private void processFile(Path morphFile, Path originalDir, Path explicitOriginal) throws IOException {
-        List<MorphToken> tokens = readMorphFile(morphFile);
-        if (tokens.isEmpty()) {
+        try (BufferedReader reader = Files.newBufferedReader(morphFile, StandardCharsets.UTF_8)) {
+            exportLines(morphFile, reader.lines().iterator(), originalDir, explicitOriginal);
+        }
+    }
+
+    /**
+     * Exports {@code *.morph3.tsv} records supplied by an iterator, for example produced in memory
+     * rather than read from a file. {@code morphFile} is only used to locate the original text, to name
+     * the output and to fill the document info, exactly as if the records had been read from it. The
+     * records are consumed as the alignment advances.
+     *
+     * @param morphFile        path the records belong to; it does not have to exist
+     * @param lines            records without line terminators
+     * @param originalDir      optional directory with original texts
+     * @param explicitOriginal optional original text
+     * @throws IOException           when reading the records or the original or writing the FB2 file fails
+     * @throws IllegalStateException when the text cannot be aligned with the records
+     */
+    void exportLines(Path morphFile, Iterator<String> lines, Path originalDir, Path explicitOriginal)
+            throws IOException {
+        try {
+            export(morphFile, new TokenWindow(new MorphTokenIterator(lines, morphFile)), originalDir, explicitOriginal);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    private void export(Path morphFile, TokenWindow tokens, Path originalDir, Path explicitOriginal)
+            throws IOException {
+        if (!tokens.has(0)) {
             err.printf("Предупреждение: файл %s пуст — пропущен.%n", morphFile);
             return;
         }
 
         Path original = explicitOriginal != null ? explicitOriginal : locateOriginalFile(morphFile, originalDir);
-        String originalText = Files.readString(original, StandardCharsets.UTF_8);
-        List<Paragraph> paragraphs = alignTokensWithText(tokens, originalText);
-
         Path output = deriveOutputPath(morphFile, original);
-        writeFb2(output, morphFile, original, paragraphs);
+        Path parent = output.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path partial = output.resolveSibling(output.getFileName() + ".part");
+        int paragraphs;
+        try {
+            try (Reader text = Files.newBufferedReader(original, StandardCharsets.UTF_8);
+                 BufferedWriter writer = Files.newBufferedWriter(partial, StandardCharsets.UTF_8)) {
+                writeFb2Header(writer, morphFile, original);
+                ParagraphWriter paragraphWriter = new ParagraphWriter(writer);
+                alignTokensWithText(tokens, new TextWindow(text), paragraphWriter);
+                writeFb2Footer(writer);
+                paragraphs = paragraphWriter.written;
+            }
+            Files.move(partial, output, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
 
         out.printf("# %s → %s (%d абзацев, %d токенов)%n",
                 morphFile,
                 output,
-                paragraphs.size(),
-                tokens.size());
+                paragraphs,
+                tokens.count());
     }
 
-    private List<MorphToken> readMorphFile(Path morphFile) throws IOException {
-        List<MorphToken> tokens = new ArrayList<>();
-        try (BufferedReader reader = Files.newBufferedReader(morphFile, StandardCharsets.UTF_8)) {
-            String line;
-            int lineNumber = 0;
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                if (line.isEmpty()) {
-                    continue;
-                }
-                String[] columns = line.split("\t", -1);
-                if (columns.length < 2) {
-                    throw new IOException("Некорректная строка (ожидались минимум 2 столбца) в "
-                            + morphFile + ": " + lineNumber);
-                }
-                String token = columns[0];
-                String analysis = columns[1];
-                String translation = columns.length >= 3 ? columns[2] : "";
-                tokens.add(new MorphToken(token, analysis, translation));
-            }
+    private MorphToken parseMorphLine(String line, int lineNumber, Path morphFile) throws IOException {
+        if (line.isEmpty()) {
+            return null;
         }
-        return tokens;
+        String[] columns = line.split("\t", -1);
+        if (columns.length < 2) {
+            throw new IOException("Некорректная строка (ожидались минимум 2 столбца) в "
+                    + morphFile + ": " + lineNumber);
+        }
+        String token = columns[0];
+        String analysis = columns[1];
+        String translation = columns.length >= 3 ? columns[2] : "";
+        return new MorphToken(token, analysis, translation);
     }
 
     private Path locateOriginalFile(Path morphFile, Path explicitDir) {
@@ -322,15 +366,16 @@ public final class Morph3Fb2Exporter {
         return new ArrayList<>(candidates);
     }
 
-    private List<Paragraph> alignTokensWithText(List<MorphToken> tokens, String text) {
-        List<Paragraph> paragraphs = new ArrayList<>();
+    private void alignTokensWithText(TokenWindow tokens, TextWindow text, ParagraphWriter paragraphs)
+            throws IOException {
         Paragraph current = new Paragraph();
         int morphIndex = 0;
-        int length = text.length();
         int pos = 0;
-        while (pos < length) {
+        while (text.has(pos)) {
+            text.discardBefore(pos);
+            tokens.discardBefore(morphIndex);
             int whitespaceEnd = pos;
-            while (whitespaceEnd < length && Character.isWhitespace(text.charAt(whitespaceEnd))) {
+            while (text.has(whitespaceEnd) && Character.isWhitespace(text.charAt(whitespaceEnd))) {
                 whitespaceEnd++;
             }
             if (whitespaceEnd > pos) {
@@ -339,9 +384,6 @@ public final class Morph3Fb2Exporter {
                 pos = whitespaceEnd;
                 continue;
             }
-            if (pos >= length) {
-                break;
-            }
             String surface = nextToken(text, pos);
             if (surface.isEmpty()) {
                 pos++;
@@ -366,26 +408,20 @@ public final class Morph3Fb2Exporter {
             morphIndex = skipExtraPunctuationTokens(tokens, morphIndex, normalization, consumedByMatch);
             pos += surface.length();
         }
-        if (pos < length) {
-            String trailing = text.substring(pos);
-            current = processWhitespace(trailing, paragraphs, current);
-        }
-        if (!current.isEmpty() || paragraphs.isEmpty()) {
-            paragraphs.add(current);
+        if (!current.isEmpty() || paragraphs.written == 0) {
+            paragraphs.accept(current);
         }
-        return paragraphs;
     }
 
-    private String nextToken(String text, int pos) {
-        int length = text.length();
-        if (pos >= length) {
+    private String nextToken(TextWindow text, int pos) throws IOException {
+        if (!text.has(pos)) {
             return "";
         }
         int index = pos;
         char first = text.charAt(index);
         if (isWordStart(first)) {
             index++;
-            while (index < length) {
+            while (text.has(index)) {
                 char ch = text.charAt(index);
                 if (isWordContinuation(ch, text, index)) {
                     index++;
@@ -396,7 +432,7 @@ public final class Morph3Fb2Exporter {
             return text.substring(pos, index);
         }
         int end = index + 1;
-        while (end < length) {
+        while (text.has(end)) {
             char ch = text.charAt(end);
             if (Character.isWhitespace(ch)) {
                 break;
@@ -485,7 +521,7 @@ public final class Morph3Fb2Exporter {
         return Character.isLetterOrDigit(ch) || ch == '\'' || ch == '\u2019' || ch == '\u02BC';
     }
 
-    private boolean isWordContinuation(char ch, String text, int index) {
+    private boolean isWordContinuation(char ch, TextWindow text, int index) throws IOException {
         if (Character.isLetterOrDigit(ch) || ch == '\'' || ch == '\u2019' || ch == '\u02BC') {
             return true;
         }
@@ -495,7 +531,7 @@ public final class Morph3Fb2Exporter {
         if (ch == '.' && hasNeighbouringEllipsisDot(text, index)) {
             return true;
         }
-        if ((ch == '-' || ch == '\u2014' || ch == '\u2013') && index + 1 < text.length()) {
+        if ((ch == '-' || ch == '\u2014' || ch == '\u2013') && text.has(index + 1)) {
             char next = text.charAt(index + 1);
             if (Character.isLetterOrDigit(next)) {
                 return true;
@@ -504,16 +540,16 @@ public final class Morph3Fb2Exporter {
         return false;
     }
 
-    private boolean hasNeighbouringEllipsisDot(String text, int index) {
+    private boolean hasNeighbouringEllipsisDot(TextWindow text, int index) throws IOException {
         if (index > 0 && text.charAt(index - 1) == '.') {
             return true;
         }
-        return index + 1 < text.length() && text.charAt(index + 1) == '.';
+        return text.has(index + 1) && text.charAt(index + 1) == '.';
     }
 
-    private MatchResult findMatchingToken(List<MorphToken> tokens, int startIndex, String surface) {
+    private MatchResult findMatchingToken(TokenWindow tokens, int startIndex, String surface) {
         int index = startIndex;
-        while (index < tokens.size()) {
+        while (tokens.has(index)) {
             MorphToken token = tokens.get(index);
             if (matchesSurface(token, surface)) {
                 return new MatchResult(token, index + 1);
@@ -527,14 +563,14 @@ public final class Morph3Fb2Exporter {
         if (isPunctuationToken(surface)) {
             return new MatchResult(new MorphToken(surface, "", ""), startIndex);
         }
-        if (index < tokens.size()) {
+        if (tokens.has(index)) {
             MorphToken fallback = tokens.get(index);
             return new MatchResult(fallback, index + 1);
         }
         return new MatchResult(new MorphToken(surface, "", ""), startIndex);
     }
 
-    private int skipExtraPunctuationTokens(List<MorphToken> tokens,
+    private int skipExtraPunctuationTokens(TokenWindow tokens,
                                            int index,
                                            TokenNormalization normalization,
                                            int consumedByMatch) {
@@ -549,7 +585,7 @@ public final class Morph3Fb2Exporter {
             return index;
         }
         int current = index;
-        while (remaining > 0 && current < tokens.size()) {
+        while (remaining > 0 && tokens.has(current)) {
             MorphToken candidate = tokens.get(current);
             if (!matchesPunctuationUnit(candidate, normalization)) {
                 break;
@@ -692,7 +728,8 @@ public final class Morph3Fb2Exporter {
         return true;
     }
 
-    private Paragraph processWhitespace(String whitespace, List<Paragraph> paragraphs, Paragraph current) {
+    private Paragraph processWhitespace(String whitespace, ParagraphWriter paragraphs, Paragraph current)
+            throws IOException {
         if (whitespace == null || whitespace.isEmpty()) {
             return current;
         }
@@ -705,13 +742,13 @@ public final class Morph3Fb2Exporter {
                     i++;
                 }
                 flushBuffer(buffer, current);
-                paragraphs.add(current);
+                paragraphs.accept(current);
                 current = new Paragraph();
                 continue;
             }
             if (ch == '\n') {
                 flushBuffer(buffer, current);
-                paragraphs.add(current);
+                paragraphs.accept(current);
                 current = new Paragraph();
                 continue;
             }
@@ -737,50 +774,41 @@ public final class Morph3Fb2Exporter {
         return parent.resolve(title + ".fb2");
     }
 
-    private void writeFb2(Path output,
-                          Path morphFile,
-                          Path original,
-                          List<Paragraph> paragraphs) throws IOException {
-        Path parent = output.getParent();
-        if (parent != null) {
-            Files.createDirectories(parent);
-        }
+    private void writeFb2Header(BufferedWriter writer, Path morphFile, Path original) throws IOException {
         String bookTitle = deriveBookTitle(original);
         String language = "tt";
         LocalDate today = LocalDate.now();
 
-        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
-            writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
-            writer.write("<FictionBook xmlns=\"http://www.gribuser.ru/xml/fictionbook/2.0\" ");
-            writer.write("xmlns:l=\"http://www.w3.org/1999/xlink\" ");
-            writer.write("xmlns:m=\"urn:uqureader:morph\">\n");
-            writer.write("  <description>\n");
-            writer.write("    <title-info>\n");
-            writer.write("      <genre>foreign-education</genre>\n");
-            writer.write("      <book-title>" + escapeText(bookTitle) + "</book-title>\n");
-            writer.write("      <lang>" + language + "</lang>\n");
-            writer.write("      <src-lang>" + language + "</src-lang>\n");
-            writer.write("    </title-info>\n");
-            writer.write("    <document-info>\n");
-            writer.write("      <program-used>UquReader Morph3Fb2Exporter</program-used>\n");
-            writer.write("      <date value=\"" + DATE_FORMAT.format(today) + "\">"
-                    + DATE_FORMAT.format(today) + "</date>\n");
-            writer.write("      <source-url>" + escapeText(original.toString()) + "</source-url>\n");
-            writer.write("      <src-ocr>" + escapeText(morphFile.toString()) + "</src-ocr>\n");
-            writer.write("    </document-info>\n");
-            writer.write("    <stylesheet type=\"text/css\"><![CDATA[\n");
-            writer.write("      .morph { }\n");
-            writer.write("    ]]></stylesheet>\n");
-            writer.write("  </description>\n");
-            writer.write("  <body>\n");
-            writer.write("    <section>\n");
-            for (Paragraph paragraph : paragraphs) {
-                writeParagraph(writer, paragraph);
-            }
-            writer.write("    </section>\n");
-            writer.write("  </body>\n");
-            writer.write("</FictionBook>\n");
-        }
+        writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n");
+        writer.write("<FictionBook xmlns=\"http://www.gribuser.ru/xml/fictionbook/2.0\" ");
+        writer.write("xmlns:l=\"http://www.w3.org/1999/xlink\" ");
+        writer.write("xmlns:m=\"urn:uqureader:morph\">\n");
+        writer.write("  <description>\n");
+        writer.write("    <title-info>\n");
+        writer.write("      <genre>foreign-education</genre>\n");
+        writer.write("      <book-title>" + escapeText(bookTitle) + "</book-title>\n");
+        writer.write("      <lang>" + language + "</lang>\n");
+        writer.write("      <src-lang>" + language + "</src-lang>\n");
+        writer.write("    </title-info>\n");
+        writer.write("    <document-info>\n");
+        writer.write("      <program-used>UquReader Morph3Fb2Exporter</program-used>\n");
+        writer.write("      <date value=\"" + DATE_FORMAT.format(today) + "\">"
+                + DATE_FORMAT.format(today) + "</date>\n");
+        writer.write("      <source-url>" + escapeText(original.toString()) + "</source-url>\n");
+        writer.write("      <src-ocr>" + escapeText(morphFile.toString()) + "</src-ocr>\n");
+        writer.write("    </document-info>\n");
+        writer.write("    <stylesheet type=\"text/css\"><![CDATA[\n");
+        writer.write("      .morph { }\n");
+        writer.write("    ]]></stylesheet>\n");
+        writer.write("  </description>\n");
+        writer.write("  <body>\n");
+        writer.write("    <section>\n");
+    }
+
+    private void writeFb2Footer(BufferedWriter writer) throws IOException {
+        writer.write("    </section>\n");
+        writer.write("  </body>\n");
+        writer.write("</FictionBook>\n");
     }
 
     private void writeParagraph(BufferedWriter writer, Paragraph paragraph) throws IOException {
@@ -874,6 +902,158 @@ public final class Morph3Fb2Exporter {
         return escaped;
     }
 
+    /**
+     * Writes aligned paragraphs to the document as soon as they are complete.
+     */
+    private final class ParagraphWriter {
+        private final BufferedWriter writer;
+        private int written;
+
+        ParagraphWriter(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        void accept(Paragraph paragraph) throws IOException {
+            writeParagraph(writer, paragraph);
+            written++;
+        }
+    }
+
+    /**
+     * Window over the original text addressed by absolute positions. Text is read ahead on demand
+     * and characters before the token being aligned are dropped.
+     */
+    private static final class TextWindow {
+        private static final int READ_SIZE = 8192;
+
+        private final Reader reader;
+        private final char[] chunk = new char[READ_SIZE];
+        private final StringBuilder buffer = new StringBuilder();
+        private int offset;
+        private boolean endOfText;
+
+        TextWindow(Reader reader) {
+            this.reader = reader;
+        }
+
+        boolean has(int index) throws IOException {
+            while (index - offset >= buffer.length() && !endOfText) {
+                int read = reader.read(chunk);
+                if (read < 0) {
+                    endOfText = true;
+                } else {
+                    buffer.append(chunk, 0, read);
+                }
+            }
+            return index - offset < buffer.length();
+        }
+
+        /**
+         * Returns a character that has already been made available by {@link #has(int)}.
+         */
+        char charAt(int index) {
+            return buffer.charAt(index - offset);
+        }
+
+        String substring(int start, int end) {
+            return buffer.substring(start - offset, end - offset);
+        }
+
+        void discardBefore(int index) {
+            int discarded = index - offset;
+            if (discarded >= READ_SIZE) {
+                buffer.delete(0, discarded);
+                offset = index;
+            }
+        }
+    }
+
+    /**
+     * Look-ahead buffer over the morphology records addressed by their index in the file. Records
+     * before the current alignment position are dropped.
+     */
+    private static final class TokenWindow {
+        private static final int DISCARD_THRESHOLD = 1024;
+
+        private final Iterator<MorphToken> source;
+        private final List<MorphToken> buffer = new ArrayList<>();
+        private int offset;
+
+        TokenWindow(Iterator<MorphToken> source) {
+            this.source = source;
+        }
+
+        boolean has(int index) {
+            while (index - offset >= buffer.size() && source.hasNext()) {
+                buffer.add(source.next());
+            }
+            return index - offset < buffer.size();
+        }
+
+        /**
+         * Returns a record that has already been made available by {@link #has(int)}.
+         */
+        MorphToken get(int index) {
+            return buffer.get(index - offset);
+        }
+
+        void discardBefore(int index) {
+            int discarded = Math.min(index - offset, buffer.size());
+            if (discarded >= DISCARD_THRESHOLD) {
+                buffer.subList(0, discarded).clear();
+                offset += discarded;
+            }
+        }
+
+        /**
+         * Reads the remaining records and returns the total number of records.
+         */
+        int count() {
+            while (source.hasNext()) {
+                source.next();
+                offset++;
+            }
+            return offset + buffer.size();
+        }
+    }
+
+    /**
+     * Parses {@code *.morph3.tsv} lines lazily, skipping empty ones.
+     */
+    private final class MorphTokenIterator implements Iterator<MorphToken> {
+        private final Iterator<String> lines;
+        private final Path morphFile;
+        private int lineNumber;
+        private MorphToken next;
+
+        MorphTokenIterator(Iterator<String> lines, Path morphFile) {
+            this.lines = lines;
+            this.morphFile = morphFile;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && lines.hasNext()) {
+                try {
+                    next = parseMorphLine(lines.next(), ++lineNumber, morphFile);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public MorphToken next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            MorphToken value = next;
+            next = null;
+            return value;
+        }
+    }
+
     private interface ParagraphItem { }
 
     private static final class Paragraph {
@@ -1,37 +1,56 @@
 package com.example.uqureader.webapp.cli;
 
+import com.example.uqureader.webapp.dictionary.TranslationDictionary;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Command line utility that chains together the existing morphology tools so that a
  * {@code *.morph.tsv} file can be converted into an FB2 document in a single invocation.
  *
- * <p>The program sequentially runs {@link NaiveMorphologyPostProcessor},
- * {@link Morph2TranslationAugmenter} and {@link Morph3Fb2Exporter}. Intermediate
- * {@code *.morph2.tsv} and {@code *.morph3.tsv} files are generated by the individual
- * steps as usual. The resulting FB2 document is produced by the exporter.</p>
+ * <p>The program chains {@link NaiveMorphologyPostProcessor},
+ * {@link Morph2TranslationAugmenter} and {@link Morph3Fb2Exporter} in memory: every
+ * {@code *.morph.tsv} line is completed and translated as the exporter pulls it, so the records are
+ * read and parsed once. The dictionary is loaded once into a {@link TranslationDictionary} shared by
+ * all files. The intermediate {@code *.morph2.tsv} and {@code *.morph3.tsv} files are
+ * written only with {@code --keep-intermediate}; they are byte-identical to the files the
+ * individual tools produce. The resulting FB2 document is produced by the exporter.</p>
+ *
+ * <p>With {@code --jobs N} the files are converted concurrently on a work-stealing pool of
+ * {@code N} threads. Every file still passes through the three steps in order; its messages are
+ * buffered and printed in input order, so the console output and the generated files do not
+ * depend on scheduling.</p>
+ *
+ * <p>A failed file never stops the others, whatever the number of jobs. When several files are given,
+ * each one ends with an {@code [i/n]} status line and the run exits with {@code 3} if any of them
+ * failed. A single file exits with the code of the step that failed.</p>
  */
 public final class MorphToFb2Pipeline {
 
-    private final NaiveMorphologyPostProcessor naivePostProcessor;
-    private final Morph2TranslationAugmenter translationAugmenter;
-    private final Morph3Fb2Exporter fb2Exporter;
+    private final NaiveTatarSuffixAnalyzer analyzer;
     private final PrintStream out;
     private final PrintStream err;
 
     public MorphToFb2Pipeline(PrintStream out, PrintStream err) {
         this.out = Objects.requireNonNull(out, "out");
         this.err = Objects.requireNonNull(err, "err");
-        NaiveTatarSuffixAnalyzer analyzer =
-                NaiveTatarSuffixAnalyzer.fromClasspathOrDefault("/suffixes_tat.json", 4);
-        this.naivePostProcessor = new NaiveMorphologyPostProcessor(analyzer, out, err);
-        this.translationAugmenter = new Morph2TranslationAugmenter(out, err);
-        this.fb2Exporter = new Morph3Fb2Exporter(out, err);
+        this.analyzer = NaiveTatarSuffixAnalyzer.fromClasspathOrDefault("/suffixes_tat.json", 4);
     }
 
     public static void main(String[] args) {
@@ -52,10 +71,31 @@ public final class MorphToFb2Pipeline {
         Path dictionaryOverride = null;
         Path originalDir = null;
         Path explicitOriginal = null;
+        int jobs = 1;
+        boolean keepIntermediate = false;
 
         for (int i = 0; i < args.length; i++) {
             String arg = args[i];
             switch (arg) {
+                case "--keep-intermediate":
+                    keepIntermediate = true;
+                    break;
+                case "--jobs":
+                case "-j":
+                    if (i + 1 >= args.length) {
+                        err.println("Опция --jobs требует число потоков.");
+                        return 1;
+                    }
+                    try {
+                        jobs = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException ex) {
+                        jobs = 0;
+                    }
+                    if (jobs < 1) {
+                        err.printf("Некорректное число потоков: %s%n", args[i]);
+                        return 1;
+                    }
+                    break;
                 case "--dictionary":
                 case "-d":
                     if (i + 1 >= args.length) {
@@ -117,47 +157,144 @@ public final class MorphToFb2Pipeline {
             return 1;
         }
 
-        for (Path morph : morphFiles) {
-            out.printf("== Обработка %s ==%n", morph);
-
-            int stage1 = naivePostProcessor.run(new String[]{morph.toString()});
-            if (stage1 != 0) {
-                err.printf("Этап наивного постпроцессинга завершился с кодом %d.%n", stage1);
-                return stage1;
-            }
+        Path dictionary = dictionaryOverride != null
+                ? dictionaryOverride
+                : Path.of(Morph2TranslationAugmenter.DEFAULT_DICTIONARY);
+        if (!Files.exists(dictionary)) {
+            err.printf("Файл словаря не найден: %s%n", dictionary);
+            return 2;
+        }
 
-            Path morph2 = toMorph2Path(morph);
+        TranslationDictionary translations;
+        try {
+            translations = TranslationDictionary.load(dictionary);
+        } catch (SQLException ex) {
+            err.printf("Не удалось подключиться к базе словаря: %s%n", ex.getMessage());
+            return 4;
+        }
 
-            List<String> augmenterArgs = new ArrayList<>();
-            if (dictionaryOverride != null) {
-                augmenterArgs.add("--dictionary");
-                augmenterArgs.add(dictionaryOverride.toString());
+        Options options = new Options(translations, originalDir, explicitOriginal, keepIntermediate);
+        if (morphFiles.size() == 1) {
+            return convert(morphFiles.get(0), options, out, err);
+        }
+        if (jobs > 1) {
+            return runParallel(morphFiles, options, jobs);
+        }
+        int failures = 0;
+        for (int i = 0; i < morphFiles.size(); i++) {
+            Path morph = morphFiles.get(i);
+            int exitCode;
+            try {
+                exitCode = convert(morph, options, out, err);
+            } catch (RuntimeException ex) {
+                err.printf("Не удалось обработать файл %s: %s%n", morph, ex);
+                exitCode = 3;
             }
-            augmenterArgs.add(morph2.toString());
-            int stage2 = translationAugmenter.run(augmenterArgs.toArray(new String[0]));
-            if (stage2 != 0) {
-                err.printf("Этап дополнения переводами завершился с кодом %d.%n", stage2);
-                return stage2;
+            if (exitCode != 0) {
+                failures++;
             }
+            reportFile(i, morphFiles.size(), morph, exitCode);
+        }
+        return summarise(failures);
+    }
 
-            Path morph3 = toMorph3Path(morph2);
-
-            List<String> exporterArgs = new ArrayList<>();
-            if (originalDir != null) {
-                exporterArgs.add("--original-dir");
-                exporterArgs.add(originalDir.toString());
+    private int runParallel(List<Path> morphFiles, Options options, int jobs) {
+        ForkJoinPool pool = new ForkJoinPool(jobs);
+        try {
+            List<ForkJoinTask<FileResult>> tasks = new ArrayList<>(morphFiles.size());
+            for (Path morph : morphFiles) {
+                tasks.add(pool.submit(() -> convertBuffered(morph, options)));
             }
-            exporterArgs.add(morph3.toString());
-            if (explicitOriginal != null) {
-                exporterArgs.add(explicitOriginal.toString());
+            int failures = 0;
+            for (int i = 0; i < tasks.size(); i++) {
+                FileResult result = tasks.get(i).join();
+                out.print(result.out());
+                err.print(result.err());
+                if (result.exitCode() != 0) {
+                    failures++;
+                }
+                reportFile(i, tasks.size(), morphFiles.get(i), result.exitCode());
             }
-            int stage3 = fb2Exporter.run(exporterArgs.toArray(new String[0]));
-            if (stage3 != 0) {
-                err.printf("Этап экспорта в FB2 завершился с кодом %d.%n", stage3);
-                return stage3;
+            return summarise(failures);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void reportFile(int index, int total, Path morph, int exitCode) {
+        out.printf("[%d/%d] %s: %s%n", index + 1, total, morph,
+                exitCode == 0 ? "готово" : "ошибка (код " + exitCode + ")");
+    }
+
+    private int summarise(int failures) {
+        if (failures > 0) {
+            err.printf("Завершено с ошибками (%d файлов не обработано).%n", failures);
+            return 3;
+        }
+        return 0;
+    }
+
+    private FileResult convertBuffered(Path morph, Options options) {
+        ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+        ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+        int exitCode;
+        try (PrintStream fileOut = new PrintStream(outBuffer, true, StandardCharsets.UTF_8);
+             PrintStream fileErr = new PrintStream(errBuffer, true, StandardCharsets.UTF_8)) {
+            try {
+                exitCode = convert(morph, options, fileOut, fileErr);
+            } catch (RuntimeException ex) {
+                fileErr.printf("Не удалось обработать файл %s: %s%n", morph, ex);
+                exitCode = 3;
             }
         }
+        return new FileResult(exitCode,
+                outBuffer.toString(StandardCharsets.UTF_8),
+                errBuffer.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Runs the three steps for one file, writing their messages to the given streams.
+     *
+     * @return {@code 0} on success, otherwise the exit code the failing tool would have returned
+     */
+    private int convert(Path morph, Options options, PrintStream out, PrintStream err) {
+        out.printf("== Обработка %s ==%n", morph);
 
+        Path morph2 = toMorph2Path(morph);
+        Path morph3 = toMorph3Path(morph2);
+        NaiveMorphologyPostProcessor naivePostProcessor = new NaiveMorphologyPostProcessor(analyzer, out, err);
+        Morph2TranslationAugmenter translationAugmenter = new Morph2TranslationAugmenter(out, err);
+        Morph3Fb2Exporter fb2Exporter = new Morph3Fb2Exporter(out, err);
+
+        try (BufferedReader reader = Files.newBufferedReader(morph, StandardCharsets.UTF_8);
+             BufferedWriter morph2Writer = options.keepIntermediate()
+                     ? Files.newBufferedWriter(morph2, StandardCharsets.UTF_8) : null;
+             BufferedWriter morph3Writer = options.keepIntermediate()
+                     ? Files.newBufferedWriter(morph3, StandardCharsets.UTF_8) : null) {
+            StageChain chain = new StageChain(reader, naivePostProcessor, translationAugmenter,
+                    options.translations(), morph2Writer, morph3Writer);
+            fb2Exporter.exportLines(morph3, chain, options.originalDir(), options.original());
+            out.printf("# %s — найдено неопределённых форм: %d, дополнено: %d; "
+                            + "обработано токенов: %d, с переводами: %d, записано переводов: %d%n",
+                    morph,
+                    chain.counts.unknown(),
+                    chain.counts.replaced(),
+                    chain.tokens,
+                    chain.tokensWithTranslations,
+                    chain.translationsWritten);
+            if (options.keepIntermediate()) {
+                out.printf("# Промежуточные файлы: %s, %s%n", morph2, morph3);
+            }
+        } catch (IOException ex) {
+            err.printf("Не удалось обработать файл %s: %s%n", morph, ex.getMessage());
+            return 3;
+        } catch (UncheckedIOException ex) {
+            err.printf("Не удалось обработать файл %s: %s%n", morph, ex.getCause().getMessage());
+            return 3;
+        } catch (IllegalStateException ex) {
+            err.printf("Ошибка совмещения текста и морфологии для %s: %s%n", morph3, ex.getMessage());
+            return 3;
+        }
         return 0;
     }
 
@@ -168,8 +305,100 @@ public final class MorphToFb2Pipeline {
         err.println("  --dictionary, -d <путь>     Использовать альтернативную SQLite-базу словаря.");
         err.println("  --original-dir, -o <путь>   Каталог, где искать оригинальные тексты.");
         err.println("  --original <путь>          Явно указать файл оригинального текста (для одного входа).");
-        err.println("Инструмент последовательно запускает наивный постпроцессор, "
-                + "дополняет файл переводами и экспортирует FB2.");
+        err.println("  --jobs, -j <число>          Обрабатывать файлы параллельно в указанном числе потоков.");
+        err.println("  --keep-intermediate         Сохранять промежуточные *.morph2.tsv и *.morph3.tsv.");
+        err.println("Инструмент дополняет разметку наивными разборами и переводами "
+                + "и экспортирует FB2 за один проход по файлу.");
+    }
+
+    private record Options(TranslationDictionary translations,
+                           Path originalDir,
+                           Path original,
+                           boolean keepIntermediate) {
+    }
+
+    /**
+     * Pulls {@code *.morph.tsv} lines through the post-processor and the translation augmenter one at a
+     * time, optionally copying each intermediate line to its file in the format the tools write.
+     */
+    private static final class StageChain implements Iterator<String> {
+        private final BufferedReader reader;
+        private final NaiveMorphologyPostProcessor naivePostProcessor;
+        private final Morph2TranslationAugmenter translationAugmenter;
+        private final TranslationDictionary translations;
+        private final BufferedWriter morph2Writer;
+        private final BufferedWriter morph3Writer;
+        private final NaiveMorphologyPostProcessor.Counts counts = new NaiveMorphologyPostProcessor.Counts();
+        private String next;
+        private boolean finished;
+        private int tokens;
+        private int tokensWithTranslations;
+        private int translationsWritten;
+
+        private StageChain(BufferedReader reader,
+                           NaiveMorphologyPostProcessor naivePostProcessor,
+                           Morph2TranslationAugmenter translationAugmenter,
+                           TranslationDictionary translations,
+                           BufferedWriter morph2Writer,
+                           BufferedWriter morph3Writer) {
+            this.reader = reader;
+            this.naivePostProcessor = naivePostProcessor;
+            this.translationAugmenter = translationAugmenter;
+            this.translations = translations;
+            this.morph2Writer = morph2Writer;
+            this.morph3Writer = morph3Writer;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !finished) {
+                try {
+                    advance();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String value = next;
+            next = null;
+            return value;
+        }
+
+        private void advance() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                finished = true;
+                return;
+            }
+            String completed = naivePostProcessor.processLine(line, counts);
+            if (morph2Writer != null) {
+                morph2Writer.write(completed);
+                morph2Writer.newLine();
+            }
+            Morph2TranslationAugmenter.AugmentedLine augmented = translationAugmenter.augment(completed, translations);
+            if (morph3Writer != null) {
+                if (tokens > 0) {
+                    morph3Writer.newLine();
+                }
+                morph3Writer.write(augmented.value());
+            }
+            tokens++;
+            if (augmented.translationCount() > 0) {
+                tokensWithTranslations++;
+                translationsWritten += augmented.translationCount();
+            }
+            next = augmented.value();
+        }
+    }
+
+    private record FileResult(int exitCode, String out, String err) {
     }
 
     private Path toMorph2Path(Path input) {
@@ -14,6 +14,8 @@ import java.util.stream.Collectors;
  * Simple console application that exposes the {@link MorphologyAnalyzer} via STDIN/STDOUT.
  * The program accepts arbitrary text input, performs a lookup against the HFST transducer
  * bundled with the web module and prints the resulting token markup to the console.
+ * Start-up is fastest with an analyser image from {@code Main --compile-analyzer}, passed via
+ * {@code -Dmorphology.analyzer.image=<path>}.
  */
 public final class MorphologyConsoleApplication {
 
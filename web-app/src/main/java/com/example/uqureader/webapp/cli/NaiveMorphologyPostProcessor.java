@@ -88,35 +88,45 @@ public final class NaiveMorphologyPostProcessor {
             Files.createDirectories(output.getParent());
         }
 
-        int unknownCount = 0;
-        int replacedCount = 0;
-
+        Counts counts = new Counts();
         try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
              BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
             String line;
             while ((line = reader.readLine()) != null) {
-                String processed = line;
-                int tabIndex = line.indexOf('\t');
-                if (tabIndex >= 0) {
-                    String token = line.substring(0, tabIndex);
-                    String analysis = line.substring(tabIndex + 1);
-                    if (requiresCompletion(analysis)) {
-                        unknownCount++;
-                        Replacement replacement = buildReplacement(token);
-                        if (replacement.hasAnalyses()) {
-                            replacedCount++;
-                            logFoundWord(token, replacement);
-                        }
-                        processed = token + '\t' + replacement.text();
-                    }
-                }
-                writer.write(processed);
+                writer.write(processLine(line, counts));
                 writer.newLine();
             }
         }
 
         out.printf("# %s — найдено неопределённых форм: %d, дополнено: %d. Результат: %s%n",
-                file, unknownCount, replacedCount, output);
+                file, counts.unknown(), counts.replaced(), output);
+    }
+
+    /**
+     * Completes a single {@code *.morph.tsv} line: an {@code NR} analysis is replaced with the naive
+     * suffix analyses of the token, any other line is returned unchanged.
+     *
+     * @param line   line without the line terminator
+     * @param counts receives the number of unknown and completed tokens
+     * @return the line as it is written to {@code *.morph2.tsv}
+     */
+    String processLine(String line, Counts counts) {
+        int tabIndex = line.indexOf('\t');
+        if (tabIndex < 0) {
+            return line;
+        }
+        String token = line.substring(0, tabIndex);
+        String analysis = line.substring(tabIndex + 1);
+        if (!requiresCompletion(analysis)) {
+            return line;
+        }
+        counts.unknown++;
+        Replacement replacement = buildReplacement(token);
+        if (replacement.hasAnalyses()) {
+            counts.replaced++;
+            logFoundWord(token, replacement);
+        }
+        return token + '\t' + replacement.text();
     }
 
     private Replacement buildReplacement(String token) {
@@ -174,6 +184,22 @@ public final class NaiveMorphologyPostProcessor {
                 + "с наивными разборами вместо пометок NR.");
     }
 
+    /**
+     * Number of unknown tokens seen by {@link #processLine} and of those that received an analysis.
+     */
+    static final class Counts {
+        private int unknown;
+        private int replaced;
+
+        int unknown() {
+            return unknown;
+        }
+
+        int replaced() {
+            return replaced;
+        }
+    }
+
     private static final class Replacement {
 
         private static final Replacement NONE = new Replacement("NR", List.of());
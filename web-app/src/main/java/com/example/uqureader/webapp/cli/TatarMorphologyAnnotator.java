@@ -1,21 +1,30 @@
 package com.example.uqureader.webapp.cli;
 
 import com.example.uqureader.webapp.MorphologyException;
+import com.example.uqureader.webapp.morphology.DiskBatchStore;
 import com.example.uqureader.webapp.morphology.RemoteMorphologyClient;
 import com.example.uqureader.webapp.morphology.RemoteMorphologyClient.WordMarkup;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Command line entry point that annotates raw Tatar texts using the Tugantel
  * morphology service.
+ *
+ * <p>Answers are kept in a content-addressed {@link DiskBatchStore} shared by all files and runs; every
+ * answer is stored as soon as it arrives and the output file is written only once the whole text is
+ * annotated. A run that stops half-way can simply be repeated: fragments that were already answered
+ * are taken from the store and only the rest are sent. Resuming relies on the store alone, so it is
+ * not available with {@code --no-cache}.</p>
  */
 public final class TatarMorphologyAnnotator {
 
@@ -48,8 +57,31 @@ public final class TatarMorphologyAnnotator {
             return 1;
         }
 
-        List<Path> files = new ArrayList<>(args.length);
-        for (String arg : args) {
+        Path cacheDir = defaultCacheDirectory();
+        List<String> fileArgs = new ArrayList<>(args.length);
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--cache-dir".equals(arg)) {
+                if (i + 1 >= args.length) {
+                    err.println("Не указан каталог кэша после --cache-dir");
+                    printUsage();
+                    return 1;
+                }
+                cacheDir = Path.of(args[++i]);
+            } else if ("--no-cache".equals(arg)) {
+                cacheDir = null;
+            } else {
+                fileArgs.add(arg);
+            }
+        }
+        if (fileArgs.isEmpty()) {
+            printUsage();
+            return 1;
+        }
+        DiskBatchStore store = cacheDir == null ? null : new DiskBatchStore(cacheDir);
+
+        List<Path> files = new ArrayList<>(fileArgs.size());
+        for (String arg : fileArgs) {
             Path path = Path.of(arg);
             if (!Files.exists(path)) {
                 err.printf("Файл не найден: %s%n", path);
@@ -65,7 +97,7 @@ public final class TatarMorphologyAnnotator {
         int failures = 0;
         for (Path file : files) {
             try {
-                annotateFile(file);
+                annotateFile(file, store);
             } catch (IOException ex) {
                 failures++;
                 err.printf("Не удалось прочитать файл %s: %s%n", file, ex.getMessage());
@@ -81,7 +113,7 @@ public final class TatarMorphologyAnnotator {
         return 0;
     }
 
-    private void annotateFile(Path file) throws IOException {
+    private void annotateFile(Path file, DiskBatchStore store) throws IOException {
         String content = Files.readString(file, StandardCharsets.UTF_8);
         Path outputFile = deriveOutputPath(file);
         if (content.isBlank()) {
@@ -91,17 +123,49 @@ public final class TatarMorphologyAnnotator {
         }
 
         out.printf("# Файл: %s%n", file);
-        List<WordMarkup> markup = client.analyzeText(content, (index, total, fragment) -> {
-            out.printf("# → Отправка фрагмента %d/%d (ожидаем ответ от сервиса):%n%s%n%n", index, total, fragment);
-        });
+        AtomicInteger storedBatches = new AtomicInteger();
+        AtomicInteger batches = new AtomicInteger();
+        List<WordMarkup> markup;
+        try {
+            markup = client.analyzeText(content, new RemoteMorphologyClient.BatchProgressListener() {
+                @Override
+                public void onBatchStart(int index, int total, String fragment) {
+                    out.printf("# → Отправка фрагмента %d/%d (ожидаем ответ от сервиса):%n%s%n%n", index, total, fragment);
+                }
+
+                @Override
+                public void onBatchDone(int index, int total, boolean fromStore) {
+                    batches.set(total);
+                    if (fromStore) {
+                        storedBatches.incrementAndGet();
+                    }
+                }
+            }, store);
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
         String formatted = RemoteMorphologyClient.formatAsMarkup(markup);
         writeOutput(outputFile, formatted);
+        if (storedBatches.get() > 0) {
+            out.printf("# Из кэша %s взято фрагментов: %d из %d%n", store.directory(), storedBatches.get(), batches.get());
+        }
         out.printf("# Результат сохранён в: %s%n%n", outputFile);
     }
 
     private void printUsage() {
-        err.println("Использование: java -cp web-app-<версия>.jar com.example.uqureader.webapp.cli.TatarMorphologyAnnotator <файл> [<файл> ...]");
+        err.println("Использование: java -cp web-app-<версия>.jar com.example.uqureader.webapp.cli.TatarMorphologyAnnotator [--cache-dir <каталог> | --no-cache] <файл> [<файл> ...]");
         err.println("Каждый указанный файл будет отправлен на сервис Tugantel для морфологической разметки.");
+        err.println("Полученные ответы сохраняются в кэше (по умолчанию " + defaultCacheDirectory() + "),");
+        err.println("поэтому повторный запуск продолжает работу с места остановки и не отправляет уже размеченные фрагменты.");
+        err.println("С --no-cache ответы не сохраняются и прерванный запуск начинается заново.");
+    }
+
+    private static Path defaultCacheDirectory() {
+        String configured = System.getProperty("morphology.remote.cache.dir");
+        if (configured != null && !configured.isBlank()) {
+            return Path.of(configured.trim());
+        }
+        return Path.of(System.getProperty("user.home"), ".cache", "uqureader", "tugantel");
     }
 
     private static Path deriveOutputPath(Path inputFile) {
@@ -14,6 +14,8 @@ import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -21,12 +23,21 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 /**
  * Console utility that compares two HFST transducers against the same input texts and writes
  * a detailed coverage report to a log file. The application is meant to automate manual
  * comparisons performed earlier during development.
+ *
+ * <p>Every text is tokenised once. The distinct tokens of all texts are then analysed by every
+ * transducer, each on its own thread, and the pairwise reports are built from these shared results.
+ * The log also states how long each transducer took and how many tokens per second it analysed, so
+ * the tool doubles as a benchmark of the transducers.</p>
  */
 public final class TransducerComparisonApplication {
 
@@ -99,6 +110,20 @@ public final class TransducerComparisonApplication {
             }
         }
 
+        long tokeniseStart = System.nanoTime();
+        MorphologyAnalyzer tokenizer = transducers.get(0).analyzer();
+        List<TokenisedText> tokenised = new ArrayList<>(texts.size());
+        Set<String> vocabulary = new LinkedHashSet<>();
+        int totalTokens = 0;
+        for (Path text : texts) {
+            List<String> tokens = tokenizer.tokens(Files.readString(text, StandardCharsets.UTF_8));
+            tokenised.add(new TokenisedText(text, tokens));
+            vocabulary.addAll(tokens);
+            totalTokens += tokens.size();
+        }
+        long tokeniseNanos = System.nanoTime() - tokeniseStart;
+        List<TransducerRun> runs = analyseConcurrently(transducers, List.copyOf(vocabulary));
+
         StringBuilder builder = new StringBuilder();
         builder.append("Transducer comparison log").append(System.lineSeparator());
         builder.append("Generated: ")
@@ -115,10 +140,12 @@ public final class TransducerComparisonApplication {
         builder.append("Fallback dictionary: disabled for comparison")
                 .append(System.lineSeparator())
                 .append(System.lineSeparator());
+        appendTimings(builder, tokenised.size(), totalTokens, vocabulary.size(), tokeniseNanos, runs);
+        builder.append(System.lineSeparator());
 
         for (int i = 0; i < transducers.size(); i++) {
             for (int j = i + 1; j < transducers.size(); j++) {
-                appendPairComparison(builder, transducers.get(i), transducers.get(j), texts);
+                appendPairComparison(builder, runs.get(i), runs.get(j), tokenised);
                 builder.append(System.lineSeparator());
             }
         }
@@ -126,30 +153,89 @@ public final class TransducerComparisonApplication {
         Files.writeString(output, builder.toString(), StandardCharsets.UTF_8);
     }
 
+    /**
+     * Analyses the tokens with every transducer at the same time, one thread per transducer.
+     */
+    private static List<TransducerRun> analyseConcurrently(List<LoadedTransducer> transducers,
+                                                           List<String> tokens) {
+        ExecutorService executor = Executors.newFixedThreadPool(transducers.size());
+        try {
+            List<Future<TransducerRun>> futures = new ArrayList<>(transducers.size());
+            for (LoadedTransducer transducer : transducers) {
+                futures.add(executor.submit(() -> analyseAll(transducer, tokens)));
+            }
+            List<TransducerRun> runs = new ArrayList<>(futures.size());
+            for (Future<TransducerRun> future : futures) {
+                runs.add(future.get());
+            }
+            return runs;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MorphologyException("Transducer comparison was interrupted", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new MorphologyException("Transducer analysis failed", cause);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static TransducerRun analyseAll(LoadedTransducer transducer, List<String> tokens) {
+        long start = System.nanoTime();
+        Map<String, String> analyses = new HashMap<>(tokens.size() * 4 / 3 + 1);
+        for (String token : tokens) {
+            analyses.put(token, transducer.analyzer().analyseToken(token));
+        }
+        return new TransducerRun(transducer, analyses, System.nanoTime() - start);
+    }
+
+    private static void appendTimings(StringBuilder builder,
+                                      int textCount,
+                                      int totalTokens,
+                                      int uniqueTokens,
+                                      long tokeniseNanos,
+                                      List<TransducerRun> runs) {
+        builder.append(String.format(Locale.ROOT,
+                "Performance: %d texts, %d tokens, %d distinct tokens; tokenised once in %.1f ms.%n",
+                textCount, totalTokens, uniqueTokens, tokeniseNanos / 1e6));
+        builder.append("Distinct tokens analysed concurrently, one thread per transducer:")
+                .append(System.lineSeparator());
+        for (TransducerRun run : runs) {
+            double seconds = run.elapsedNanos() / 1e9;
+            builder.append(String.format(Locale.ROOT,
+                    "  - %s: %.1f ms, %.0f tokens/s%n",
+                    run.transducer().resolved().label(),
+                    run.elapsedNanos() / 1e6,
+                    seconds > 0 ? uniqueTokens / seconds : 0.0));
+        }
+    }
+
     private static void appendPairComparison(StringBuilder builder,
-                                             LoadedTransducer first,
-                                             LoadedTransducer second,
-                                             List<Path> texts) throws IOException {
-        String labelA = first.resolved().label();
-        String labelB = second.resolved().label();
+                                             TransducerRun first,
+                                             TransducerRun second,
+                                             List<TokenisedText> texts) {
+        String labelA = first.transducer().resolved().label();
+        String labelB = second.transducer().resolved().label();
 
         builder.append(String.format(Locale.ROOT, "=== Comparison: %s vs %s%n", labelA, labelB));
         builder.append("First transducer: ")
-                .append(first.resolved().path().toAbsolutePath())
+                .append(first.transducer().resolved().path().toAbsolutePath())
                 .append(System.lineSeparator());
         builder.append("Second transducer: ")
-                .append(second.resolved().path().toAbsolutePath())
+                .append(second.transducer().resolved().path().toAbsolutePath())
                 .append(System.lineSeparator())
                 .append(System.lineSeparator());
 
-        for (Path text : texts) {
+        for (TokenisedText text : texts) {
             builder.append("--- Text: ")
-                    .append(text.toAbsolutePath())
+                    .append(text.path().toAbsolutePath())
                     .append(System.lineSeparator());
 
-            String content = Files.readString(text, StandardCharsets.UTF_8);
-            AnalysisSummary firstSummary = summarise(first.analyzer(), content);
-            AnalysisSummary secondSummary = summarise(second.analyzer(), content);
+            AnalysisSummary firstSummary = summarise(text, first.analyses());
+            AnalysisSummary secondSummary = summarise(text, second.analyses());
 
             appendSummary(builder, labelA, firstSummary);
             appendSummary(builder, labelB, secondSummary);
@@ -326,24 +412,21 @@ public final class TransducerComparisonApplication {
                 secondStats.describeAnalyses());
     }
 
-    private static AnalysisSummary summarise(MorphologyAnalyzer analyzer, String text) {
-        MorphologyAnalyzer.TextAnalysis analysis = analyzer.analyze(text);
-        AnalysisSummary summary = new AnalysisSummary(analysis.tokensCount(), analysis.uniqueTokensCount());
-        for (List<MorphologyAnalyzer.TokenEntry> sentence : analysis.sentences()) {
-            for (MorphologyAnalyzer.TokenEntry entry : sentence) {
-                String tag = entry.analysis();
-                if (!isRelevant(tag)) {
-                    continue;
-                }
-                summary.incrementRelevant();
-                TokenStats stats = summary.tokens()
-                        .computeIfAbsent(entry.token(), key -> new TokenStats());
-                stats.record(tag);
-                if (isLexical(tag)) {
-                    summary.incrementRecognised();
-                } else {
-                    summary.incrementNotRecognised();
-                }
+    private static AnalysisSummary summarise(TokenisedText text, Map<String, String> analyses) {
+        AnalysisSummary summary = new AnalysisSummary(text.tokens().size(), text.uniqueTokens());
+        for (String token : text.tokens()) {
+            String tag = analyses.get(token);
+            if (!isRelevant(tag)) {
+                continue;
+            }
+            summary.incrementRelevant();
+            TokenStats stats = summary.tokens()
+                    .computeIfAbsent(token, key -> new TokenStats());
+            stats.record(tag);
+            if (isLexical(tag)) {
+                summary.incrementRecognised();
+            } else {
+                summary.incrementNotRecognised();
             }
         }
         return summary;
@@ -386,6 +469,22 @@ public final class TransducerComparisonApplication {
     private record LoadedTransducer(ResolvedTransducer resolved, MorphologyAnalyzer analyzer) {
     }
 
+    private record TransducerRun(LoadedTransducer transducer, Map<String, String> analyses, long elapsedNanos) {
+    }
+
+    private record TokenisedText(Path path, List<String> tokens) {
+        /**
+         * @return number of distinct tokens ignoring case, as counted by {@link MorphologyAnalyzer#analyze(String)}
+         */
+        int uniqueTokens() {
+            Set<String> unique = new HashSet<>();
+            for (String token : tokens) {
+                unique.add(token.toLowerCase(Locale.ROOT));
+            }
+            return unique.size();
+        }
+    }
+
     private record BundledTransducer(String alias, String resourcePath) {
         String fileName() {
             int separator = resourcePath.lastIndexOf('/');
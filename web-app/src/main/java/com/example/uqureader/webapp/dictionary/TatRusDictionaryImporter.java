@@ -3,17 +3,12 @@ package com.example.uqureader.webapp.dictionary;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
-import org.w3c.dom.Comment;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -23,25 +18,43 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.Normalizer;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HexFormat;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
-
 /**
  * Utility responsible for downloading the Apertium tat-rus dictionary and transforming it into a
  * local SQLite table that can be used by the web application.
+ *
+ * <p>The {@code .dix} XML is read with StAX and every entry goes straight into a batched insert, so
+ * neither the document nor the list of entries is ever held in memory.</p>
+ *
+ * <p>Imports are incremental. Every row carries an {@code entry_key} (a hash of the fields that
+ * identify an entry plus its occurrence number) and an {@code entry_hash} of all stored fields. The new
+ * document is staged in a temporary table and only the difference is applied: new keys are inserted,
+ * rows whose hash changed are updated and missing keys are deleted. Each import that changes anything
+ * gets the next number in {@code tat_rus_import}; inserted and updated rows carry it in their
+ * {@code generation} column and deleted keys are listed with it in {@code tat_rus_dictionary_removed},
+ * so a consumer that last saw generation {@code n} picks up everything that changed since with
+ * {@code generation > n} on both tables. A key that is inserted again loses its removal record. Every row also stores its position in the imported document in {@code seq}, and readers
+ * order by it, so a table brought up to date incrementally lists entries exactly like a fresh import
+ * of the same document. The whole import runs in one transaction: a failed import leaves the previous
+ * table untouched.</p>
  */
 public final class TatRusDictionaryImporter {
 
@@ -49,232 +62,433 @@ public final class TatRusDictionaryImporter {
             "https://raw.githubusercontent.com/apertium/apertium-tat-rus/master/"
                     + "apertium-tat-rus.tat-rus.dix");
     private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final String ROW_COLUMNS = "tat_lemma, tat_surface, tat_tags, rus_lemma, rus_tags, "
+            + "paradigm, section, direction, comment";
+    /** Positions in {@link #ROW_COLUMNS} of the fields that identify an entry. */
+    private static final int[] IDENTITY_COLUMNS = {6, 0, 2, 3, 4};
+    private static final int ROW_COLUMN_COUNT = 9;
 
     /**
-     * Imports the latest dictionary from GitHub and writes it into the target SQLite database. The
-     * method returns the number of entries inserted.
+     * Outcome of an import.
+     *
+     * @param generation import generation of the table after the import; unchanged when nothing changed
+     * @param entries    number of entries in the imported document
+     * @param inserted   rows added
+     * @param updated    rows whose content changed
+     * @param deleted    rows removed
+     */
+    public record ImportResult(long generation, int entries, int inserted, int updated, int deleted) {
+
+        /**
+         * @return {@code true} when the import modified the table
+         */
+        public boolean changed() {
+            return inserted + updated + deleted > 0;
+        }
+    }
+
+    private final int batchSize;
+
+    public TatRusDictionaryImporter() {
+        this(DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param batchSize number of rows sent to SQLite in one JDBC batch
+     */
+    TatRusDictionaryImporter(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Imports the latest dictionary from GitHub and writes it into the target SQLite database.
      *
      * @param databasePath path to the SQLite file; parent directories will be created if required
-     * @return number of dictionary rows stored in the table
+     * @return number of entries and the applied difference
      * @throws IOException  when download or parsing fails
      * @throws SQLException when the database cannot be updated
      */
-    public int importLatest(Path databasePath) throws IOException, SQLException {
+    public ImportResult importLatest(Path databasePath) throws IOException, SQLException {
         Objects.requireNonNull(databasePath, "databasePath");
-        byte[] payload = downloadDictionary();
-        List<Entry> entries = parseDictionary(new ByteArrayInputStream(payload));
-        if (entries.isEmpty()) {
-            throw new IOException("Dictionary contained no lexical entries");
+        HttpURLConnection connection = openDictionary();
+        try (InputStream input = new BufferedInputStream(connection.getInputStream())) {
+            return importFrom(input, databasePath);
+        } finally {
+            connection.disconnect();
         }
-        return writeToDatabase(databasePath, entries);
     }
 
-    private byte[] downloadDictionary() throws IOException {
-        URL url = DICTIONARY_URI.toURL();
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        connection.setConnectTimeout(20_000);
-        connection.setReadTimeout(60_000);
-        connection.setRequestProperty("Accept", "application/xml");
-        int status = connection.getResponseCode();
-        if (status != HttpURLConnection.HTTP_OK) {
-            InputStream errorStream = connection.getErrorStream();
-            String message = status + " " + connection.getResponseMessage();
-            if (errorStream != null) {
-                try (InputStream stream = errorStream) {
-                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-                    copy(stream, buffer);
-                    message += ": " + new String(buffer.toByteArray(), StandardCharsets.UTF_8);
-                }
-            }
-            connection.disconnect();
-            throw new IOException("Dictionary download failed with HTTP status " + message);
-        }
-        try (InputStream input = connection.getInputStream();
-             ByteArrayOutputStream output = new ByteArrayOutputStream()) {
-            copy(input, output);
-            return output.toByteArray();
-        } finally {
-            connection.disconnect();
+    /**
+     * Imports a local copy of the dictionary.
+     *
+     * @param dictionaryFile Apertium {@code .dix} file
+     * @param databasePath   path to the SQLite file; parent directories will be created if required
+     * @return number of entries and the applied difference
+     * @throws IOException  when the file cannot be read or parsed
+     * @throws SQLException when the database cannot be updated
+     */
+    public ImportResult importFile(Path dictionaryFile, Path databasePath) throws IOException, SQLException {
+        Objects.requireNonNull(dictionaryFile, "dictionaryFile");
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(dictionaryFile))) {
+            return importFrom(input, databasePath);
         }
     }
 
-    private List<Entry> parseDictionary(InputStream stream) throws IOException {
-        try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(false);
-            factory.setIgnoringComments(false);
-            factory.setIgnoringElementContentWhitespace(true);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(new InputSource(stream));
-
-            Element root = document.getDocumentElement();
-            if (root == null) {
-                return Collections.emptyList();
+    /**
+     * Reads a {@code .dix} document from the stream and brings the dictionary table in line with it,
+     * touching only the rows that differ. The stream is not closed.
+     *
+     * @param input        Apertium {@code .dix} XML
+     * @param databasePath path to the SQLite file; parent directories will be created if required
+     * @return number of entries and the applied difference
+     * @throws IOException  when the XML cannot be parsed or contains no entries
+     * @throws SQLException when the database cannot be updated
+     */
+    public ImportResult importFrom(InputStream input, Path databasePath) throws IOException, SQLException {
+        Objects.requireNonNull(input, "input");
+        Objects.requireNonNull(databasePath, "databasePath");
+        Path parent = databasePath.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        String jdbcUrl = "jdbc:sqlite:" + databasePath.toAbsolutePath();
+        try (Connection connection = DriverManager.getConnection(jdbcUrl)) {
+            initialiseDatabase(connection);
+            connection.setAutoCommit(false);
+            try {
+                fillEntryKeys(connection);
+                try (Statement statement = connection.createStatement()) {
+                    statement.executeUpdate("DROP TABLE IF EXISTS temp.tat_rus_incoming");
+                    statement.executeUpdate("CREATE TEMP TABLE tat_rus_incoming ("
+                            + "seq INTEGER PRIMARY KEY, " + ROW_COLUMNS
+                            + ", tat_lemma_key, entry_identity, entry_hash)");
+                }
+                int count;
+                try (BatchInsert insert = new BatchInsert(connection)) {
+                    count = parseDictionary(input, insert);
+                    insert.flush();
+                }
+                if (count == 0) {
+                    throw new IOException("Dictionary contained no lexical entries");
+                }
+                ImportResult result = applyDifference(connection, count);
+                connection.commit();
+                return result;
+            } catch (IOException | SQLException | RuntimeException ex) {
+                connection.rollback();
+                throw ex;
             }
+        }
+    }
 
-            List<Entry> entries = new ArrayList<>();
-            NodeList sectionNodes = root.getElementsByTagName("section");
-            for (int i = 0; i < sectionNodes.getLength(); i++) {
-                Node node = sectionNodes.item(i);
-                if (node.getNodeType() != Node.ELEMENT_NODE) {
-                    continue;
-                }
-                Element section = (Element) node;
-                String sectionId = section.getAttribute("id");
-                Node child = section.getFirstChild();
-                while (child != null) {
-                    if (child.getNodeType() == Node.ELEMENT_NODE
-                            && "e".equals(((Element) child).getTagName())) {
-                        Entry entry = parseEntry((Element) child, sectionId);
-                        if (entry != null) {
-                            entries.add(entry);
+    /**
+     * Brings a database written by an older importer up to the current schema: adds the
+     * {@code tat_lemma_key} column and its index and fills the key for every row, without downloading
+     * the dictionary again.
+     *
+     * @param databasePath existing SQLite file with the {@code tat_rus_dictionary} table
+     * @return number of rows whose key was written
+     * @throws IOException  when the database file does not exist
+     * @throws SQLException when the database cannot be updated
+     */
+    public int upgrade(Path databasePath) throws IOException, SQLException {
+        Objects.requireNonNull(databasePath, "databasePath");
+        if (!Files.isRegularFile(databasePath)) {
+            throw new IOException("Dictionary database not found: " + databasePath.toAbsolutePath());
+        }
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databasePath.toAbsolutePath())) {
+            connection.setAutoCommit(false);
+            try {
+                ensureLemmaKey(connection);
+                int updated = 0;
+                try (Statement select = connection.createStatement();
+                     ResultSet rs = select.executeQuery("SELECT rowid, tat_lemma, tat_lemma_key FROM tat_rus_dictionary");
+                     PreparedStatement update = connection.prepareStatement(
+                             "UPDATE tat_rus_dictionary SET tat_lemma_key = ? WHERE rowid = ?")) {
+                    while (rs.next()) {
+                        String key = TatRusDictionarySchema.lemmaKey(rs.getString(2));
+                        if (!key.equals(rs.getString(3))) {
+                            update.setString(1, key);
+                            update.setLong(2, rs.getLong(1));
+                            update.addBatch();
+                            updated++;
                         }
                     }
-                    child = child.getNextSibling();
+                    update.executeBatch();
                 }
+                connection.commit();
+                return updated;
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
             }
-            return entries;
-        } catch (ParserConfigurationException | SAXException ex) {
-            throw new IOException("Failed to parse dictionary XML", ex);
         }
     }
 
-    private Entry parseEntry(Element element, String sectionId) {
-        Element lElement = findFirstDescendant(element, "l");
-        Element rElement = findFirstDescendant(element, "r");
-        if (lElement == null || rElement == null) {
-            return null;
-        }
+    /**
+     * Compares the staged entries with the table by {@code entry_key} and applies the difference under
+     * a new generation number.
+     */
+    private ImportResult applyDifference(Connection connection, int entries) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DROP TABLE IF EXISTS temp.tat_rus_keyed");
+            statement.executeUpdate("CREATE TEMP TABLE tat_rus_keyed AS SELECT i.*, "
+                    + "entry_identity || '#' || ROW_NUMBER() OVER (PARTITION BY entry_identity ORDER BY seq) "
+                    + "AS entry_key FROM tat_rus_incoming i");
+            statement.executeUpdate("CREATE UNIQUE INDEX temp.idx_tat_rus_keyed ON tat_rus_keyed(entry_key)");
+
+            int inserted = count(statement, "SELECT COUNT(*) FROM tat_rus_keyed k WHERE NOT EXISTS "
+                    + "(SELECT 1 FROM tat_rus_dictionary d WHERE d.entry_key = k.entry_key)");
+            int updated = count(statement, "SELECT COUNT(*) FROM tat_rus_keyed k JOIN tat_rus_dictionary d "
+                    + "ON d.entry_key = k.entry_key WHERE d.entry_hash <> k.entry_hash");
+            int deleted = count(statement, "SELECT COUNT(*) FROM tat_rus_dictionary d WHERE NOT EXISTS "
+                    + "(SELECT 1 FROM tat_rus_keyed k WHERE k.entry_key = d.entry_key)");
+            // positions are not part of an entry's content: they follow the document without a new generation
+            statement.executeUpdate("UPDATE tat_rus_dictionary SET seq = k.seq FROM tat_rus_keyed k"
+                    + " WHERE k.entry_key = tat_rus_dictionary.entry_key AND k.seq <> tat_rus_dictionary.seq");
+            if (inserted + updated + deleted == 0) {
+                return new ImportResult(currentGeneration(statement), entries, 0, 0, 0);
+            }
 
-        String tatLemma = normaliseText(extractText(lElement));
-        String rusLemma = normaliseText(extractText(rElement));
-        if (tatLemma.isEmpty() && rusLemma.isEmpty()) {
-            return null;
+            long generation;
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO tat_rus_import "
+                    + "(imported_at, entries, inserted, updated, deleted) VALUES (?,?,?,?,?)")) {
+                insert.setString(1, Instant.now().toString());
+                insert.setInt(2, entries);
+                insert.setInt(3, inserted);
+                insert.setInt(4, updated);
+                insert.setInt(5, deleted);
+                insert.executeUpdate();
+            }
+            generation = currentGeneration(statement);
+
+            statement.executeUpdate("DELETE FROM tat_rus_dictionary_removed WHERE entry_key IN "
+                    + "(SELECT entry_key FROM tat_rus_keyed k WHERE NOT EXISTS "
+                    + "(SELECT 1 FROM tat_rus_dictionary d WHERE d.entry_key = k.entry_key))");
+            statement.executeUpdate("INSERT INTO tat_rus_dictionary_removed (entry_key, tat_lemma_key, generation) "
+                    + "SELECT entry_key, tat_lemma_key, " + generation + " FROM tat_rus_dictionary d WHERE NOT EXISTS "
+                    + "(SELECT 1 FROM tat_rus_keyed k WHERE k.entry_key = d.entry_key)");
+            statement.executeUpdate("DELETE FROM tat_rus_dictionary WHERE NOT EXISTS "
+                    + "(SELECT 1 FROM tat_rus_keyed k WHERE k.entry_key = tat_rus_dictionary.entry_key)");
+            StringBuilder assignments = new StringBuilder();
+            for (String column : (ROW_COLUMNS + ", tat_lemma_key, entry_hash").split(", ")) {
+                assignments.append(column).append(" = k.").append(column).append(", ");
+            }
+            statement.executeUpdate("UPDATE tat_rus_dictionary SET " + assignments + "generation = " + generation
+                    + " FROM tat_rus_keyed k WHERE k.entry_key = tat_rus_dictionary.entry_key"
+                    + " AND k.entry_hash <> tat_rus_dictionary.entry_hash");
+            statement.executeUpdate("INSERT INTO tat_rus_dictionary (" + ROW_COLUMNS
+                    + ", tat_lemma_key, entry_key, entry_hash, generation, seq) SELECT " + ROW_COLUMNS
+                    + ", tat_lemma_key, entry_key, entry_hash, " + generation + ", seq FROM tat_rus_keyed k"
+                    + " WHERE NOT EXISTS (SELECT 1 FROM tat_rus_dictionary d WHERE d.entry_key = k.entry_key)"
+                    + " ORDER BY seq");
+            return new ImportResult(generation, entries, inserted, updated, deleted);
         }
+    }
 
-        String tatSurface = lElement.hasAttribute("c") ? lElement.getAttribute("c") : tatLemma;
-        tatSurface = normaliseText(tatSurface);
-        if (tatSurface.isEmpty()) {
-            tatSurface = tatLemma;
+    /**
+     * Computes {@code entry_key} and {@code entry_hash} for rows written before the columns existed,
+     * so that the first incremental import only touches rows that really changed.
+     */
+    private void fillEntryKeys(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DROP TABLE IF EXISTS temp.tat_rus_rekey");
+            statement.executeUpdate("CREATE TEMP TABLE tat_rus_rekey "
+                    + "(row_id INTEGER PRIMARY KEY, entry_identity, entry_hash)");
+            try (ResultSet rs = statement.executeQuery("SELECT rowid, " + ROW_COLUMNS
+                    + " FROM tat_rus_dictionary WHERE entry_key = '' ORDER BY rowid");
+                 PreparedStatement insert = connection.prepareStatement(
+                         "INSERT INTO tat_rus_rekey (row_id, entry_identity, entry_hash) VALUES (?,?,?)")) {
+                int pending = 0;
+                String[] row = new String[ROW_COLUMN_COUNT];
+                while (rs.next()) {
+                    for (int i = 0; i < row.length; i++) {
+                        row[i] = rs.getString(i + 2);
+                    }
+                    insert.setLong(1, rs.getLong(1));
+                    insert.setString(2, entryIdentity(row));
+                    insert.setString(3, entryHash(row));
+                    insert.addBatch();
+                    if (++pending >= batchSize) {
+                        insert.executeBatch();
+                        pending = 0;
+                    }
+                }
+                if (pending > 0) {
+                    insert.executeBatch();
+                }
+            }
+            statement.executeUpdate("UPDATE tat_rus_dictionary SET entry_key = r.entry_key, entry_hash = r.entry_hash "
+                    + "FROM (SELECT row_id, entry_hash, entry_identity || '#' || ROW_NUMBER() OVER "
+                    + "(PARTITION BY entry_identity ORDER BY row_id) AS entry_key FROM tat_rus_rekey) r "
+                    + "WHERE r.row_id = tat_rus_dictionary.rowid");
+            statement.executeUpdate("DROP TABLE temp.tat_rus_rekey");
         }
+    }
 
-        String direction = element.hasAttribute("r") ? element.getAttribute("r") : "LR";
-        if (direction == null || direction.trim().isEmpty()) {
-            direction = "LR";
+    private static int count(Statement statement, String sql) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
         }
+    }
 
-        List<String> tatTags = collectTags(lElement);
-        List<String> rusTags = collectTags(rElement);
-        List<String> paradigms = collectParadigms(element);
-        String comment = extractTrailingComment(element);
-
-        return new Entry(
-                tatLemma,
-                tatSurface,
-                tatTags,
-                rusLemma,
-                rusTags,
-                paradigms,
-                sectionId == null ? "" : sectionId,
-                direction,
-                comment
-        );
+    private static long currentGeneration(Statement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(generation), 0) FROM tat_rus_import")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
     }
 
-    private Element findFirstDescendant(Element parent, String tag) {
-        NodeList nodes = parent.getElementsByTagName(tag);
-        for (int i = 0; i < nodes.getLength(); i++) {
-            Node node = nodes.item(i);
-            if (node.getNodeType() == Node.ELEMENT_NODE) {
-                return (Element) node;
-            }
+    private static String entryIdentity(String[] row) {
+        String[] fields = new String[IDENTITY_COLUMNS.length];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = row[IDENTITY_COLUMNS[i]];
         }
-        return null;
+        return sha256(fields);
     }
 
-    private String extractText(Element element) {
-        StringBuilder builder = new StringBuilder();
-        appendText(element, builder);
-        return builder.toString();
+    private static String entryHash(String[] row) {
+        return sha256(row);
     }
 
-    private void appendText(Node node, StringBuilder builder) {
-        Node child = node.getFirstChild();
-        while (child != null) {
-            short type = child.getNodeType();
-            if (type == Node.TEXT_NODE) {
-                builder.append(child.getNodeValue());
-            } else if (type == Node.ELEMENT_NODE) {
-                Element element = (Element) child;
-                String tagName = element.getTagName();
-                if ("s".equals(tagName) || "par".equals(tagName)) {
-                    // skip morphology tags and paradigm markers from text output
-                } else if ("b".equals(tagName)) {
-                    builder.append(' ');
-                } else {
-                    appendText(element, builder);
-                }
+    private static String sha256(String[] fields) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+        for (String field : fields) {
+            // fields are separated by a NUL byte, which never occurs in dictionary text; 0x01 stands for NULL
+            if (field == null) {
+                digest.update((byte) 1);
+            } else {
+                digest.update(field.getBytes(StandardCharsets.UTF_8));
             }
-            child = child.getNextSibling();
+            digest.update((byte) 0);
         }
+        return HexFormat.of().formatHex(digest.digest());
     }
 
-    private List<String> collectTags(Element element) {
-        NodeList nodes = element.getElementsByTagName("s");
-        List<String> tags = new ArrayList<>(nodes.getLength());
-        for (int i = 0; i < nodes.getLength(); i++) {
-            Node node = nodes.item(i);
-            if (node.getNodeType() != Node.ELEMENT_NODE) {
-                continue;
-            }
-            Element tagElement = (Element) node;
-            if (tagElement.hasAttribute("n")) {
-                String value = tagElement.getAttribute("n");
-                if (!value.isEmpty()) {
-                    tags.add(value);
+    private HttpURLConnection openDictionary() throws IOException {
+        URL url = DICTIONARY_URI.toURL();
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("GET");
+        connection.setConnectTimeout(20_000);
+        connection.setReadTimeout(60_000);
+        connection.setRequestProperty("Accept", "application/xml");
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            InputStream errorStream = connection.getErrorStream();
+            String message = status + " " + connection.getResponseMessage();
+            if (errorStream != null) {
+                try (InputStream stream = errorStream) {
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    copy(stream, buffer);
+                    message += ": " + new String(buffer.toByteArray(), StandardCharsets.UTF_8);
                 }
             }
+            connection.disconnect();
+            throw new IOException("Dictionary download failed with HTTP status " + message);
         }
-        return immutableList(tags);
+        return connection;
     }
 
-    private List<String> collectParadigms(Element element) {
-        NodeList nodes = element.getElementsByTagName("par");
-        Set<String> result = new LinkedHashSet<>();
-        for (int i = 0; i < nodes.getLength(); i++) {
-            Node node = nodes.item(i);
-            if (node.getNodeType() != Node.ELEMENT_NODE) {
-                continue;
-            }
-            Element parElement = (Element) node;
-            if (parElement.hasAttribute("n")) {
-                String value = parElement.getAttribute("n");
-                if (!value.isEmpty()) {
-                    result.add(value);
+    /**
+     * Streams the {@code <e>} elements that are direct children of a {@code <section>} into the sink.
+     * Each entry takes its text and tags from the first {@code <l>} and {@code <r>} element, its
+     * paradigms from every {@code <par>} inside it and its comment from a comment that follows it,
+     * separated by whitespace only.
+     *
+     * @return number of entries passed to the sink
+     */
+    private int parseDictionary(InputStream stream, BatchInsert sink) throws IOException, SQLException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(stream);
+            int count = 0;
+            int depth = 0;
+            int sectionDepth = -1;
+            String sectionId = "";
+            EntryBuilder current = null;
+            Entry pending = null;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (pending != null) {
+                    if (event == XMLStreamConstants.COMMENT) {
+                        String comment = normaliseWhitespace(reader.getText());
+                        sink.add(pending.withComment(comment));
+                        count++;
+                        pending = null;
+                        continue;
+                    }
+                    if ((event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE)
+                            && reader.isWhiteSpace()) {
+                        continue;
+                    }
+                    sink.add(pending);
+                    count++;
+                    pending = null;
+                }
+                switch (event) {
+                    case XMLStreamConstants.START_ELEMENT -> {
+                        depth++;
+                        String name = reader.getLocalName();
+                        if (current != null) {
+                            current.start(name, reader, depth);
+                        } else if ("section".equals(name)) {
+                            sectionDepth = depth;
+                            String id = reader.getAttributeValue(null, "id");
+                            sectionId = id == null ? "" : id;
+                        } else if ("e".equals(name) && depth == sectionDepth + 1) {
+                            current = new EntryBuilder(reader.getAttributeValue(null, "r"), sectionId, depth);
+                        }
+                    }
+                    case XMLStreamConstants.END_ELEMENT -> {
+                        if (current != null) {
+                            if (depth == current.depth) {
+                                pending = current.build();
+                                current = null;
+                            } else {
+                                current.end(depth);
+                            }
+                        } else if (depth == sectionDepth) {
+                            sectionDepth = -1;
+                            sectionId = "";
+                        }
+                        depth--;
+                    }
+                    case XMLStreamConstants.CHARACTERS, XMLStreamConstants.SPACE -> {
+                        if (current != null) {
+                            current.text(reader.getText());
+                        }
+                    }
+                    default -> {
+                    }
                 }
             }
-        }
-        return immutableList(new ArrayList<>(result));
-    }
-
-    private String extractTrailingComment(Element element) {
-        Node sibling = element.getNextSibling();
-        while (sibling != null) {
-            if (sibling.getNodeType() == Node.COMMENT_NODE) {
-                Comment comment = (Comment) sibling;
-                return normaliseWhitespace(comment.getData());
+            if (pending != null) {
+                sink.add(pending);
+                count++;
             }
-            if (sibling.getNodeType() == Node.TEXT_NODE) {
-                String text = sibling.getTextContent();
-                if (text != null && text.trim().isEmpty()) {
-                    sibling = sibling.getNextSibling();
-                    continue;
+            return count;
+        } catch (XMLStreamException ex) {
+            throw new IOException("Failed to parse dictionary XML", ex);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // nothing left to release
                 }
             }
-            break;
         }
-        return null;
     }
 
     private String normaliseText(String value) {
@@ -297,49 +511,6 @@ public final class TatRusDictionaryImporter {
         return trimmed.replaceAll("\\s+", " ");
     }
 
-    private int writeToDatabase(Path databasePath, List<Entry> entries) throws IOException, SQLException {
-        Path parent = databasePath.toAbsolutePath().getParent();
-        if (parent != null) {
-            Files.createDirectories(parent);
-        }
-        String jdbcUrl = "jdbc:sqlite:" + databasePath.toAbsolutePath();
-        try (Connection connection = DriverManager.getConnection(jdbcUrl)) {
-            initialiseDatabase(connection);
-            connection.setAutoCommit(false);
-            try {
-                try (Statement statement = connection.createStatement()) {
-                    statement.executeUpdate("DELETE FROM tat_rus_dictionary");
-                }
-                String sql = "INSERT INTO tat_rus_dictionary (tat_lemma, tat_surface, tat_tags, "
-                        + "rus_lemma, rus_tags, paradigm, section, direction, comment) VALUES (?,?,?,?,?,?,?,?,?)";
-                try (PreparedStatement statement = connection.prepareStatement(sql)) {
-                    for (Entry entry : entries) {
-                        statement.setString(1, entry.tatLemma());
-                        statement.setString(2, entry.tatSurface());
-                        statement.setString(3, toJson(entry.tatTags()));
-                        statement.setString(4, entry.rusLemma());
-                        statement.setString(5, toJson(entry.rusTags()));
-                        statement.setString(6, toJson(entry.paradigms()));
-                        statement.setString(7, entry.section());
-                        statement.setString(8, entry.direction());
-                        if (entry.comment() == null || entry.comment().isEmpty()) {
-                            statement.setNull(9, java.sql.Types.VARCHAR);
-                        } else {
-                            statement.setString(9, entry.comment());
-                        }
-                        statement.addBatch();
-                    }
-                    statement.executeBatch();
-                }
-                connection.commit();
-            } catch (SQLException ex) {
-                connection.rollback();
-                throw ex;
-            }
-            return entries.size();
-        }
-    }
-
     private void initialiseDatabase(Connection connection) throws SQLException {
         try (Statement statement = connection.createStatement()) {
             statement.executeUpdate("CREATE TABLE IF NOT EXISTS tat_rus_dictionary ("
@@ -352,11 +523,66 @@ public final class TatRusDictionaryImporter {
                     + "paradigm TEXT NOT NULL,"
                     + "section TEXT NOT NULL,"
                     + "direction TEXT NOT NULL,"
-                    + "comment TEXT"
+                    + "comment TEXT,"
+                    + "tat_lemma_key TEXT NOT NULL DEFAULT '',"
+                    + "entry_key TEXT NOT NULL DEFAULT '',"
+                    + "entry_hash TEXT NOT NULL DEFAULT '',"
+                    + "generation INTEGER NOT NULL DEFAULT 0,"
+                    + "seq INTEGER NOT NULL DEFAULT 0"
                     + ")");
             statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tat_rus_lemma ON tat_rus_dictionary(tat_lemma)");
             statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tat_rus_section ON tat_rus_dictionary(section)");
         }
+        ensureLemmaKey(connection);
+        ensureImportColumns(connection);
+    }
+
+    private void ensureImportColumns(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (!TatRusDictionarySchema.hasColumn(connection, "entry_key")) {
+                statement.executeUpdate("ALTER TABLE tat_rus_dictionary ADD COLUMN entry_key TEXT NOT NULL DEFAULT ''");
+            }
+            if (!TatRusDictionarySchema.hasColumn(connection, "entry_hash")) {
+                statement.executeUpdate("ALTER TABLE tat_rus_dictionary ADD COLUMN entry_hash TEXT NOT NULL DEFAULT ''");
+            }
+            if (!TatRusDictionarySchema.hasColumn(connection, "generation")) {
+                statement.executeUpdate("ALTER TABLE tat_rus_dictionary ADD COLUMN generation INTEGER NOT NULL DEFAULT 0");
+            }
+            if (!TatRusDictionarySchema.hasColumn(connection, TatRusDictionarySchema.SEQ_COLUMN)) {
+                // rows of older databases keep their table order until the next import positions them
+                statement.executeUpdate("ALTER TABLE tat_rus_dictionary ADD COLUMN seq INTEGER NOT NULL DEFAULT 0");
+                statement.executeUpdate("UPDATE tat_rus_dictionary SET seq = rowid");
+            }
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tat_rus_seq ON tat_rus_dictionary(seq)");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tat_rus_entry_key ON tat_rus_dictionary(entry_key)");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tat_rus_generation ON tat_rus_dictionary(generation)");
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS tat_rus_import ("
+                    + "generation INTEGER PRIMARY KEY AUTOINCREMENT,"
+                    + "imported_at TEXT NOT NULL,"
+                    + "entries INTEGER NOT NULL,"
+                    + "inserted INTEGER NOT NULL,"
+                    + "updated INTEGER NOT NULL,"
+                    + "deleted INTEGER NOT NULL"
+                    + ")");
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS tat_rus_dictionary_removed ("
+                    + "entry_key TEXT NOT NULL,"
+                    + "tat_lemma_key TEXT NOT NULL,"
+                    + "generation INTEGER NOT NULL"
+                    + ")");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tat_rus_removed_key "
+                    + "ON tat_rus_dictionary_removed(entry_key)");
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tat_rus_removed_generation "
+                    + "ON tat_rus_dictionary_removed(generation)");
+        }
+    }
+
+    private void ensureLemmaKey(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (!TatRusDictionarySchema.hasLemmaKey(connection)) {
+                statement.executeUpdate("ALTER TABLE tat_rus_dictionary ADD COLUMN tat_lemma_key TEXT NOT NULL DEFAULT ''");
+            }
+            statement.executeUpdate("CREATE INDEX IF NOT EXISTS idx_tat_rus_lemma_key ON tat_rus_dictionary(tat_lemma_key)");
+        }
     }
 
     private void copy(InputStream input, ByteArrayOutputStream output) throws IOException {
@@ -381,6 +607,190 @@ public final class TatRusDictionaryImporter {
         return Collections.unmodifiableList(new ArrayList<>(values));
     }
 
+    /**
+     * Insert into the staging table that sends its rows to SQLite every {@link #batchSize} entries.
+     */
+    private final class BatchInsert implements AutoCloseable {
+        private final PreparedStatement statement;
+        private int pending;
+
+        BatchInsert(Connection connection) throws SQLException {
+            this.statement = connection.prepareStatement(
+                    "INSERT INTO temp.tat_rus_incoming (" + ROW_COLUMNS
+                            + ", tat_lemma_key, entry_identity, entry_hash) VALUES (?,?,?,?,?,?,?,?,?,?,?,?)");
+        }
+
+        void add(Entry entry) throws SQLException {
+            String[] row = {
+                    entry.tatLemma(),
+                    entry.tatSurface(),
+                    toJson(entry.tatTags()),
+                    entry.rusLemma(),
+                    toJson(entry.rusTags()),
+                    toJson(entry.paradigms()),
+                    entry.section(),
+                    entry.direction(),
+                    entry.comment() == null || entry.comment().isEmpty() ? null : entry.comment()
+            };
+            for (int i = 0; i < row.length; i++) {
+                if (row[i] == null) {
+                    statement.setNull(i + 1, java.sql.Types.VARCHAR);
+                } else {
+                    statement.setString(i + 1, row[i]);
+                }
+            }
+            statement.setString(10, TatRusDictionarySchema.lemmaKey(entry.tatLemma()));
+            statement.setString(11, entryIdentity(row));
+            statement.setString(12, entryHash(row));
+            statement.addBatch();
+            if (++pending >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() throws SQLException {
+            if (pending > 0) {
+                statement.executeBatch();
+                pending = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            statement.close();
+        }
+    }
+
+    /**
+     * Collects one {@code <e>} element while it is being read.
+     */
+    private final class EntryBuilder {
+        private final String direction;
+        private final String section;
+        private final int depth;
+        private final Set<String> paradigms = new LinkedHashSet<>();
+        private Side left;
+        private Side right;
+        private Side active;
+
+        EntryBuilder(String direction, String section, int depth) {
+            this.direction = direction;
+            this.section = section;
+            this.depth = depth;
+        }
+
+        void start(String name, XMLStreamReader reader, int elementDepth) {
+            if ("par".equals(name)) {
+                addAttribute(reader, paradigms);
+            }
+            if (active != null) {
+                active.start(name, reader);
+            } else if ("l".equals(name) && left == null) {
+                left = new Side(reader.getAttributeValue(null, "c"), elementDepth);
+                active = left;
+            } else if ("r".equals(name) && right == null) {
+                right = new Side(null, elementDepth);
+                active = right;
+            }
+        }
+
+        void end(int elementDepth) {
+            if (active == null) {
+                return;
+            }
+            if (elementDepth == active.depth) {
+                active = null;
+            } else {
+                active.end();
+            }
+        }
+
+        void text(String value) {
+            if (active != null) {
+                active.text(value);
+            }
+        }
+
+        Entry build() {
+            if (left == null || right == null) {
+                return null;
+            }
+            String tatLemma = normaliseText(left.text.toString());
+            String rusLemma = normaliseText(right.text.toString());
+            if (tatLemma.isEmpty() && rusLemma.isEmpty()) {
+                return null;
+            }
+
+            String tatSurface = normaliseText(left.surface != null ? left.surface : tatLemma);
+            if (tatSurface.isEmpty()) {
+                tatSurface = tatLemma;
+            }
+            String resolvedDirection = direction == null || direction.trim().isEmpty() ? "LR" : direction;
+
+            return new Entry(
+                    tatLemma,
+                    tatSurface,
+                    immutableList(left.tags),
+                    rusLemma,
+                    immutableList(right.tags),
+                    immutableList(new ArrayList<>(paradigms)),
+                    section,
+                    resolvedDirection,
+                    null
+            );
+        }
+    }
+
+    /**
+     * Text and tags of an {@code <l>} or {@code <r>} element. Text inside {@code <s>} and
+     * {@code <par>} is skipped and {@code <b/>} stands for a space.
+     */
+    private static final class Side {
+        private final String surface;
+        private final int depth;
+        private final StringBuilder text = new StringBuilder();
+        private final List<String> tags = new ArrayList<>();
+        private int skipped;
+
+        Side(String surface, int depth) {
+            this.surface = surface;
+            this.depth = depth;
+        }
+
+        void start(String name, XMLStreamReader reader) {
+            if ("s".equals(name)) {
+                addAttribute(reader, tags);
+            }
+            if (skipped > 0) {
+                skipped++;
+            } else if ("s".equals(name) || "par".equals(name)) {
+                skipped = 1;
+            } else if ("b".equals(name)) {
+                text.append(' ');
+                skipped = 1;
+            }
+        }
+
+        void end() {
+            if (skipped > 0) {
+                skipped--;
+            }
+        }
+
+        void text(String value) {
+            if (skipped == 0) {
+                text.append(value);
+            }
+        }
+    }
+
+    private static void addAttribute(XMLStreamReader reader, Collection<String> target) {
+        String value = reader.getAttributeValue(null, "n");
+        if (value != null && !value.isEmpty()) {
+            target.add(value);
+        }
+    }
+
     private static final class Entry {
         private final String tatLemma;
         private final String tatSurface;
@@ -447,5 +857,9 @@ public final class TatRusDictionaryImporter {
         String comment() {
             return comment;
         }
+
+        Entry withComment(String value) {
+            return new Entry(tatLemma, tatSurface, tatTags, rusLemma, rusTags, paradigms, section, direction, value);
+        }
     }
 }
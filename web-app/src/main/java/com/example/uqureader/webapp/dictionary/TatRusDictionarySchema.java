@@ -0,0 +1,70 @@
+package com.example.uqureader.webapp.dictionary;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Shared knowledge about the {@code tat_rus_dictionary} table used by the importer and by
+ * {@link TranslationDictionary}.
+ *
+ * <p>Lemmas are matched by {@link #lemmaKey(String)}: the NFC-normalised, lower-cased lemma.
+ * {@code NOCASE} only folds ASCII letters, so the key is computed in Java. The translation augmenters
+ * group the in-memory {@link TranslationDictionary} by this key and never query the table per lemma.
+ * The importer also stores the key in the indexed {@code tat_lemma_key} column. That index now serves
+ * only external SQL readers of the database. Databases created before the column existed get it from
+ * a re-import or from {@link TatRusDictionaryImporter#upgrade(java.nio.file.Path)}.</p>
+ */
+public final class TatRusDictionarySchema {
+
+    public static final String TABLE = "tat_rus_dictionary";
+    public static final String LEMMA_KEY_COLUMN = "tat_lemma_key";
+    /** Position of the entry in the imported {@code .dix} document; defines the order of translations. */
+    public static final String SEQ_COLUMN = "seq";
+
+    private TatRusDictionarySchema() {
+    }
+
+    /**
+     * @return the value stored in {@code tat_lemma_key} for the given lemma
+     */
+    public static String lemmaKey(String lemma) {
+        if (lemma == null) {
+            return "";
+        }
+        return Normalizer.normalize(lemma, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return {@code true} when the dictionary table has the {@code tat_lemma_key} column
+     */
+    public static boolean hasLemmaKey(Connection connection) throws SQLException {
+        return hasColumn(connection, LEMMA_KEY_COLUMN);
+    }
+
+    /**
+     * @return {@code true} when the dictionary table has a column with the given name
+     */
+    public static boolean hasColumn(Connection connection, String column) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA table_info(" + TABLE + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the {@code ORDER BY} expression that lists entries in dictionary order: by {@code seq}
+     * when the table has it, otherwise by {@code rowid}.
+     */
+    public static String orderBy(Connection connection) throws SQLException {
+        return hasColumn(connection, SEQ_COLUMN) ? SEQ_COLUMN + ", rowid" : "rowid";
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.uqureader.webapp.dictionary;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Immutable in-memory copy of the {@code tat_rus_dictionary} table, loaded with a single query.
+ * Entries are grouped by {@link TatRusDictionarySchema#lemmaKey(String)} and keep the dictionary order;
+ * tag lists are parsed once into lower-cased sets, and equal strings and tag sets are shared between
+ * entries. Instances are safe to share between threads.
+ */
+public final class TranslationDictionary {
+
+    /**
+     * One dictionary row: the Russian lemma and the lower-cased Tatar tags of the entry.
+     */
+    public record Entry(String translation, Set<String> tags) {
+    }
+
+    private final Map<String, List<Entry>> entries;
+    private final int size;
+
+    private TranslationDictionary(Map<String, List<Entry>> entries, int size) {
+        this.entries = entries;
+        this.size = size;
+    }
+
+    /**
+     * Loads the whole dictionary from a SQLite database.
+     *
+     * @param databaseFile SQLite file with the {@code tat_rus_dictionary} table
+     * @throws SQLException when the database cannot be read
+     */
+    public static TranslationDictionary load(Path databaseFile) throws SQLException {
+        Objects.requireNonNull(databaseFile, "databaseFile");
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + databaseFile.toAbsolutePath())) {
+            return load(connection);
+        }
+    }
+
+    /**
+     * Loads the whole dictionary through an open connection. Databases without a {@code tat_tags}
+     * column are accepted; their entries have no tags.
+     */
+    public static TranslationDictionary load(Connection connection) throws SQLException {
+        boolean hasTags = TatRusDictionarySchema.hasColumn(connection, "tat_tags");
+        String sql = "SELECT tat_lemma, rus_lemma" + (hasTags ? ", tat_tags" : "")
+                + " FROM " + TatRusDictionarySchema.TABLE + " ORDER BY " + TatRusDictionarySchema.orderBy(connection);
+        Map<String, String> strings = new HashMap<>();
+        Map<String, Set<String>> tagSets = new HashMap<>();
+        Map<String, List<Entry>> grouped = new HashMap<>();
+        int size = 0;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            while (rs.next()) {
+                String lemma = rs.getString(1);
+                String translation = rs.getString(2);
+                if (lemma == null || translation == null) {
+                    continue;
+                }
+                String tagsJson = hasTags ? rs.getString(3) : null;
+                Set<String> tags = tagSets.computeIfAbsent(tagsJson == null ? "" : tagsJson,
+                        json -> parseTags(json, strings));
+                String key = intern(TatRusDictionarySchema.lemmaKey(lemma), strings);
+                grouped.computeIfAbsent(key, k -> new ArrayList<>())
+                        .add(new Entry(intern(translation, strings), tags));
+                size++;
+            }
+        }
+        Map<String, List<Entry>> frozen = new HashMap<>(grouped.size() * 4 / 3 + 1);
+        for (Map.Entry<String, List<Entry>> group : grouped.entrySet()) {
+            frozen.put(group.getKey(), List.copyOf(group.getValue()));
+        }
+        return new TranslationDictionary(Collections.unmodifiableMap(frozen), size);
+    }
+
+    /**
+     * @return entries for the lemma in dictionary order, or an empty list
+     */
+    public List<Entry> lookup(String lemma) {
+        if (lemma == null || lemma.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return entries.getOrDefault(TatRusDictionarySchema.lemmaKey(lemma), Collections.emptyList());
+    }
+
+    /**
+     * Looks up several lemmas at once.
+     *
+     * @return map from every distinct given lemma, in iteration order, to its entries (possibly empty)
+     */
+    public Map<String, List<Entry>> lookupAll(Collection<String> lemmas) {
+        Map<String, List<Entry>> result = new LinkedHashMap<>();
+        for (String lemma : lemmas) {
+            if (lemma != null && !result.containsKey(lemma)) {
+                result.put(lemma, lookup(lemma));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return number of dictionary rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of distinct lemma keys
+     */
+    public int lemmaCount() {
+        return entries.size();
+    }
+
+    private static Set<String> parseTags(String json, Map<String, String> strings) {
+        if (json.isBlank()) {
+            return Collections.emptySet();
+        }
+        JsonElement element;
+        try {
+            element = JsonParser.parseString(json);
+        } catch (RuntimeException ex) {
+            return Collections.emptySet();
+        }
+        if (!element.isJsonArray()) {
+            return Collections.emptySet();
+        }
+        JsonArray array = element.getAsJsonArray();
+        Set<String> tags = new LinkedHashSet<>();
+        for (JsonElement value : array) {
+            if (!value.isJsonPrimitive()) {
+                continue;
+            }
+            String lower = value.getAsString().trim().toLowerCase(Locale.ROOT);
+            if (!lower.isEmpty()) {
+                tags.add(intern(lower, strings));
+            }
+        }
+        return tags.isEmpty() ? Collections.emptySet() : Collections.unmodifiableSet(tags);
+    }
+
+    private static String intern(String value, Map<String, String> strings) {
+        String existing = strings.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+}
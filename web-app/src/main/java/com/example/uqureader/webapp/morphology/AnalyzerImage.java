@@ -0,0 +1,140 @@
+package com.example.uqureader.webapp.morphology;
+
+import com.example.uqureader.webapp.MorphologyException;
+import com.example.uqureader.webapp.morphology.hfst.HfstTransducer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * Single-file snapshot of the state {@link MorphologyAnalyzer#loadDefault()} builds: the transducer
+ * and the compiled {@link FallbackDictionary}. The image is memory-mapped and both parts are used in
+ * place, so loading it costs one mapping and one checksum pass instead of resolving resources and
+ * parsing markup files.
+ *
+ * <p>Layout, big-endian: magic {@code UQAI}, format version, CRC-32C of everything after the
+ * header, then offset and length of the transducer section and of the fallback section. Sections
+ * start at multiples of eight bytes. An empty transducer section stands for an analyser without a
+ * transducer.</p>
+ */
+final class AnalyzerImage {
+
+    static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x55514149; // "UQAI"
+    private static final int HEADER_SIZE = 48;
+
+    private final HfstTransducer transducer;
+    private final FallbackDictionary fallback;
+
+    private AnalyzerImage(HfstTransducer transducer, FallbackDictionary fallback) {
+        this.transducer = transducer;
+        this.fallback = fallback;
+    }
+
+    HfstTransducer transducer() {
+        return transducer;
+    }
+
+    FallbackDictionary fallback() {
+        return fallback;
+    }
+
+    /**
+     * Writes an image.
+     *
+     * @param transducer {@code .hfstol} data, or an empty array
+     * @return size of the image in bytes
+     */
+    static long write(Path output, byte[] transducer, FallbackDictionary fallback) throws IOException {
+        Objects.requireNonNull(output, "output");
+        ByteBuffer fallbackBytes = fallback.bytes();
+        int fallbackLength = fallbackBytes.remaining();
+        long transducerOffset = HEADER_SIZE;
+        long fallbackOffset = align(transducerOffset + transducer.length);
+        long size = fallbackOffset + fallbackLength;
+
+        ByteBuffer payload = ByteBuffer.allocate((int) (size - HEADER_SIZE));
+        payload.put(transducer)
+                .position((int) (fallbackOffset - HEADER_SIZE))
+                .put(fallbackBytes)
+                .flip();
+        CRC32C checksum = new CRC32C();
+        checksum.update(payload.duplicate());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(checksum.getValue())
+                .putLong(transducerOffset)
+                .putLong(transducer.length)
+                .putLong(fallbackOffset)
+                .putLong(fallbackLength)
+                .flip();
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (payload.hasRemaining()) {
+                channel.write(payload);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Maps an image and checks its format version and checksum.
+     *
+     * @throws MorphologyException when the file cannot be read or is not a valid image
+     */
+    static AnalyzerImage map(Path path) {
+        Objects.requireNonNull(path, "path");
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException ex) {
+            throw new MorphologyException("Failed to map analyser image " + path.toAbsolutePath(), ex);
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new MorphologyException("Not an analyser image: " + path.toAbsolutePath());
+        }
+        int version = buffer.getInt(4);
+        if (version != FORMAT_VERSION) {
+            throw new MorphologyException("Analyser image " + path.toAbsolutePath() + " has format version "
+                    + version + ", expected " + FORMAT_VERSION + "; compile it again");
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(HEADER_SIZE, buffer.capacity() - HEADER_SIZE));
+        if (checksum.getValue() != buffer.getLong(8)) {
+            throw new MorphologyException("Analyser image " + path.toAbsolutePath() + " is damaged: checksum mismatch");
+        }
+        ByteBuffer transducerSection = section(buffer, 16, path);
+        ByteBuffer fallbackSection = section(buffer, 32, path);
+        HfstTransducer transducer = transducerSection.hasRemaining() ? HfstTransducer.wrap(transducerSection) : null;
+        return new AnalyzerImage(transducer, FallbackDictionary.wrap(fallbackSection));
+    }
+
+    private static ByteBuffer section(ByteBuffer buffer, int entry, Path path) {
+        long offset = buffer.getLong(entry);
+        long length = buffer.getLong(entry + 8);
+        if (offset < HEADER_SIZE || length < 0 || offset + length > buffer.capacity()) {
+            throw new MorphologyException("Analyser image " + path.toAbsolutePath() + " has an invalid section table");
+        }
+        return buffer.slice((int) offset, (int) length);
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+}
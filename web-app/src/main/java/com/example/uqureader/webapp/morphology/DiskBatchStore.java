@@ -0,0 +1,126 @@
+package com.example.uqureader.webapp.morphology;
+
+import com.example.uqureader.webapp.morphology.RemoteMorphologyClient.WordMarkup;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Content-addressed on-disk store of remote morphology answers. Every fragment is kept in
+ * {@code <dir>/<first two hex digits>/<sha-256 of the fragment>.json} together with its text, so a
+ * fragment is sent to the service only once no matter which file or run it comes from. Entries are
+ * written to a temporary file and moved into place, so an interrupted run never leaves a partial
+ * entry behind; unreadable entries are treated as missing.
+ */
+public final class DiskBatchStore implements RemoteMorphologyClient.BatchStore {
+
+    private static final String SUFFIX = ".json";
+
+    private final Path directory;
+
+    public DiskBatchStore(Path directory) {
+        this.directory = Objects.requireNonNull(directory, "directory");
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    @Override
+    public List<WordMarkup> load(String fragment) {
+        Path entry = entryPath(fragment);
+        String content;
+        try {
+            content = Files.readString(entry, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read cached answer " + entry, ex);
+        }
+        try {
+            JsonObject root = JsonParser.parseString(content).getAsJsonObject();
+            if (!fragment.equals(root.get("fragment").getAsString())) {
+                return null;
+            }
+            List<WordMarkup> tokens = new ArrayList<>();
+            for (JsonElement element : root.getAsJsonArray("tokens")) {
+                JsonObject token = element.getAsJsonObject();
+                List<String> analyses = new ArrayList<>();
+                for (JsonElement analysis : token.getAsJsonArray("analyses")) {
+                    analyses.add(analysis.getAsString());
+                }
+                tokens.add(new WordMarkup(token.get("word").getAsString(), analyses));
+            }
+            return tokens;
+        } catch (RuntimeException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public void store(String fragment, List<WordMarkup> markup) {
+        JsonArray tokens = new JsonArray();
+        for (WordMarkup token : markup) {
+            JsonObject object = new JsonObject();
+            object.addProperty("word", token.word());
+            JsonArray analyses = new JsonArray();
+            token.analyses().forEach(analyses::add);
+            object.add("analyses", analyses);
+            tokens.add(object);
+        }
+        JsonObject root = new JsonObject();
+        root.addProperty("fragment", fragment);
+        root.add("tokens", tokens);
+
+        Path entry = entryPath(fragment);
+        try {
+            Files.createDirectories(entry.getParent());
+            Path temp = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+            try {
+                Files.writeString(temp, root.toString(), StandardCharsets.UTF_8);
+                try {
+                    Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to write cached answer " + entry, ex);
+        }
+    }
+
+    /**
+     * @return hex-encoded SHA-256 of the fragment text, the key of its entry
+     */
+    public static String key(String fragment) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(fragment.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    private Path entryPath(String fragment) {
+        String key = key(fragment);
+        return directory.resolve(key.substring(0, 2)).resolve(key + SUFFIX);
+    }
+}
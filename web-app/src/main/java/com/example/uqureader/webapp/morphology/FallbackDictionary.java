@@ -0,0 +1,616 @@
+package com.example.uqureader.webapp.morphology;
+
+import com.example.uqureader.webapp.MorphologyException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * Read-only dictionary of word analyses collected from the reference markup files in
+ * {@code /markup}. {@link MorphologyAnalyzer} adds these analyses to the transducer results.
+ *
+ * <p>The dictionary is one byte buffer. The keys are sorted in UTF-8 byte order and front-coded in
+ * blocks of {@value #BLOCK_SIZE}. The first key of a block is stored whole. Each later key is stored as
+ * the length of the prefix it shares with the previous key, followed by the remaining bytes. Every
+ * distinct analysis is stored once, and keys refer to it by index. A lookup is a binary search over
+ * the first keys of the blocks followed by a scan of one block.</p>
+ *
+ * <p>The build runs {@code Main --compile-fallback --packaged} at {@code process-classes} to compile
+ * the markup files a JAR reads into {@value #COMPILED_RESOURCE}. The file records the name, size and
+ * CRC-32C of every file it was built from. {@link #loadDefault()} uses it only when those files are
+ * unchanged and otherwise parses the markup files as before.</p>
+ */
+public final class FallbackDictionary {
+
+    public static final String COMPILED_RESOURCE = "fallback_analyses.bin";
+
+    private static final int MAGIC = 0x55514644; // "UQFD"
+    private static final int VERSION = 2;
+    private static final int BLOCK_SIZE = 16;
+
+    private static final String[] PACKAGED_MARKUP = {
+            "berenche_teatr.txt.morph.tsv",
+            "harri_potter_ham_lagnetle_bala.txt.morph.tsv",
+            "qubiz_qabiz.txt.morph.tsv",
+            "berenche_teatr_markup.txt",
+            "harri_potter_ham_lagnetle_bala_markup.txt"
+    };
+
+    static final FallbackDictionary EMPTY = build(Map.of(), List.of());
+
+    /**
+     * Name, size and CRC-32C of a markup file the dictionary was built from.
+     */
+    public record Source(String name, long size, long checksum) {
+    }
+
+    private final ByteBuffer data;
+    private final List<Source> sources;
+    private final int size;
+    private final int maxKeyLength;
+    private final int blockCount;
+    private final int blockOffsetsStart;
+    private final int valueCount;
+    private final int valueOffsetsStart;
+    private final int keysStart;
+    private final int valuesStart;
+
+    private FallbackDictionary(ByteBuffer data) {
+        this.data = data;
+        if (data.remaining() < 8 || data.getInt(0) != MAGIC) {
+            throw new MorphologyException("Not a compiled fallback dictionary");
+        }
+        if (data.getInt(4) != VERSION) {
+            throw new MorphologyException("Unsupported fallback dictionary version " + data.getInt(4));
+        }
+        try {
+            ByteBuffer header = data.duplicate().position(8);
+            int sourceCount = header.getInt();
+            List<Source> sourceList = new ArrayList<>(sourceCount);
+            for (int i = 0; i < sourceCount; i++) {
+                byte[] name = new byte[header.getShort() & 0xFFFF];
+                header.get(name);
+                sourceList.add(new Source(new String(name, StandardCharsets.UTF_8), header.getLong(), header.getLong()));
+            }
+            this.sources = List.copyOf(sourceList);
+            this.size = header.getInt();
+            this.maxKeyLength = header.getInt();
+            this.blockCount = header.getInt();
+            this.valueCount = header.getInt();
+            int keysLength = header.getInt();
+            this.blockOffsetsStart = header.position();
+            this.valueOffsetsStart = blockOffsetsStart + 4 * blockCount;
+            this.keysStart = valueOffsetsStart + 4 * (valueCount + 1);
+            this.valuesStart = keysStart + keysLength;
+            if (valuesStart > data.limit()
+                    || valuesStart + data.getInt(valueOffsetsStart + 4 * valueCount) > data.limit()) {
+                throw new MorphologyException("Truncated fallback dictionary");
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+            throw new MorphologyException("Truncated fallback dictionary", ex);
+        }
+    }
+
+    /**
+     * Loads the dictionary bundled with the application. From a resource directory all markup files
+     * are used; from a JAR only the packaged markup resources, as before the dictionary was compiled.
+     * The compiled {@value #COMPILED_RESOURCE} is used when it was built from exactly those files.
+     */
+    public static FallbackDictionary loadDefault() {
+        return load(FallbackDictionary.class.getClassLoader());
+    }
+
+    static FallbackDictionary load(ClassLoader loader) {
+        URL root = loader.getResource("markup");
+        if (root != null && "file".equals(root.getProtocol())) {
+            try {
+                Path directory = Path.of(root.toURI());
+                if (Files.isDirectory(directory)) {
+                    List<Source> sources = sources(directory, markupFiles(directory));
+                    Path compiled = directory.resolve(COMPILED_RESOURCE);
+                    if (Files.isRegularFile(compiled)) {
+                        try {
+                            FallbackDictionary dictionary = map(compiled);
+                            if (sameSources(dictionary.sources, sources)) {
+                                return dictionary;
+                            }
+                        } catch (MorphologyException ex) {
+                            // Written by another version or damaged: parse the markup files instead.
+                        }
+                    }
+                    if (!sources.isEmpty()) {
+                        return compile(directory, sources);
+                    }
+                }
+            } catch (IOException | URISyntaxException ex) {
+                throw new MorphologyException("Failed to load fallback morphology dictionary", ex);
+            }
+        }
+        return loadPackaged(loader);
+    }
+
+    private static FallbackDictionary loadPackaged(ClassLoader loader) {
+        List<Source> sources = new ArrayList<>();
+        for (String name : PACKAGED_MARKUP) {
+            try (InputStream stream = loader.getResourceAsStream("markup/" + name)) {
+                if (stream != null) {
+                    sources.add(source(name, stream));
+                }
+            } catch (IOException ex) {
+                throw new MorphologyException("Failed to read fallback morphology resource: /markup/" + name, ex);
+            }
+        }
+        try (InputStream stream = loader.getResourceAsStream("markup/" + COMPILED_RESOURCE)) {
+            if (stream != null) {
+                FallbackDictionary dictionary = new FallbackDictionary(ByteBuffer.wrap(stream.readAllBytes()));
+                if (sameSources(dictionary.sources, sources)) {
+                    return dictionary;
+                }
+            }
+        } catch (IOException ex) {
+            throw new MorphologyException("Failed to read compiled fallback dictionary", ex);
+        } catch (MorphologyException ex) {
+            // Written by another version or damaged: parse the markup resources instead.
+        }
+        Map<String, String> analyses = new HashMap<>();
+        for (Source source : sources) {
+            try (InputStream stream = loader.getResourceAsStream("markup/" + source.name())) {
+                readMarkup(stream, analyses);
+            } catch (IOException ex) {
+                throw new MorphologyException("Failed to read fallback morphology resource: /markup/" + source.name(), ex);
+            }
+        }
+        return build(analyses, sources);
+    }
+
+    /**
+     * Builds the dictionary from all markup files of a directory, read in file name order. This is
+     * what {@link #loadDefault()} uses when the resources are a directory.
+     */
+    public static FallbackDictionary compile(Path markupDirectory) throws IOException {
+        return compile(markupDirectory, sources(markupDirectory, markupFiles(markupDirectory)));
+    }
+
+    /**
+     * Builds the dictionary from the markup files of a directory that are packaged for a JAR, in the
+     * order a JAR reads them. This is what {@link #loadDefault()} uses when the resources are a JAR.
+     */
+    public static FallbackDictionary compilePackaged(Path markupDirectory) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (String name : PACKAGED_MARKUP) {
+            if (Files.isRegularFile(markupDirectory.resolve(name))) {
+                names.add(name);
+            }
+        }
+        return compile(markupDirectory, sources(markupDirectory, names));
+    }
+
+    private static FallbackDictionary compile(Path markupDirectory, List<Source> sources) throws IOException {
+        Map<String, String> analyses = new HashMap<>();
+        for (Source source : sources) {
+            try (InputStream stream = Files.newInputStream(markupDirectory.resolve(source.name()))) {
+                readMarkup(stream, analyses);
+            }
+        }
+        return build(analyses, sources);
+    }
+
+    /**
+     * Memory-maps a compiled dictionary.
+     */
+    public static FallbackDictionary map(Path path) throws IOException {
+        Objects.requireNonNull(path, "path");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new FallbackDictionary(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Reads a compiled dictionary from the remaining bytes of a buffer without copying them.
+     */
+    static FallbackDictionary wrap(ByteBuffer buffer) {
+        return new FallbackDictionary(buffer.slice());
+    }
+
+    /**
+     * Writes the compiled dictionary.
+     */
+    public void write(Path path) throws IOException {
+        Objects.requireNonNull(path, "path");
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        ByteBuffer copy = bytes();
+        byte[] bytes = new byte[copy.remaining()];
+        copy.get(bytes);
+        Files.write(path, bytes);
+    }
+
+    /**
+     * @return read-only view of the compiled form
+     */
+    ByteBuffer bytes() {
+        return data.asReadOnlyBuffer().position(0);
+    }
+
+    /**
+     * @return the analysis stored for exactly this token, or {@code null}
+     */
+    public String get(String token) {
+        if (token == null || size == 0) {
+            return null;
+        }
+        byte[] target = token.getBytes(StandardCharsets.UTF_8);
+        if (target.length > maxKeyLength) {
+            return null;
+        }
+        byte[] key = new byte[maxKeyLength];
+        int low = 0;
+        int high = blockCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int position = keysStart + data.getInt(blockOffsetsStart + 4 * middle);
+            position = skipVarInt(position);
+            int length = readVarInt(position);
+            position = skipVarInt(position);
+            int comparison = compare(position, length, target);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return value(readVarInt(position + length));
+            }
+        }
+        if (high < 0) {
+            return null;
+        }
+        int position = keysStart + data.getInt(blockOffsetsStart + 4 * high);
+        int entries = Math.min(BLOCK_SIZE, size - high * BLOCK_SIZE);
+        for (int i = 0; i < entries; i++) {
+            int shared = readVarInt(position);
+            position = skipVarInt(position);
+            int suffix = readVarInt(position);
+            position = skipVarInt(position);
+            data.get(position, key, shared, suffix);
+            position += suffix;
+            int comparison = Arrays.compareUnsigned(key, 0, shared + suffix, target, 0, target.length);
+            if (comparison == 0) {
+                return value(readVarInt(position));
+            }
+            if (comparison > 0) {
+                return null;
+            }
+            position = skipVarInt(position);
+        }
+        return null;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return number of tokens with an analysis
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return markup files the dictionary was compiled from, in reading order
+     */
+    public List<Source> sources() {
+        return sources;
+    }
+
+    private String value(int index) {
+        int start = data.getInt(valueOffsetsStart + 4 * index);
+        int end = data.getInt(valueOffsetsStart + 4 * (index + 1));
+        byte[] bytes = new byte[end - start];
+        data.get(valuesStart + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int compare(int position, int length, byte[] target) {
+        int common = Math.min(length, target.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (data.get(position + i) & 0xFF) - (target[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - target.length;
+    }
+
+    private int readVarInt(int position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data.get(position++);
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private int skipVarInt(int position) {
+        while (data.get(position) < 0) {
+            position++;
+        }
+        return position + 1;
+    }
+
+    static FallbackDictionary build(Map<String, String> analyses, List<Source> sources) {
+        byte[][] keys = new byte[analyses.size()][];
+        Map<String, Integer> valueIndexes = new LinkedHashMap<>();
+        Map<ByteKey, Integer> keyValues = new HashMap<>(analyses.size() * 4 / 3 + 1);
+        int index = 0;
+        for (Map.Entry<String, String> entry : analyses.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            keys[index++] = key;
+            Integer value = valueIndexes.computeIfAbsent(entry.getValue(), v -> valueIndexes.size());
+            keyValues.put(new ByteKey(key), value);
+        }
+        Arrays.sort(keys, Arrays::compareUnsigned);
+
+        ByteArrayBuilder keyData = new ByteArrayBuilder();
+        int blockCount = (keys.length + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int[] blockOffsets = new int[blockCount];
+        int maxKeyLength = 0;
+        for (int i = 0; i < keys.length; i++) {
+            byte[] key = keys[i];
+            int shared = 0;
+            if (i % BLOCK_SIZE == 0) {
+                blockOffsets[i / BLOCK_SIZE] = keyData.size();
+            } else {
+                byte[] previous = keys[i - 1];
+                int limit = Math.min(previous.length, key.length);
+                while (shared < limit && previous[shared] == key[shared]) {
+                    shared++;
+                }
+            }
+            keyData.writeVarInt(shared);
+            keyData.writeVarInt(key.length - shared);
+            keyData.write(key, shared, key.length - shared);
+            keyData.writeVarInt(keyValues.get(new ByteKey(key)));
+            maxKeyLength = Math.max(maxKeyLength, key.length);
+        }
+
+        ByteArrayBuilder valueData = new ByteArrayBuilder();
+        int[] valueOffsets = new int[valueIndexes.size() + 1];
+        int valueIndex = 0;
+        for (String value : valueIndexes.keySet()) {
+            valueOffsets[valueIndex++] = valueData.size();
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            valueData.write(bytes, 0, bytes.length);
+        }
+        valueOffsets[valueIndex] = valueData.size();
+
+        ByteArrayBuilder header = new ByteArrayBuilder();
+        header.writeInt(MAGIC);
+        header.writeInt(VERSION);
+        header.writeInt(sources.size());
+        for (Source source : sources) {
+            byte[] name = source.name().getBytes(StandardCharsets.UTF_8);
+            header.writeShort(name.length);
+            header.write(name, 0, name.length);
+            header.writeLong(source.size());
+            header.writeLong(source.checksum());
+        }
+        header.writeInt(keys.length);
+        header.writeInt(maxKeyLength);
+        header.writeInt(blockCount);
+        header.writeInt(valueIndexes.size());
+        header.writeInt(keyData.size());
+        for (int offset : blockOffsets) {
+            header.writeInt(offset);
+        }
+        for (int offset : valueOffsets) {
+            header.writeInt(offset);
+        }
+        ByteBuffer data = ByteBuffer.allocate(header.size() + keyData.size() + valueData.size());
+        data.put(header.bytes(), 0, header.size())
+                .put(keyData.bytes(), 0, keyData.size())
+                .put(valueData.bytes(), 0, valueData.size())
+                .flip();
+        return new FallbackDictionary(data);
+    }
+
+    private static List<String> markupFiles(Path directory) throws IOException {
+        List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+            for (Path path : paths) {
+                String name = path.getFileName().toString();
+                if (isMarkupFile(name) && Files.isRegularFile(path)) {
+                    names.add(name);
+                }
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    private static List<Source> sources(Path directory, List<String> names) throws IOException {
+        List<Source> sources = new ArrayList<>(names.size());
+        for (String name : names) {
+            try (InputStream stream = Files.newInputStream(directory.resolve(name))) {
+                sources.add(source(name, stream));
+            }
+        }
+        return sources;
+    }
+
+    private static Source source(String name, InputStream stream) throws IOException {
+        CRC32C checksum = new CRC32C();
+        byte[] buffer = new byte[64 * 1024];
+        long size = 0;
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            checksum.update(buffer, 0, read);
+            size += read;
+        }
+        return new Source(name, size, checksum.getValue());
+    }
+
+    // Compared field by field: the generated record equals() costs tens of milliseconds on first use.
+    private static boolean sameSources(List<Source> first, List<Source> second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int i = 0; i < first.size(); i++) {
+            Source one = first.get(i);
+            Source other = second.get(i);
+            if (!one.name().equals(other.name()) || one.size() != other.size() || one.checksum() != other.checksum()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isMarkupFile(String fileName) {
+        if (fileName.endsWith(".tsv")) {
+            return !(fileName.contains("morph2")
+                    || fileName.contains("morph3")
+                    || fileName.contains("_old"));
+        }
+        return fileName.endsWith(".txt");
+    }
+
+    private static void readMarkup(InputStream stream, Map<String, String> dictionary) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int tabIndex = line.indexOf('\t');
+            if (tabIndex <= 0) {
+                continue;
+            }
+            String token = line.substring(0, tabIndex).strip();
+            String analysis = line.substring(tabIndex + 1).strip();
+            if (token.isEmpty() || analysis.isEmpty()) {
+                continue;
+            }
+            storeAnalysis(dictionary, token, analysis);
+            String lower = token.toLowerCase(Locale.ROOT);
+            storeAnalysis(dictionary, lower, analysis);
+        }
+    }
+
+    private static void storeAnalysis(Map<String, String> dictionary, String token, String analysis) {
+        String existing = dictionary.get(token);
+        if (existing == null) {
+            dictionary.put(token, analysis);
+            return;
+        }
+        if (Objects.equals(existing, analysis)) {
+            return;
+        }
+        boolean existingNonLexical = isNonLexical(existing);
+        boolean newNonLexical = isNonLexical(analysis);
+        if (existingNonLexical && !newNonLexical) {
+            dictionary.put(token, analysis);
+            return;
+        }
+        if (!existingNonLexical && newNonLexical) {
+            return;
+        }
+        if (!existingNonLexical && !newNonLexical
+                && hasTranslation(analysis) && !hasTranslation(existing)) {
+            dictionary.put(token, analysis);
+        }
+    }
+
+    private static boolean hasTranslation(String analysis) {
+        return analysis.indexOf(':') >= 0;
+    }
+
+    private static boolean isNonLexical(String analysis) {
+        return "NR".equals(analysis) || "Error".equals(analysis);
+    }
+
+    private record ByteKey(byte[] bytes) {
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ByteKey key && Arrays.equals(bytes, key.bytes);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(bytes);
+        }
+    }
+
+    private static final class ByteArrayBuilder {
+        private byte[] bytes = new byte[1024];
+        private int size;
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+
+        void write(byte[] source, int offset, int length) {
+            ensure(length);
+            System.arraycopy(source, offset, bytes, size, length);
+            size += length;
+        }
+
+        void writeVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeShort(int value) {
+            ensure(2);
+            bytes[size++] = (byte) (value >>> 8);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeInt(int value) {
+            writeShort(value >>> 16);
+            writeShort(value);
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
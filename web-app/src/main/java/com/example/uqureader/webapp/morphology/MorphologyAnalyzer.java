@@ -1,88 +1,108 @@
 package com.example.uqureader.webapp.morphology;
 
 import com.example.uqureader.webapp.MorphologyException;
+import com.example.uqureader.webapp.cache.CacheSettings;
+import com.example.uqureader.webapp.cache.CacheStats;
+import com.example.uqureader.webapp.cache.ResultCache;
+import com.example.uqureader.webapp.cache.StripedResultCache;
 import com.example.uqureader.webapp.morphology.hfst.HfstTransducer;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 
 /**
  * Java port of the {@code py_tat_morphan} morphological analyser. The implementation loads an HFST
  * transducer and performs the same suffix-based analysis that the Python version executes, without
  * relying on pre-generated dictionaries of tokens.
+ *
+ * <p>Word analyses are memoised in a bounded cache shared by all {@link #analyze(String)} and
+ * {@link #analyseToken(String)} calls, so vocabulary seen in earlier texts is not looked up in the
+ * transducer again. The limits default to {@link #DEFAULT_ANALYSIS_CACHE} and can be overridden with
+ * the system properties {@code morphology.cache.analysis.max-entries}, {@code .max-bytes} and
+ * {@code .ttl-seconds}.
+ *
+ * <p>Normalised texts of at least {@link #DEFAULT_PARALLEL_THRESHOLD} characters are cut into
+ * segments at sentence ends and the segments are analysed concurrently in the common fork/join pool;
+ * the result is the same as that of sequential analysis. The threshold can be changed with the system
+ * property {@code morphology.parallel.threshold}; zero or a negative value turns parallel analysis
+ * off. On single-processor machines it is off unless the property is set.</p>
+ *
+ * <p>For fast start-up, {@link #compileImage(Path)} (or {@code Main --compile-analyzer}) stores the
+ * transducer and the fallback dictionary in one image file. {@link #loadDefault()} maps that image
+ * instead of resolving and parsing the resources when the system property
+ * {@code morphology.analyzer.image} or the environment variable {@code MORPHOLOGY_ANALYZER_IMAGE}
+ * names it.</p>
  */
 public final class MorphologyAnalyzer {
 
-    private static final Pattern SPLIT_PATTERN = Pattern.compile("([ .,!?\\n\\r\\t“”„‘«»≪≫\\{\\}\\(\\)\\[\\]:;\\'\\\"+=*\\—_^…\\|\\/\\\\ ]|[0-9]+)");
-    private static final Pattern DIGITS = Pattern.compile("^[0-9]+$");
-    private static final Pattern LATIN = Pattern.compile("^[a-zA-Z-]+$");
-    private static final Pattern SIGN = Pattern.compile("^[^а-яА-ЯөүһңҗәҺҮӨҖҢӘЁё]$");
-    private static final Pattern CYRILLIC = Pattern.compile("^[а-яА-ЯөӨүҮһҺңҢҗҖәӘЁё]+$");
-    private static final Pattern CYRILLIC_HYPHEN = Pattern.compile("^[а-яА-ЯөӨүҮһҺңҢҗҖәӘЁё]+-[а-яА-ЯөӨүҮһҺңҢҗҖЁёәӘ]+$");
+    public static final CacheSettings DEFAULT_ANALYSIS_CACHE = new CacheSettings(200_000, 48L << 20, null);
 
-    private static final Map<Character, Character> LETTER_NORMALISATION = Map.ofEntries(
-            Map.entry('ђ', 'ә'), Map.entry('њ', 'ү'), Map.entry('ќ', 'җ'), Map.entry('љ', 'ө'),
-            Map.entry('ћ', 'ң'), Map.entry('џ', 'һ'), Map.entry('Ә', 'ә'), Map.entry('Ү', 'ү'),
-            Map.entry('Ө', 'ө'), Map.entry('Җ', 'җ'), Map.entry('Һ', 'һ'), Map.entry('Ң', 'ң'),
-            Map.entry('Ђ', 'Җ'), Map.entry('Љ', 'Ө'), Map.entry('Њ', 'ү'), Map.entry('Ќ', 'Җ'),
-            Map.entry('Џ', 'һ'), Map.entry('Ћ', 'Ң'));
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 256 * 1024;
 
-    private static final Set<String> SENTENCE_PUNCTUATION = Set.of(".", "!", "?", "…");
-    private static final Set<String> COMMA_LIKE = Set.of(",", ":", ";", "—", "–", "-", "_");
-    private static final Set<String> BRACKETS = Set.of("(", ")", "[", "]", "{", "}");
-    private static final Set<String> QUOTES = Set.of("“", "”", "\"", "'", "»", "«", "≪", "≫", "„", "‘");
-
-    private static final String[] FALLBACK_MARKUP_RESOURCES = {
-            "/markup/berenche_teatr.txt.morph.tsv",
-            "/markup/harri_potter_ham_lagnetle_bala.txt.morph.tsv",
-            "/markup/qubiz_qabiz.txt.morph.tsv",
-            "/markup/berenche_teatr_markup.txt",
-            "/markup/harri_potter_ham_lagnetle_bala_markup.txt"
+    private static final int STREAM_CHUNK_SIZE = 64 * 1024;
+
+    // Unprocessed input held by analyze(Reader, SentenceSink) before it is cut at any whitespace.
+    private static final int STREAM_PENDING_CHUNKS = 4;
+
+    // Segments handed out per worker thread of the common pool, so that uneven segments even out.
+    private static final int SEGMENTS_PER_WORKER = 4;
+
+    // Two strings with their headers, as in MorphologyService's estimates.
+    private static final long ANALYSIS_ENTRY_OVERHEAD = 80;
+
+    private static final String[] BUNDLED_TRANSDUCERS = {
+            "analyser-gt-desc.hfstol", "tat.automorf.hfstol", "tatar_last.hfstol"
     };
 
+    private static final Set<String> SENTENCE_PUNCTUATION = Set.of(".", "!", "?", "…");
+
     private final HfstTransducer transducer;
-    private final Map<String, String> fallbackAnalyses;
+    private final FallbackDictionary fallbackAnalyses;
     private final boolean ignoreNewlines;
+    private final ResultCache<String, String> analysisCache;
+    private final int parallelThreshold;
 
     private MorphologyAnalyzer(HfstTransducer transducer,
-                               Map<String, String> fallbackAnalyses,
+                               FallbackDictionary fallbackAnalyses,
                                boolean ignoreNewlines) {
         this.transducer = transducer;
-        this.fallbackAnalyses = fallbackAnalyses == null
-                ? Collections.emptyMap()
-                : Collections.unmodifiableMap(new LinkedHashMap<>(fallbackAnalyses));
+        this.fallbackAnalyses = fallbackAnalyses == null ? FallbackDictionary.EMPTY : fallbackAnalyses;
         this.ignoreNewlines = ignoreNewlines;
+        this.analysisCache = new StripedResultCache<>(
+                CacheSettings.fromSystemProperties("morphology.cache.analysis", DEFAULT_ANALYSIS_CACHE),
+                (token, analysis) -> ANALYSIS_ENTRY_OVERHEAD + 2L * (token.length() + analysis.length()));
+        this.parallelThreshold = Integer.getInteger("morphology.parallel.threshold",
+                Runtime.getRuntime().availableProcessors() > 1 ? DEFAULT_PARALLEL_THRESHOLD : 0);
     }
 
     public static MorphologyAnalyzer loadDefault() {
+        Path image = configuredPath("morphology.analyzer.image", "MORPHOLOGY_ANALYZER_IMAGE", "Analyser image");
+        if (image != null) {
+            return loadImage(image);
+        }
         try {
-            HfstTransducer transducer = null;
-            try (InputStream stream = openDefaultTransducerStream()) {
-                if (stream != null) {
-                    transducer = HfstTransducer.read(stream);
-                }
-            }
-            Map<String, String> fallback = loadFallbackDictionary();
+            URL location = defaultTransducerLocation();
+            HfstTransducer transducer = location != null ? openTransducer(location) : null;
+            FallbackDictionary fallback = FallbackDictionary.loadDefault();
             if (transducer == null && fallback.isEmpty()) {
                 throw new MorphologyException("Missing morphology transducer resource. Provide path via system property 'morphology.transducer.path' or environment variable 'MORPHOLOGY_TRANSDUCER'.");
             }
@@ -92,66 +112,116 @@ public final class MorphologyAnalyzer {
         }
     }
 
-    private static InputStream openDefaultTransducerStream() throws IOException {
-        InputStream stream = openTransducerFromProperty();
-        if (stream != null) {
-            return stream;
-        }
-        stream = openTransducerFromEnvironment();
-        if (stream != null) {
-            return stream;
+    /**
+     * Loads an analyser from an image written by {@link #compileImage(Path)}. The image is
+     * memory-mapped and its checksum verified; nothing else is read.
+     *
+     * @throws MorphologyException when the image is missing, damaged or of another format version
+     */
+    public static MorphologyAnalyzer loadImage(Path image) {
+        Objects.requireNonNull(image, "image");
+        if (!Files.isRegularFile(image)) {
+            throw new MorphologyException("Analyser image not found: " + image.toAbsolutePath());
         }
-        stream = openBundledTransducer("analyser-gt-desc.hfstol");
-        if (stream != null) {
-            return stream;
-        }
-        stream = openBundledTransducer("tat.automorf.hfstol");
-        if (stream != null) {
-            return stream;
+        AnalyzerImage loaded = AnalyzerImage.map(image);
+        return new MorphologyAnalyzer(loaded.transducer(), loaded.fallback(), true);
+    }
+
+    /**
+     * Writes the transducer and the fallback dictionary that {@link #loadDefault()} would use without
+     * an image into a single image file for {@link #loadImage(Path)}.
+     *
+     * @return size of the image in bytes
+     */
+    public static long compileImage(Path output) {
+        Objects.requireNonNull(output, "output");
+        try {
+            URL location = defaultTransducerLocation();
+            byte[] transducer = new byte[0];
+            if (location != null) {
+                try (InputStream stream = location.openStream()) {
+                    transducer = stream.readAllBytes();
+                }
+                HfstTransducer.wrap(ByteBuffer.wrap(transducer));
+            }
+            return AnalyzerImage.write(output, transducer, FallbackDictionary.loadDefault());
+        } catch (IOException ex) {
+            throw new MorphologyException("Failed to write analyser image " + output.toAbsolutePath(), ex);
         }
-        return openBundledTransducer("tatar_last.hfstol");
     }
 
-    private static InputStream openTransducerFromProperty() throws IOException {
-        String systemProperty = System.getProperty("morphology.transducer.path");
-        if (systemProperty == null || systemProperty.isBlank()) {
-            return null;
+    private static URL defaultTransducerLocation() throws IOException {
+        Path path = configuredPath("morphology.transducer.path", "MORPHOLOGY_TRANSDUCER", "Morphology transducer");
+        if (path != null) {
+            return path.toUri().toURL();
         }
-        Path path = Path.of(systemProperty);
-        if (!Files.isRegularFile(path)) {
-            throw new MorphologyException("Morphology transducer not found: " + path.toAbsolutePath());
+        for (String fileName : BUNDLED_TRANSDUCERS) {
+            URL location = bundledTransducer(fileName);
+            if (location != null) {
+                return location;
+            }
         }
-        return Files.newInputStream(path);
+        return null;
     }
 
-    private static InputStream openTransducerFromEnvironment() throws IOException {
-        String envPath = System.getenv("MORPHOLOGY_TRANSDUCER");
-        if (envPath == null || envPath.isBlank()) {
+    /**
+     * Returns the file named by a system property or, failing that, an environment variable.
+     *
+     * @return the path, or {@code null} when neither is set
+     * @throws MorphologyException when the named file does not exist
+     */
+    private static Path configuredPath(String property, String environmentVariable, String description) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(environmentVariable);
+        }
+        if (value == null || value.isBlank()) {
             return null;
         }
-        Path path = Path.of(envPath);
+        Path path = Path.of(value);
         if (!Files.isRegularFile(path)) {
-            throw new MorphologyException("Morphology transducer not found: " + path.toAbsolutePath());
+            throw new MorphologyException(description + " not found: " + path.toAbsolutePath());
         }
-        return Files.newInputStream(path);
+        return path;
     }
 
-    private static InputStream openBundledTransducer(String fileName) throws IOException {
-        InputStream classpathStream = MorphologyAnalyzer.class.getResourceAsStream("/" + fileName);
-        if (classpathStream != null) {
-            return classpathStream;
+    /**
+     * Finds a transducer bundled with the application: on the classpath or, when running from the
+     * source tree, under {@code src/main/resources}.
+     */
+    private static URL bundledTransducer(String fileName) throws IOException {
+        URL resource = MorphologyAnalyzer.class.getResource("/" + fileName);
+        if (resource != null) {
+            return resource;
         }
         Path root = Path.of("src", "main", "resources", fileName);
         if (Files.isRegularFile(root)) {
-            return Files.newInputStream(root);
+            return root.toUri().toURL();
         }
         Path moduleRoot = Path.of("web-app", "src", "main", "resources", fileName);
         if (Files.isRegularFile(moduleRoot)) {
-            return Files.newInputStream(moduleRoot);
+            return moduleRoot.toUri().toURL();
         }
         return null;
     }
 
+    /**
+     * Opens a transducer. Files on the file system (an exploded classpath or the source tree) are
+     * memory-mapped; resources packed into a JAR are read onto the heap.
+     */
+    private static HfstTransducer openTransducer(URL location) throws IOException {
+        if ("file".equals(location.getProtocol())) {
+            try {
+                return HfstTransducer.map(Path.of(location.toURI()));
+            } catch (URISyntaxException ex) {
+                throw new MorphologyException("Invalid transducer resource location: " + location, ex);
+            }
+        }
+        try (InputStream stream = location.openStream()) {
+            return HfstTransducer.read(stream);
+        }
+    }
+
     public static MorphologyAnalyzer load(Path transducerPath) {
         return load(transducerPath, true);
     }
@@ -161,38 +231,206 @@ public final class MorphologyAnalyzer {
         if (!Files.isRegularFile(transducerPath)) {
             throw new MorphologyException("Morphology transducer not found: " + transducerPath.toAbsolutePath());
         }
-        try (InputStream stream = Files.newInputStream(transducerPath)) {
-            HfstTransducer transducer = HfstTransducer.read(stream);
-            Map<String, String> fallback = useFallback ? loadFallbackDictionary() : Collections.emptyMap();
-            return new MorphologyAnalyzer(transducer, fallback, true);
-        } catch (IOException ex) {
-            throw new MorphologyException("Failed to load morphology transducer from " + transducerPath.toAbsolutePath(), ex);
-        }
+        HfstTransducer transducer = HfstTransducer.map(transducerPath);
+        FallbackDictionary fallback = useFallback ? FallbackDictionary.loadDefault() : FallbackDictionary.EMPTY;
+        return new MorphologyAnalyzer(transducer, fallback, true);
     }
 
     public TextAnalysis analyze(String text) {
+        return analyze(text, parallelThreshold);
+    }
+
+    TextAnalysis analyze(String text, int parallelThreshold) {
         String prepared = fix(text == null ? "" : text);
-        List<String> tokens = tokenize(prepared);
-        Map<String, String> taggedTokens = processTokens(tokens);
-        int uniqueTokenCount = countUniqueTokens(tokens);
+        List<SegmentAnalysis> segments = new ArrayList<>();
+        if (parallelThreshold > 0 && prepared.length() >= parallelThreshold) {
+            int workers = Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+            int segmentLength = Math.max(parallelThreshold / SEGMENTS_PER_WORKER,
+                    prepared.length() / (workers * SEGMENTS_PER_WORKER));
+            int start = 0;
+            int boundary;
+            while ((boundary = nextSentenceBoundary(prepared, start + segmentLength)) > 0) {
+                segments.add(new SegmentAnalysis(prepared, start, boundary));
+                start = boundary;
+            }
+            segments.add(new SegmentAnalysis(prepared, start, prepared.length()));
+        } else {
+            segments.add(new SegmentAnalysis(prepared, 0, prepared.length()));
+        }
 
-        List<TokenEntry> entries = new ArrayList<>(tokens.size());
-        for (String token : tokens) {
-            String tag = taggedTokens.getOrDefault(token, "Error");
-            entries.add(new TokenEntry(token, tag));
+        if (segments.size() == 1) {
+            segments.get(0).run();
+        } else {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(segments.size());
+            for (SegmentAnalysis segment : segments) {
+                tasks.add(ForkJoinTask.adapt(segment));
+            }
+            ForkJoinTask.invokeAll(tasks);
+        }
+        return merge(segments);
+    }
+
+    private static TextAnalysis merge(List<SegmentAnalysis> segments) {
+        if (segments.size() == 1) {
+            SegmentAnalysis segment = segments.get(0);
+            return new TextAnalysis(segment.tokensCount, segment.uniqueTokens.size(), segment.sentences,
+                    segment.markup);
+        }
+        int tokensCount = 0;
+        Set<String> uniqueTokens = new HashSet<>();
+        List<List<TokenEntry>> sentences = new ArrayList<>();
+        StringBuilder markup = new StringBuilder();
+        for (SegmentAnalysis segment : segments) {
+            tokensCount += segment.tokensCount;
+            uniqueTokens.addAll(segment.uniqueTokens);
+            sentences.addAll(segment.sentences);
+            if (!segment.markup.isEmpty()) {
+                if (markup.length() > 0) {
+                    markup.append('\n');
+                }
+                markup.append(segment.markup);
+            }
         }
+        return new TextAnalysis(tokensCount, uniqueTokens.size(), sentences, markup.toString());
+    }
+
+    /**
+     * Finds the first position at or after {@code from} that follows sentence punctuation and a
+     * space. Cutting normalised text there keeps the tokens of both parts and closes the sentence of
+     * the first part.
+     *
+     * @return index of the first character of the second part, or {@code -1} when there is none
+     */
+    private static int nextSentenceBoundary(String text, int from) {
+        for (int i = Math.max(from, 2); i < text.length(); i++) {
+            if (text.charAt(i - 1) == ' '
+                    && SENTENCE_PUNCTUATION.contains(String.valueOf(text.charAt(i - 2)))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Analyses text read from {@code input} incrementally and passes every sentence to {@code sink} as
+     * soon as it is complete. The input is processed in chunks of about 64K characters split at line or
+     * sentence boundaries, so the sentences are the same as those of {@link #analyze(String)}. Text
+     * without such boundaries is cut after whitespace once {@value #STREAM_PENDING_CHUNKS} chunks are
+     * pending, and a run of that length without any whitespace is cut where it stands, so at most that
+     * much unprocessed input is held. Tokens of a sentence are kept until the sentence ends.
+     *
+     * @param input text to analyse; not closed by this method
+     * @param sink  receiver of the sentences in text order
+     * @return token and sentence counts of the whole text
+     * @throws IOException when reading the input or writing to the sink fails
+     */
+    public TextStatistics analyze(Reader input, SentenceSink sink) throws IOException {
+        return analyze(input, sink, STREAM_CHUNK_SIZE);
+    }
+
+    TextStatistics analyze(Reader input, SentenceSink sink, int chunkSize) throws IOException {
+        Objects.requireNonNull(input, "input");
+        Objects.requireNonNull(sink, "sink");
+        StreamAnalysis analysis = new StreamAnalysis(sink);
+        int maxPending = STREAM_PENDING_CHUNKS * chunkSize;
+        StringBuilder pending = new StringBuilder();
+        char[] buffer = new char[chunkSize];
+        // Positions before scanned have been checked; a cut at i depends only on the characters up to i.
+        int scanned = 2;
+        int chunkBoundary = -1;
+        int wordBoundary = -1;
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            pending.append(buffer, 0, read);
+            for (int i = scanned; i < pending.length(); i++) {
+                if (isChunkBoundary(pending, i)) {
+                    chunkBoundary = i;
+                } else if (isWordBoundary(pending, i)) {
+                    wordBoundary = i;
+                }
+            }
+            scanned = Math.max(2, pending.length());
+            int cut = -1;
+            if (pending.length() >= chunkSize && chunkBoundary > 0) {
+                cut = chunkBoundary;
+            } else if (pending.length() >= maxPending) {
+                cut = wordBoundary > 0 ? wordBoundary : forcedCut(pending);
+            }
+            if (cut > 0) {
+                analysis.accept(pending.substring(0, cut));
+                pending.delete(0, cut);
+                scanned = Math.max(2, scanned - cut);
+                chunkBoundary = chunkBoundary > cut ? chunkBoundary - cut : -1;
+                wordBoundary = wordBoundary > cut ? wordBoundary - cut : -1;
+            }
+        }
+        analysis.accept(pending.toString());
+        return analysis.finish();
+    }
+
+    /**
+     * Tells whether {@code text} can be cut before position {@code i} so that {@link #fix(String)} and
+     * {@link TokenScanner#scan(String)} give the same tokens for both halves as for the whole: after a line
+     * break that does not end a hyphenated word, or after a space that follows sentence punctuation.
+     */
+    private static boolean isChunkBoundary(CharSequence text, int i) {
+        char next = text.charAt(i);
+        if (next == '\r' || next == '\n' || next == '-') {
+            return false;
+        }
+        char separator = text.charAt(i - 1);
+        char previous = text.charAt(i - 2);
+        if (separator == '\n') {
+            if (previous == '\r' && i >= 3) {
+                previous = text.charAt(i - 3);
+            }
+            return previous != '-' && previous != '\r';
+        }
+        return separator == ' ' && SENTENCE_PUNCTUATION.contains(String.valueOf(previous));
+    }
+
+    /**
+     * Tells whether {@code text} can be cut before position {@code i} without changing its tokens, though
+     * possibly in the middle of a sentence: between a space or tab and a letter or digit. No rewrite of
+     * {@link TextNormaliser} spans such a position.
+     */
+    private static boolean isWordBoundary(CharSequence text, int i) {
+        char separator = text.charAt(i - 1);
+        return (separator == ' ' || separator == '\t') && Character.isLetterOrDigit(text.charAt(i));
+    }
+
+    private static int forcedCut(CharSequence text) {
+        int cut = text.length();
+        return Character.isHighSurrogate(text.charAt(cut - 1)) ? cut - 1 : cut;
+    }
 
-        List<List<TokenEntry>> sentences = splitIntoSentences(entries);
-        String markup = entries.stream()
-                .map(entry -> entry.token() + "\t" + entry.analysis())
-                .collect(Collectors.joining("\n"));
-        return new TextAnalysis(tokens.size(), uniqueTokenCount, sentences, markup);
+    /**
+     * Splits text into the tokens that {@link #analyze(String)} would analyse, in text order, without
+     * analysing them. The result does not depend on the transducer, so callers comparing several
+     * analysers can tokenise a text once and pass the tokens to {@link #analyseToken(String)}.
+     */
+    public List<String> tokens(String text) {
+        return TokenScanner.scan(fix(text == null ? "" : text)).asList();
     }
 
     public String analyseToken(String token) {
         return analyseTokenInternal(token == null ? "" : token);
     }
 
+    /**
+     * @return counters of the shared word analysis cache
+     */
+    public CacheStats analysisCacheStats() {
+        return analysisCache.stats();
+    }
+
+    /**
+     * Empties the shared word analysis cache. Counters are kept.
+     */
+    public void clearAnalysisCache() {
+        analysisCache.clear();
+    }
+
     public String lookup(String token) {
         if (token == null || token.isEmpty()) {
             return null;
@@ -216,99 +454,6 @@ public final class MorphologyAnalyzer {
         return lexical ? joined + ";" : joined;
     }
 
-    private static Map<String, String> loadFallbackDictionary() {
-        Map<String, String> dictionary = new LinkedHashMap<>();
-        URL root = MorphologyAnalyzer.class.getResource("/markup");
-        if (root != null && "file".equals(root.getProtocol())) {
-            try {
-                Path directory = Path.of(root.toURI());
-                if (Files.isDirectory(directory)) {
-                    try (var paths = Files.list(directory)) {
-                        paths.filter(path -> Files.isRegularFile(path)
-                                && isMarkupFile(path.getFileName().toString()))
-                                .forEach(path -> readMarkupResource("/markup/" + path.getFileName(), dictionary));
-                    }
-                }
-            } catch (IOException | URISyntaxException ex) {
-                throw new MorphologyException("Failed to load fallback morphology dictionary", ex);
-            }
-        }
-        if (dictionary.isEmpty()) {
-            for (String resource : FALLBACK_MARKUP_RESOURCES) {
-                readMarkupResource(resource, dictionary);
-            }
-        }
-        return dictionary;
-    }
-
-    private static boolean isMarkupFile(String fileName) {
-        if (fileName.endsWith(".tsv")) {
-            return !(fileName.contains("morph2")
-                    || fileName.contains("morph3")
-                    || fileName.contains("_old"));
-        }
-        return fileName.endsWith(".txt");
-    }
-
-    private static void readMarkupResource(String resource, Map<String, String> dictionary) {
-        try (InputStream stream = MorphologyAnalyzer.class.getResourceAsStream(resource)) {
-            if (stream == null) {
-                return;
-            }
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    int tabIndex = line.indexOf('\t');
-                    if (tabIndex <= 0) {
-                        continue;
-                    }
-                    String token = line.substring(0, tabIndex).strip();
-                    String analysis = line.substring(tabIndex + 1).strip();
-                    if (token.isEmpty() || analysis.isEmpty()) {
-                        continue;
-                    }
-                    storeAnalysis(dictionary, token, analysis);
-                    String lower = token.toLowerCase(Locale.ROOT);
-                    storeAnalysis(dictionary, lower, analysis);
-                }
-            }
-        } catch (IOException ex) {
-            throw new MorphologyException("Failed to read fallback morphology resource: " + resource, ex);
-        }
-    }
-
-    private static void storeAnalysis(Map<String, String> dictionary, String token, String analysis) {
-        String existing = dictionary.get(token);
-        if (existing == null) {
-            dictionary.put(token, analysis);
-            return;
-        }
-        if (Objects.equals(existing, analysis)) {
-            return;
-        }
-        boolean existingNonLexical = isNonLexical(existing);
-        boolean newNonLexical = isNonLexical(analysis);
-        if (existingNonLexical && !newNonLexical) {
-            dictionary.put(token, analysis);
-            return;
-        }
-        if (!existingNonLexical && newNonLexical) {
-            return;
-        }
-        if (!existingNonLexical && !newNonLexical
-                && hasTranslation(analysis) && !hasTranslation(existing)) {
-            dictionary.put(token, analysis);
-        }
-    }
-
-    private static boolean hasTranslation(String analysis) {
-        return analysis.indexOf(':') >= 0;
-    }
-
-    private static boolean isNonLexical(String analysis) {
-        return "NR".equals(analysis) || "Error".equals(analysis);
-    }
-
     private void mergeFallbackAnalyses(String token, Set<String> accumulator) {
         if (fallbackAnalyses.isEmpty()) {
             return;
@@ -337,63 +482,33 @@ public final class MorphologyAnalyzer {
     }
 
     private String analyseTokenInternal(String token) {
-        if (token.equals("\n") || token.equals("\n\r")) {
-            return "NL";
-        }
-        if (DIGITS.matcher(token).matches()) {
-            return "Num";
-        }
-        if (isSentencePunctuation(token)) {
-            return "Type1";
-        }
-        if (isCommaLike(token)) {
-            return "Type2";
-        }
-        if (isBracket(token)) {
-            return "Type3";
-        }
-        if (isQuote(token)) {
-            return "Type4";
-        }
-        if (SIGN.matcher(token).matches()) {
-            return "Sign";
-        }
-        if (LATIN.matcher(token).matches()) {
-            return "Latin";
-        }
-        if (CYRILLIC.matcher(token).matches() || CYRILLIC_HYPHEN.matcher(token).matches()) {
-            if (token.chars().filter(ch -> ch == '-').count() > 1) {
-                return "Error";
-            }
-            String result = lookup(token);
-            if (result == null) {
-                result = lookup(token.toLowerCase(Locale.ROOT));
-            }
-            return result != null ? result : "NR";
+        return analyse(token, TokenScanner.classify(token));
+    }
+
+    private String analyse(String token, TokenScanner.TokenClass tokenClass) {
+        if (tokenClass == TokenScanner.TokenClass.WORD) {
+            return analysisCache.get(token, this::analyseWord);
         }
-        return "Error";
+        return tokenClass.tag();
     }
 
-    private Map<String, String> processTokens(List<String> tokens) {
-        Map<String, String> tagged = new LinkedHashMap<>();
-        for (String token : tokens) {
-            if ("\n\r".equals(token) || "\r".equals(token)) {
-                continue;
-            }
-            tagged.computeIfAbsent(token, this::analyseTokenInternal);
+    private String analyseWord(String word) {
+        String result = lookup(word);
+        if (result == null) {
+            result = lookup(word.toLowerCase(Locale.ROOT));
         }
-        return tagged;
+        return result != null ? result : "NR";
     }
 
-    private int countUniqueTokens(List<String> tokens) {
-        Set<String> unique = new LinkedHashSet<>();
-        for (String token : tokens) {
-            if ("\n\r".equals(token) || "\r".equals(token)) {
-                continue;
+    private Map<String, String> processTokens(TokenScanner.Tokens tokens) {
+        Map<String, String> tagged = new HashMap<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.text(i);
+            if (!tagged.containsKey(token)) {
+                tagged.put(token, analyse(token, tokens.tokenClass(i)));
             }
-            unique.add(token.toLowerCase(Locale.ROOT));
         }
-        return unique.size();
+        return tagged;
     }
 
     private List<List<TokenEntry>> splitIntoSentences(List<TokenEntry> tokens) {
@@ -401,10 +516,7 @@ public final class MorphologyAnalyzer {
         List<TokenEntry> current = new ArrayList<>();
         for (TokenEntry entry : tokens) {
             current.add(entry);
-            if ("Type1".equals(entry.analysis())) {
-                sentences.add(unmodifiableCopy(current));
-                current.clear();
-            } else if ("NL".equals(entry.analysis()) && !ignoreNewlines) {
+            if (endsSentence(entry)) {
                 sentences.add(unmodifiableCopy(current));
                 current.clear();
             }
@@ -415,109 +527,139 @@ public final class MorphologyAnalyzer {
         return Collections.unmodifiableList(sentences);
     }
 
-    private List<String> tokenize(String text) {
-        List<String> tokens = new ArrayList<>();
-        Matcher matcher = SPLIT_PATTERN.matcher(text);
-        int last = 0;
-        while (matcher.find()) {
-            if (matcher.start() > last) {
-                String token = text.substring(last, matcher.start());
-                addToken(tokens, token);
-            }
-            addToken(tokens, matcher.group());
-            last = matcher.end();
-        }
-        if (last < text.length()) {
-            addToken(tokens, text.substring(last));
-        }
-        return tokens;
+    private boolean endsSentence(TokenEntry entry) {
+        return "Type1".equals(entry.analysis()) || ("NL".equals(entry.analysis()) && !ignoreNewlines);
     }
 
-    private void addToken(List<String> target, String token) {
-        if (token == null || token.isEmpty()) {
-            return;
-        }
-        String trimmed = token.strip();
-        if (trimmed.isEmpty()) {
-            return;
-        }
-        String cleaned = stripHyphen(trimmed);
-        if (cleaned.isEmpty()) {
-            return;
-        }
-        target.add(cleaned);
+    private String fix(String text) {
+        return TextNormaliser.normalise(text);
     }
 
-    private String stripHyphen(String value) {
-        int start = 0;
-        int end = value.length();
-        while (start < end && value.charAt(start) == '-') {
-            start++;
-        }
-        while (end > start && value.charAt(end - 1) == '-') {
-            end--;
+    private static List<TokenEntry> unmodifiableCopy(List<TokenEntry> entries) {
+        return Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    private String trimPlus(String value) {
+        if (value.endsWith("+")) {
+            return value.substring(0, value.length() - 1);
         }
-        return value.substring(start, end);
+        return value;
     }
 
-    private String fix(String text) {
-        if (text.isEmpty()) {
-            return text;
-        }
-        StringBuilder builder = new StringBuilder(text.length());
-        text.codePoints().forEach(cp -> {
-            char ch = (char) cp;
-            Character replacement = LETTER_NORMALISATION.get(ch);
-            if (replacement != null) {
-                builder.append(replacement);
-            } else {
-                builder.appendCodePoint(cp);
+    /**
+     * Analysis of one segment of normalised text: its tokens, sentences and markup.
+     */
+    private final class SegmentAnalysis implements Runnable {
+        private final String text;
+        private final int start;
+        private final int end;
+        private final Set<String> uniqueTokens = new HashSet<>();
+        private int tokensCount;
+        private List<List<TokenEntry>> sentences;
+        private String markup;
+
+        private SegmentAnalysis(String text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            TokenScanner.Tokens tokens = TokenScanner.scan(text, start, end);
+            Map<String, String> taggedTokens = processTokens(tokens);
+            List<TokenEntry> entries = new ArrayList<>(tokens.size());
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.text(i);
+                uniqueTokens.add(token.toLowerCase(Locale.ROOT));
+                entries.add(new TokenEntry(token, taggedTokens.get(token)));
             }
-        });
-        String normalised = builder.toString();
-        normalised = normalised.replace("-\r\n", "")
-                .replace("-\n\r", "")
-                .replace("-\n", "")
-                .replace("-\r", "")
-                .replace("¬", "")
-                .replace("...", "…")
-                .replace("!..", "!")
-                .replace("?..", "?")
-                .replace(" -", " - ")
-                .replace("- ", " - ")
-                .replace("\u00ad", "")
-                .replace("\ufeff", "")
-                .replace("ª", "")
-                .replace("’", "")
-                .replace("´", "");
-        return Normalizer.normalize(normalised, Normalizer.Form.NFC);
-    }
+            tokensCount = tokens.size();
+            sentences = splitIntoSentences(entries);
+            markup = entries.stream()
+                    .map(entry -> entry.token() + "\t" + entry.analysis())
+                    .collect(Collectors.joining("\n"));
+        }
+    }
+
+    /**
+     * Receives the sentences produced by {@link #analyze(Reader, SentenceSink)}.
+     */
+    @FunctionalInterface
+    public interface SentenceSink {
+        void accept(List<TokenEntry> sentence) throws IOException;
+    }
+
+    /**
+     * State of one {@link #analyze(Reader, SentenceSink)} call: the sentence that continues into the
+     * next chunk and the running counts.
+     */
+    private final class StreamAnalysis {
+        private final SentenceSink sink;
+        private final Set<String> uniqueTokens = new HashSet<>();
+        private List<TokenEntry> current = new ArrayList<>();
+        private int tokensCount;
+        private int sentencesCount;
+
+        private StreamAnalysis(SentenceSink sink) {
+            this.sink = sink;
+        }
+
+        private void accept(String chunk) throws IOException {
+            TokenScanner.Tokens tokens = TokenScanner.scan(fix(chunk));
+            Map<String, String> taggedTokens = processTokens(tokens);
+            tokensCount += tokens.size();
+            for (int i = 0; i < tokens.size(); i++) {
+                String token = tokens.text(i);
+                uniqueTokens.add(token.toLowerCase(Locale.ROOT));
+                TokenEntry entry = new TokenEntry(token, taggedTokens.get(token));
+                current.add(entry);
+                if (endsSentence(entry)) {
+                    emit();
+                }
+            }
+        }
 
-    private boolean isSentencePunctuation(String token) {
-        return SENTENCE_PUNCTUATION.contains(token);
-    }
+        private TextStatistics finish() throws IOException {
+            if (!current.isEmpty()) {
+                emit();
+            }
+            return new TextStatistics(tokensCount, uniqueTokens.size(), sentencesCount);
+        }
 
-    private boolean isCommaLike(String token) {
-        return COMMA_LIKE.contains(token);
+        private void emit() throws IOException {
+            List<TokenEntry> sentence = Collections.unmodifiableList(current);
+            current = new ArrayList<>();
+            sentencesCount++;
+            sink.accept(sentence);
+        }
     }
 
-    private boolean isBracket(String token) {
-        return BRACKETS.contains(token);
-    }
+    /**
+     * Counts reported by {@link #analyze(Reader, SentenceSink)}.
+     */
+    public static final class TextStatistics {
+        private final int tokensCount;
+        private final int uniqueTokensCount;
+        private final int sentencesCount;
 
-    private boolean isQuote(String token) {
-        return QUOTES.contains(token);
-    }
+        private TextStatistics(int tokensCount, int uniqueTokensCount, int sentencesCount) {
+            this.tokensCount = tokensCount;
+            this.uniqueTokensCount = uniqueTokensCount;
+            this.sentencesCount = sentencesCount;
+        }
 
-    private static List<TokenEntry> unmodifiableCopy(List<TokenEntry> entries) {
-        return Collections.unmodifiableList(new ArrayList<>(entries));
-    }
+        public int tokensCount() {
+            return tokensCount;
+        }
 
-    private String trimPlus(String value) {
-        if (value.endsWith("+")) {
-            return value.substring(0, value.length() - 1);
+        public int uniqueTokensCount() {
+            return uniqueTokensCount;
+        }
+
+        public int sentencesCount() {
+            return sentencesCount;
         }
-        return value;
     }
 
     public static final class TokenEntry {
@@ -27,6 +27,11 @@ import java.security.cert.X509Certificate;
 import java.text.BreakIterator;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.regex.Matcher;
@@ -42,6 +47,10 @@ import java.util.regex.Pattern;
  * По умолчанию TLS-проверка включена (безопасно).
  * Для обхода кривого сертификата можно запустить JVM с -Dmorphology.ssl.insecure=true
  * или указать ваш trustStore: -Djavax.net.ssl.trustStore=... -Djavax.net.ssl.trustStorePassword=...
+ *
+ * Фрагменты текста отправляются параллельно (не более -Dmorphology.remote.concurrency=N запросов
+ * одновременно, по умолчанию 4); при ошибках число одновременных запросов уменьшается вдвое и затем
+ * постепенно восстанавливается. При N=1 фрагменты отправляются строго по одному.
  */
 public class RemoteMorphologyClient {
 
@@ -54,6 +63,7 @@ public class RemoteMorphologyClient {
             Duration.ofSeconds(10)
     };
     private static final int MAX_ATTEMPTS_PER_VARIANT = RETRY_DELAYS.length + 1;
+    private static final int DEFAULT_CONCURRENCY = 4;
 
     private static final String ORIGIN = "https://tugantel.tatar";
     private static final String REFERER = ORIGIN + "/new2022/morph/"; // важен слэш
@@ -81,15 +91,25 @@ public class RemoteMorphologyClient {
     private final HttpClient httpClient;
     private final List<URI> endpoints;
     private final int batchLimit;
+    private final int concurrency;
 
     /** Конфигурация по умолчанию. */
     public RemoteMorphologyClient() {
-        this(createHttpClientFromSystem(), DEFAULT_ENDPOINTS, DEFAULT_BATCH_LIMIT);
+        this(createHttpClientFromSystem(), DEFAULT_ENDPOINTS, DEFAULT_BATCH_LIMIT,
+                Integer.getInteger("morphology.remote.concurrency", DEFAULT_CONCURRENCY));
         warmupSession();
     }
 
-    /** Кастомный конструктор. */
+    /** Кастомный конструктор; фрагменты текста отправляются по одному. */
     public RemoteMorphologyClient(HttpClient httpClient, List<URI> endpoints, int batchLimit) {
+        this(httpClient, endpoints, batchLimit, 1);
+    }
+
+    /**
+     * Кастомный конструктор с ограничением числа одновременных запросов при разметке текста.
+     * При {@code concurrency == 1} используется прежний последовательный режим.
+     */
+    public RemoteMorphologyClient(HttpClient httpClient, List<URI> endpoints, int batchLimit, int concurrency) {
         this.httpClient = Objects.requireNonNull(httpClient, "httpClient");
         Objects.requireNonNull(endpoints, "endpoints");
         if (endpoints.isEmpty()) throw new IllegalArgumentException("At least one endpoint must be provided");
@@ -97,8 +117,10 @@ public class RemoteMorphologyClient {
             if (ep == null || !ep.isAbsolute()) throw new IllegalArgumentException("Endpoint URI must be absolute: " + ep);
         }
         if (batchLimit <= 0) throw new IllegalArgumentException("Batch limit must be positive");
+        if (concurrency <= 0) throw new IllegalArgumentException("Concurrency must be positive");
         this.endpoints = List.copyOf(endpoints);
         this.batchLimit = batchLimit;
+        this.concurrency = concurrency;
     }
 
     // -------------------- HttpClient factory --------------------
@@ -205,7 +227,25 @@ public class RemoteMorphologyClient {
     // -------------------- Warmup --------------------
 
     private void warmupSession() {
-        HttpRequest req = HttpRequest.newBuilder(URI.create(REFERER))
+        try {
+            httpClient.send(warmupRequest(), HttpResponse.BodyHandlers.discarding());
+        } catch (Exception ignore) {
+            // главное — попытаться получить cookie; ошибки прогрева не критичны
+        }
+    }
+
+    private CompletableFuture<Void> warmupSessionAsync() {
+        CompletableFuture<HttpResponse<Void>> request;
+        try {
+            request = httpClient.sendAsync(warmupRequest(), HttpResponse.BodyHandlers.discarding());
+        } catch (RuntimeException ignore) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return request.handle((response, error) -> null);
+    }
+
+    private static HttpRequest warmupRequest() {
+        return HttpRequest.newBuilder(URI.create(REFERER))
                 .GET()
                 .header("User-Agent", USER_AGENT)
                 .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
@@ -213,11 +253,6 @@ public class RemoteMorphologyClient {
                 .header("Referer", REFERER)
                 .timeout(REQUEST_TIMEOUT)
                 .build();
-        try {
-            httpClient.send(req, HttpResponse.BodyHandlers.discarding());
-        } catch (Exception ignore) {
-            // главное — попытаться получить cookie; ошибки прогрева не критичны
-        }
     }
 
     // -------------------- Public API --------------------
@@ -235,8 +270,20 @@ public class RemoteMorphologyClient {
     }
 
     public List<WordMarkup> analyzeText(String text, BatchProgressListener listener) {
+        return analyzeText(text, listener, null);
+    }
+
+    /**
+     * Размечает текст, беря уже полученные ответы из {@code store}: такие фрагменты не отправляются
+     * на сервис, а каждый новый ответ сохраняется в {@code store} сразу после получения, так что
+     * прерванный запуск можно повторить без потери готовых фрагментов.
+     *
+     * @param store хранилище ответов по тексту фрагмента или {@code null}
+     */
+    public List<WordMarkup> analyzeText(String text, BatchProgressListener listener, BatchStore store) {
         Objects.requireNonNull(text, "text");
         BatchProgressListener progress = (listener == null) ? BatchProgressListener.noOp() : listener;
+        BatchStore answers = (store == null) ? BatchStore.none() : store;
         String normalized = sanitizeForRequest(text);
         if (normalized.isEmpty()) {
             return Collections.emptyList();
@@ -246,29 +293,153 @@ public class RemoteMorphologyClient {
             return Collections.emptyList();
         }
 
+        if (concurrency > 1 && batches.size() > 1) {
+            return analyzeBatchesConcurrently(batches, progress, answers);
+        }
+
         List<WordMarkup> out = new ArrayList<>();
         int total = batches.size();
         for (int i = 0; i < total; i++) {
             String batch = batches.get(i);
             String sanitized = sanitizeForRequest(batch);
+            List<WordMarkup> part = answers.load(sanitized);
+            if (part != null) {
+                progress.onBatchDone(i + 1, total, true);
+                out.addAll(part);
+                continue;
+            }
             progress.onBatchStart(i + 1, total, sanitized);
-            List<WordMarkup> part = attemptEndpointsAndVariants(
+            part = attemptEndpointsAndVariants(
                     sanitized, TEXT_VARIANTS, this::parseFlexibleBatchResponse, describeBatch(sanitized)
 
             );
+            answers.store(sanitized, part);
+            progress.onBatchDone(i + 1, total, false);
             out.addAll(part);
         }
         return Collections.unmodifiableList(out);
     }
 
+    /**
+     * Отправляет фрагменты через {@link HttpClient#sendAsync}, держа в полёте не больше запросов, чем
+     * разрешает {@link AdaptiveConcurrencyLimit}, и собирает результаты в исходном порядке. После
+     * первой ошибки новые фрагменты не отправляются, а запросы в полёте и ожидающие повтора отменяются;
+     * выбрасывается первая возникшая ошибка.
+     */
+    private List<WordMarkup> analyzeBatchesConcurrently(List<String> batches,
+                                                        BatchProgressListener progress,
+                                                        BatchStore answers) {
+        int total = batches.size();
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(concurrency);
+        CompletableFuture<Void> failure = new CompletableFuture<>();
+        List<CompletableFuture<List<WordMarkup>>> requests = new ArrayList<>();
+        List<CompletableFuture<List<WordMarkup>>> pending = new ArrayList<>(total);
+        try {
+            for (int i = 0; i < total && !failure.isDone(); i++) {
+                int index = i + 1;
+                String sanitized = sanitizeForRequest(batches.get(i));
+                List<WordMarkup> stored = answers.load(sanitized);
+                if (stored != null) {
+                    progress.onBatchDone(index, total, true);
+                    pending.add(CompletableFuture.completedFuture(stored));
+                    continue;
+                }
+                limit.acquire();
+                if (failure.isDone()) {
+                    limit.release();
+                    break;
+                }
+                progress.onBatchStart(index, total, sanitized);
+                CompletableFuture<List<WordMarkup>> request = new AsyncAttempts<>(
+                        sanitized, TEXT_VARIANTS, this::parseFlexibleBatchResponse, describeBatch(sanitized), limit
+                ).start();
+                requests.add(request);
+                CompletableFuture<List<WordMarkup>> part = request.thenApply(result -> {
+                    answers.store(sanitized, result);
+                    progress.onBatchDone(index, total, false);
+                    return result;
+                });
+                part.whenComplete((result, error) -> {
+                    if (error != null) {
+                        // Before release(), so that the sending loop sees the failure once it wakes up.
+                        failure.completeExceptionally(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                    }
+                    limit.release();
+                });
+                pending.add(part);
+            }
+
+            CompletableFuture<?> all = CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]));
+            CompletableFuture.anyOf(all, failure).get();
+            if (failure.isDone()) {
+                failure.get();
+            }
+            List<WordMarkup> out = new ArrayList<>();
+            for (CompletableFuture<List<WordMarkup>> part : pending) {
+                out.addAll(part.join());
+            }
+            return Collections.unmodifiableList(out);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new MorphologyException("Interrupted while waiting for remote morphology results", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new MorphologyException("Failed to query remote morphology service", cause);
+        } finally {
+            for (CompletableFuture<List<WordMarkup>> request : requests) {
+                request.cancel(false);
+            }
+        }
+    }
+
     public interface BatchProgressListener {
+        /**
+         * Вызывается в потоке, вызвавшем {@code analyzeText}, перед отправкой очередного фрагмента;
+         * фрагменты сообщаются по порядку, но в параллельном режиме ответы на предыдущие могут ещё не прийти.
+         */
         void onBatchStart(int index, int total, String fragment);
 
+        /**
+         * Вызывается, когда ответ на фрагмент получен и сохранён, или когда фрагмент взят из
+         * {@link BatchStore} ({@code fromStore == true}; тогда {@link #onBatchStart} не вызывается).
+         * В параллельном режиме вызывается из потоков HTTP-клиента и не обязательно по порядку.
+         */
+        default void onBatchDone(int index, int total, boolean fromStore) { }
+
         static BatchProgressListener noOp() {
             return (index, total, fragment) -> { };
         }
     }
 
+    /**
+     * Хранилище ответов сервиса по тексту фрагмента. Реализации должны допускать одновременные вызовы.
+     */
+    public interface BatchStore {
+        /**
+         * @return сохранённый ответ для фрагмента или {@code null}, если его нет
+         */
+        List<WordMarkup> load(String fragment);
+
+        void store(String fragment, List<WordMarkup> markup);
+
+        static BatchStore none() {
+            return new BatchStore() {
+                @Override
+                public List<WordMarkup> load(String fragment) {
+                    return null;
+                }
+
+                @Override
+                public void store(String fragment, List<WordMarkup> markup) {
+                }
+            };
+        }
+    }
+
     // -------------------- batching --------------------
 
     List<String> splitIntoBatches(String text) {
@@ -384,6 +555,175 @@ public class RemoteMorphologyClient {
         throw new MorphologyException(msg);
     }
 
+    /**
+     * Асинхронный аналог {@link #attemptEndpointsAndVariants}: тот же порядок конечных точек, вариантов
+     * и повторов, те же задержки и то же сообщение об ошибке, но без блокировки потока.
+     */
+    private final class AsyncAttempts<T> {
+        private final String sanitized;
+        private final String encoded;
+        private final List<RequestVariant> variants;
+        private final Function<String, T> parser;
+        private final String ctx;
+        private final AdaptiveConcurrencyLimit limit;
+        private final List<String> failures = new ArrayList<>();
+        private final List<String> attemptFailures = new ArrayList<>();
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private volatile CompletableFuture<HttpResponse<String>> exchange;
+
+        private AsyncAttempts(String value,
+                              List<RequestVariant> variants,
+                              Function<String, T> parser,
+                              String ctx,
+                              AdaptiveConcurrencyLimit limit) {
+            this.sanitized = sanitizeForRequest(value);
+            this.encoded = urlEncode(sanitized);
+            this.variants = variants;
+            this.parser = parser;
+            this.ctx = ctx;
+            this.limit = limit;
+        }
+
+        /**
+         * @return результат; его отмена прерывает текущий запрос и отменяет повторы
+         */
+        CompletableFuture<T> start() {
+            result.whenComplete((value, error) -> {
+                CompletableFuture<HttpResponse<String>> current = exchange;
+                if (result.isCancelled() && current != null) {
+                    current.cancel(true);
+                }
+            });
+            attempt(0, 1);
+            return result;
+        }
+
+        private void attempt(int route, int attempt) {
+            if (result.isDone()) {
+                return;
+            }
+            if (route >= endpoints.size() * variants.size()) {
+                String msg = "Удалённый сервис не принял запрос (" + ctx + ")";
+                if (!failures.isEmpty()) msg += ": " + String.join("; ", failures);
+                result.completeExceptionally(new MorphologyException(msg));
+                return;
+            }
+            URI ep = endpoints.get(route / variants.size());
+            RequestVariant v = variants.get(route % variants.size());
+            try {
+                HttpRequest req = buildRequest(ep, v, sanitized, encoded);
+                CompletableFuture<HttpResponse<String>> sent =
+                        httpClient.sendAsync(req, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+                exchange = sent;
+                if (result.isCancelled()) {
+                    sent.cancel(true);
+                }
+                sent.whenComplete((resp, error) -> onResponse(route, attempt, ep, v, resp, error));
+            } catch (RuntimeException ex) {
+                onResponse(route, attempt, ep, v, null, ex);
+            }
+        }
+
+        private void onResponse(int route, int attempt, URI ep, RequestVariant v,
+                                HttpResponse<String> resp, Throwable error) {
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                if (error != null) {
+                    throw asRequestFailure(error);
+                }
+                T value = parser.apply(responseBody(resp));
+                limit.onSuccess();
+                result.complete(value);
+                return;
+            } catch (RuntimeException ex) {
+                String msg = ex instanceof MorphologyException || (ex.getMessage() != null && !ex.getMessage().isBlank())
+                        ? ex.getMessage() : ex.getClass().getSimpleName();
+                attemptFailures.add(formatAttemptFailure(attempt, msg));
+            } catch (Throwable unexpected) {
+                result.completeExceptionally(unexpected);
+                return;
+            }
+
+            limit.onFailure();
+            if (attempt < MAX_ATTEMPTS_PER_VARIANT) {
+                long delay = RETRY_DELAYS[Math.min(RETRY_DELAYS.length - 1, attempt - 1)].toMillis();
+                warmupSessionAsync().thenRunAsync(() -> attempt(route, attempt + 1),
+                        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+            } else {
+                failures.add(ep + " [" + v.description + "] -> " + String.join("; ", attemptFailures));
+                attemptFailures.clear();
+                attempt(route + 1, 1);
+            }
+        }
+    }
+
+    private static RuntimeException asRequestFailure(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException io) {
+            return requestFailure(io);
+        }
+        if (cause instanceof CancellationException cancelled) {
+            return cancelled;
+        }
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        return new MorphologyException("Failed to query remote morphology service ("
+                + cause.getClass().getSimpleName() + ")", cause);
+    }
+
+    /**
+     * AIMD-ограничитель числа одновременных запросов: каждая неудачная попытка вдвое уменьшает
+     * допустимое число запросов (но не ниже одного), а серия успешных ответов длиной в текущий предел
+     * увеличивает его на единицу, пока он не вернётся к максимуму.
+     */
+    static final class AdaptiveConcurrencyLimit {
+        private final int max;
+        private int limit;
+        private int inFlight;
+        private int successes;
+
+        AdaptiveConcurrencyLimit(int max) {
+            if (max <= 0) throw new IllegalArgumentException("Concurrency must be positive");
+            this.max = max;
+            this.limit = max;
+        }
+
+        synchronized void acquire() throws InterruptedException {
+            while (inFlight >= limit) {
+                wait();
+            }
+            inFlight++;
+        }
+
+        synchronized void release() {
+            inFlight--;
+            notifyAll();
+        }
+
+        synchronized void onSuccess() {
+            if (limit < max && ++successes >= limit) {
+                limit++;
+                successes = 0;
+                notifyAll();
+            }
+        }
+
+        synchronized void onFailure() {
+            limit = Math.max(1, limit / 2);
+            successes = 0;
+        }
+
+        synchronized int limit() {
+            return limit;
+        }
+    }
+
     private String formatAttemptFailure(int attempt, String message) {
         String details = (message == null || message.isBlank()) ? "неизвестная ошибка" : message;
         return "попытка " + attempt + ": " + details;
@@ -434,21 +774,28 @@ public class RemoteMorphologyClient {
 
     private String execute(HttpRequest request) {
         try {
-            HttpResponse<String> resp = httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
-            if (resp.statusCode() != 200) {
-                String body = resp.body();
-                String snippet = body != null ? body.substring(0, Math.min(200, body.length())).replaceAll("\\s+", " ").trim() : "";
-                throw new MorphologyException("Remote morphology service returned status " + resp.statusCode()
-                        + (snippet.isEmpty() ? "" : " — body: " + snippet));
-            }
-            return resp.body();
+            return responseBody(httpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
         } catch (InterruptedException ex) {
             Thread.currentThread().interrupt();
             throw new MorphologyException("Failed to query remote morphology service (InterruptedException)", ex);
         } catch (IOException ex) {
-            String msg = ex.getClass().getSimpleName() + (ex.getMessage() != null ? (": " + ex.getMessage()) : "");
-            throw new MorphologyException("Failed to query remote morphology service (" + msg + ")", ex);
+            throw requestFailure(ex);
+        }
+    }
+
+    private static String responseBody(HttpResponse<String> resp) {
+        if (resp.statusCode() != 200) {
+            String body = resp.body();
+            String snippet = body != null ? body.substring(0, Math.min(200, body.length())).replaceAll("\\s+", " ").trim() : "";
+            throw new MorphologyException("Remote morphology service returned status " + resp.statusCode()
+                    + (snippet.isEmpty() ? "" : " — body: " + snippet));
         }
+        return resp.body();
+    }
+
+    private static MorphologyException requestFailure(IOException ex) {
+        String msg = ex.getClass().getSimpleName() + (ex.getMessage() != null ? (": " + ex.getMessage()) : "");
+        return new MorphologyException("Failed to query remote morphology service (" + msg + ")", ex);
     }
 
     private static String urlEncode(String v) {
@@ -0,0 +1,184 @@
+package com.example.uqureader.webapp.morphology;
+
+import java.text.Normalizer;
+import java.util.Map;
+
+/**
+ * Text normalisation applied by {@link MorphologyAnalyzer} before tokenisation.
+ *
+ * <p>The text is read once. Every character first goes through the letter map and then through a
+ * chain of {@link #REWRITES}, one small state machine per rewrite, and is finally appended to a single
+ * output buffer. Each machine holds back only the characters that may still start its pattern, so the
+ * chain gives exactly the result of applying the rewrites one after another with
+ * {@link String#replace(CharSequence, CharSequence)}, including matches that appear only after an
+ * earlier rewrite has removed something. NFC normalisation is skipped when the result is already in
+ * NFC.</p>
+ */
+final class TextNormaliser {
+
+    private static final Map<Character, Character> LETTER_NORMALISATION = Map.ofEntries(
+            Map.entry('ђ', 'ә'), Map.entry('њ', 'ү'), Map.entry('ќ', 'җ'), Map.entry('љ', 'ө'),
+            Map.entry('ћ', 'ң'), Map.entry('џ', 'һ'), Map.entry('Ә', 'ә'), Map.entry('Ү', 'ү'),
+            Map.entry('Ө', 'ө'), Map.entry('Җ', 'җ'), Map.entry('Һ', 'һ'), Map.entry('Ң', 'ң'),
+            Map.entry('Ђ', 'Җ'), Map.entry('Љ', 'Ө'), Map.entry('Њ', 'ү'), Map.entry('Ќ', 'Җ'),
+            Map.entry('Џ', 'һ'), Map.entry('Ћ', 'Ң'));
+
+    /**
+     * Pattern and replacement pairs, applied in this order: hyphenation joining first, then the
+     * punctuation rewrites, then removal of invisible and stray characters.
+     */
+    private static final String[][] REWRITES = {
+            {"-\r\n", ""},
+            {"-\n\r", ""},
+            {"-\n", ""},
+            {"-\r", ""},
+            {"¬", ""},
+            {"...", "…"},
+            {"!..", "!"},
+            {"?..", "?"},
+            {" -", " - "},
+            {"- ", " - "},
+            {"\u00ad", ""},
+            {"\ufeff", ""},
+            {"ª", ""},
+            {"’", ""},
+            {"´", ""}
+    };
+
+    private static final char[] LETTERS;
+    private static final boolean[] PATTERN_STARTS = new boolean[Character.MAX_VALUE + 1];
+
+    static {
+        char max = 0;
+        for (char key : LETTER_NORMALISATION.keySet()) {
+            max = (char) Math.max(max, key);
+        }
+        LETTERS = new char[max + 1];
+        LETTER_NORMALISATION.forEach((key, value) -> LETTERS[key] = value);
+        for (String[] rewrite : REWRITES) {
+            PATTERN_STARTS[rewrite[0].charAt(0)] = true;
+        }
+    }
+
+    private final StringBuilder output;
+    private final Rewrite first;
+    private int busyRewrites;
+
+    private TextNormaliser(int capacity) {
+        this.output = new StringBuilder(capacity);
+        Rewrite next = null;
+        for (int i = REWRITES.length - 1; i >= 0; i--) {
+            next = new Rewrite(REWRITES[i][0], REWRITES[i][1], next);
+        }
+        this.first = next;
+    }
+
+    /**
+     * Normalises letters, joins hyphenated line breaks, rewrites punctuation and converts the result
+     * to NFC.
+     */
+    static String normalise(String text) {
+        if (text.isEmpty()) {
+            return text;
+        }
+        TextNormaliser normaliser = new TextNormaliser(text.length());
+        String normalised = normaliser.run(text);
+        if (Normalizer.isNormalized(normalised, Normalizer.Form.NFC)) {
+            return normalised;
+        }
+        return Normalizer.normalize(normalised, Normalizer.Form.NFC);
+    }
+
+    private String run(String text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char ch = text.charAt(i);
+            if (ch < LETTERS.length && LETTERS[ch] != 0) {
+                ch = LETTERS[ch];
+            }
+            if (busyRewrites == 0 && !PATTERN_STARTS[ch]) {
+                output.append(ch);
+            } else {
+                first.accept(ch);
+            }
+        }
+        for (Rewrite rewrite = first; rewrite != null; rewrite = rewrite.next) {
+            rewrite.finish();
+        }
+        return output.toString();
+    }
+
+    /**
+     * Streaming {@link String#replace(CharSequence, CharSequence)} for one pattern. Characters are
+     * passed on to the next rewrite as soon as they can no longer be part of a match.
+     */
+    private final class Rewrite {
+        private final char[] pattern;
+        private final String replacement;
+        private final Rewrite next;
+        private final char[] pending;
+        private int pendingLength;
+
+        private Rewrite(String pattern, String replacement, Rewrite next) {
+            this.pattern = pattern.toCharArray();
+            this.replacement = replacement;
+            this.next = next;
+            this.pending = new char[this.pattern.length];
+        }
+
+        private void accept(char ch) {
+            if (pendingLength == 0) {
+                if (ch != pattern[0]) {
+                    pass(ch);
+                    return;
+                }
+                busyRewrites++;
+            }
+            pending[pendingLength++] = ch;
+            int start = 0;
+            while (!pendingIsPrefix(start)) {
+                pass(pending[start++]);
+            }
+            if (start > 0) {
+                System.arraycopy(pending, start, pending, 0, pendingLength - start);
+                pendingLength -= start;
+            }
+            if (pendingLength == pattern.length) {
+                pendingLength = 0;
+                for (int i = 0; i < replacement.length(); i++) {
+                    pass(replacement.charAt(i));
+                }
+            }
+            if (pendingLength == 0) {
+                busyRewrites--;
+            }
+        }
+
+        private boolean pendingIsPrefix(int start) {
+            for (int i = start; i < pendingLength; i++) {
+                if (pending[i] != pattern[i - start]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void pass(char ch) {
+            if (next == null) {
+                output.append(ch);
+            } else {
+                next.accept(ch);
+            }
+        }
+
+        private void finish() {
+            for (int i = 0; i < pendingLength; i++) {
+                pass(pending[i]);
+            }
+            if (pendingLength > 0) {
+                pendingLength = 0;
+                busyRewrites--;
+            }
+        }
+    }
+}
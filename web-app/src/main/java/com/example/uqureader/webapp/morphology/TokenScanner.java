@@ -0,0 +1,272 @@
+package com.example.uqureader.webapp.morphology;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Single-pass tokenizer and token classifier of {@link MorphologyAnalyzer}.
+ *
+ * <p>The scanner looks every character up in a table of character types instead of running regular
+ * expressions. Tokens are the runs of text between separators, each non-space separator and each run
+ * of ASCII digits. Runs of text are stripped of surrounding whitespace and hyphens. Every token
+ * carries its {@link TokenClass}, so only words have to be analysed further. The result is the same as
+ * that of the former split pattern
+ * {@code ([ .,!?\n\r\t“”„‘«»≪≫{}()\[\]:;'"+=*—_^…|/\\ ]|[0-9]+)} followed by the
+ * {@code Num}/{@code Type1}–{@code Type4}/{@code Sign}/{@code Latin} patterns.</p>
+ */
+final class TokenScanner {
+
+    /**
+     * Class of a token and the analysis it gets without the transducer.
+     */
+    enum TokenClass {
+        NEWLINE("NL"),
+        NUMBER("Num"),
+        SENTENCE_END("Type1"),
+        COMMA("Type2"),
+        BRACKET("Type3"),
+        QUOTE("Type4"),
+        SIGN("Sign"),
+        LATIN("Latin"),
+        /** Cyrillic word, optionally with one inner hyphen; analysed by the transducer. */
+        WORD(null),
+        ERROR("Error");
+
+        private final String tag;
+
+        TokenClass(String tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * @return fixed analysis of the class, or {@code null} for {@link #WORD}
+         */
+        String tag() {
+            return tag;
+        }
+    }
+
+    private static final byte OTHER = 0;
+    private static final byte SPACE = 1;
+    private static final byte SEPARATOR = 2;
+    private static final byte DIGIT = 3;
+    private static final byte CYRILLIC = 4;
+    private static final byte LATIN = 5;
+
+    private static final String SPACES = " \n\r\t";
+    private static final String SEPARATORS = ".,!?“”„‘«»≪≫{}()[]:;'\"+=*—_^…|/\\";
+    private static final String TATAR_LETTERS = "өӨүҮһҺңҢҗҖәӘЁё";
+
+    private static final byte[] CHAR_TYPES = new byte[Character.MAX_VALUE + 1];
+    private static final String[] SEPARATOR_TOKENS = new String[Character.MAX_VALUE + 1];
+
+    static {
+        for (char ch = 'а'; ch <= 'я'; ch++) {
+            CHAR_TYPES[ch] = CYRILLIC;
+        }
+        for (char ch = 'А'; ch <= 'Я'; ch++) {
+            CHAR_TYPES[ch] = CYRILLIC;
+        }
+        for (char ch : TATAR_LETTERS.toCharArray()) {
+            CHAR_TYPES[ch] = CYRILLIC;
+        }
+        for (char ch = 'a'; ch <= 'z'; ch++) {
+            CHAR_TYPES[ch] = LATIN;
+            CHAR_TYPES[Character.toUpperCase(ch)] = LATIN;
+        }
+        for (char ch = '0'; ch <= '9'; ch++) {
+            CHAR_TYPES[ch] = DIGIT;
+        }
+        for (char ch : SPACES.toCharArray()) {
+            CHAR_TYPES[ch] = SPACE;
+        }
+        for (char ch : SEPARATORS.toCharArray()) {
+            CHAR_TYPES[ch] = SEPARATOR;
+            SEPARATOR_TOKENS[ch] = String.valueOf(ch);
+        }
+    }
+
+    private TokenScanner() {
+    }
+
+    /**
+     * Splits normalised text into tokens in one pass.
+     */
+    static Tokens scan(String text) {
+        return scan(text, 0, text.length());
+    }
+
+    /**
+     * Splits the range {@code [start, end)} of normalised text into tokens as if it were a text of its
+     * own.
+     */
+    static Tokens scan(String text, int start, int end) {
+        Tokens tokens = new Tokens(Math.max(16, (end - start) / 4));
+        int segmentStart = start;
+        int i = start;
+        while (i < end) {
+            char ch = text.charAt(i);
+            byte type = CHAR_TYPES[ch];
+            if (type == SPACE || type == SEPARATOR) {
+                addSegment(tokens, text, segmentStart, i);
+                if (type == SEPARATOR) {
+                    tokens.add(SEPARATOR_TOKENS[ch], classifySingle(ch));
+                }
+                i++;
+                segmentStart = i;
+            } else if (type == DIGIT) {
+                addSegment(tokens, text, segmentStart, i);
+                int digitsEnd = i + 1;
+                while (digitsEnd < end && CHAR_TYPES[text.charAt(digitsEnd)] == DIGIT) {
+                    digitsEnd++;
+                }
+                tokens.add(text.substring(i, digitsEnd), TokenClass.NUMBER);
+                i = digitsEnd;
+                segmentStart = digitsEnd;
+            } else {
+                i++;
+            }
+        }
+        addSegment(tokens, text, segmentStart, end);
+        return tokens;
+    }
+
+    /**
+     * Classifies an arbitrary token the way {@link #scan(String)} classifies the tokens it emits.
+     */
+    static TokenClass classify(String token) {
+        int length = token.length();
+        if (length == 0) {
+            return TokenClass.ERROR;
+        }
+        if ("\n".equals(token) || "\n\r".equals(token)) {
+            return TokenClass.NEWLINE;
+        }
+        int first = token.codePointAt(0);
+        if (Character.charCount(first) == length) {
+            return classifySingle(first);
+        }
+        boolean digits = true;
+        boolean latin = true;
+        boolean cyrillic = true;
+        int hyphens = 0;
+        for (int i = 0; i < length; i++) {
+            char ch = token.charAt(i);
+            byte type = CHAR_TYPES[ch];
+            digits &= type == DIGIT;
+            if (ch == '-') {
+                hyphens++;
+            } else {
+                latin &= type == LATIN;
+                cyrillic &= type == CYRILLIC;
+            }
+        }
+        if (digits) {
+            return TokenClass.NUMBER;
+        }
+        if (latin) {
+            return TokenClass.LATIN;
+        }
+        if (cyrillic && (hyphens == 0
+                || (hyphens == 1 && token.charAt(0) != '-' && token.charAt(length - 1) != '-'))) {
+            return TokenClass.WORD;
+        }
+        return TokenClass.ERROR;
+    }
+
+    private static TokenClass classifySingle(int codePoint) {
+        switch (codePoint) {
+            case '.', '!', '?', '…':
+                return TokenClass.SENTENCE_END;
+            case ',', ':', ';', '—', '–', '-', '_':
+                return TokenClass.COMMA;
+            case '(', ')', '[', ']', '{', '}':
+                return TokenClass.BRACKET;
+            case '“', '”', '"', '\'', '»', '«', '≪', '≫', '„', '‘':
+                return TokenClass.QUOTE;
+            default:
+                break;
+        }
+        if (codePoint > Character.MAX_VALUE) {
+            return TokenClass.SIGN;
+        }
+        byte type = CHAR_TYPES[codePoint];
+        if (type == DIGIT) {
+            return TokenClass.NUMBER;
+        }
+        return type == CYRILLIC ? TokenClass.WORD : TokenClass.SIGN;
+    }
+
+    /**
+     * Adds the text between two separators after {@link String#strip()} and removal of leading and
+     * trailing hyphens, in that order.
+     */
+    private static void addSegment(Tokens tokens, String text, int start, int end) {
+        while (start < end) {
+            int codePoint = text.codePointAt(start);
+            if (!Character.isWhitespace(codePoint)) {
+                break;
+            }
+            start += Character.charCount(codePoint);
+        }
+        while (end > start) {
+            int codePoint = text.codePointBefore(end);
+            if (!Character.isWhitespace(codePoint)) {
+                break;
+            }
+            end -= Character.charCount(codePoint);
+        }
+        while (start < end && text.charAt(start) == '-') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) == '-') {
+            end--;
+        }
+        if (start < end) {
+            String token = text.substring(start, end);
+            tokens.add(token, classify(token));
+        }
+    }
+
+    /**
+     * Tokens of one text with their classes, in text order.
+     */
+    static final class Tokens {
+        private String[] texts;
+        private TokenClass[] classes;
+        private int size;
+
+        private Tokens(int capacity) {
+            texts = new String[capacity];
+            classes = new TokenClass[capacity];
+        }
+
+        private void add(String text, TokenClass tokenClass) {
+            if (size == texts.length) {
+                int capacity = size + (size >> 1) + 1;
+                texts = Arrays.copyOf(texts, capacity);
+                classes = Arrays.copyOf(classes, capacity);
+            }
+            texts[size] = text;
+            classes[size] = tokenClass;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        String text(int index) {
+            return texts[index];
+        }
+
+        TokenClass tokenClass(int index) {
+            return classes[index];
+        }
+
+        List<String> asList() {
+            return Collections.unmodifiableList(Arrays.asList(texts).subList(0, size));
+        }
+    }
+}
@@ -7,9 +7,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayDeque;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -21,6 +25,9 @@ import java.util.Objects;
  * The code mirrors the behaviour of the original Python implementation bundled with the
  * {@code py_tat_morphan} project, but has been translated to Java so it can be embedded in the
  * web application without relying on a Python runtime.
+ *
+ * <p>A loaded transducer is immutable and thread-safe: concurrent {@link #analyze(String)} calls
+ * share the transition tables and each keep their traversal state in a per-call context.
  */
 public final class HfstTransducer {
 
@@ -29,12 +36,11 @@ public final class HfstTransducer {
     private static final long TRANSITION_TARGET_TABLE_START = 2147483648L; // 2^31
     private static final long NO_TABLE_INDEX = 4294967295L; // unsigned int max
     private static final int NO_SYMBOL_NUMBER = 65535; // unsigned short max
+    private static final int INDEX_ENTRY_SIZE = 6;
 
-    private final Alphabet alphabet;
-    private final AbstractTransducer transducer;
+    private final Transducer transducer;
 
-    private HfstTransducer(Alphabet alphabet, AbstractTransducer transducer) {
-        this.alphabet = alphabet;
+    private HfstTransducer(Transducer transducer) {
         this.transducer = transducer;
     }
 
@@ -43,18 +49,56 @@ public final class HfstTransducer {
         try {
             Header header = Header.read(stream);
             Alphabet alphabet = Alphabet.read(stream, header.numberOfSymbols);
-            AbstractTransducer transducer;
-            if (header.weighted) {
-                transducer = new WeightedTransducer(stream, header, alphabet);
-            } else {
-                transducer = new SimpleTransducer(stream, header, alphabet);
-            }
-            return new HfstTransducer(alphabet, transducer);
+            TransitionTables tables = ArrayTransitionTables.read(stream, header);
+            return new HfstTransducer(new Transducer(alphabet, tables));
         } catch (IOException ex) {
             throw new MorphologyException("Failed to load HFST transducer", ex);
         }
     }
 
+    /**
+     * Maps a transducer file read-only into memory. The header and alphabet are parsed eagerly while
+     * the transition tables are read in place from the mapping, so loading does not copy the tables
+     * onto the heap and processes sharing the file share its page cache.
+     *
+     * @param path path to an {@code .hfstol} file
+     * @return transducer backed by the mapped file
+     */
+    public static HfstTransducer map(Path path) {
+        Objects.requireNonNull(path, "path");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return readInPlace(buffer);
+        } catch (IOException ex) {
+            throw new MorphologyException("Failed to map HFST transducer " + path.toAbsolutePath(), ex);
+        }
+    }
+
+    /**
+     * Reads a transducer from the remaining bytes of a buffer, for example a section of a larger
+     * mapped file, in the same way as {@link #map(Path)}: the transition tables stay in the buffer, so
+     * its contents must not change while the transducer is in use.
+     *
+     * @param buffer {@code .hfstol} data; its position is not changed
+     * @return transducer backed by the buffer
+     */
+    public static HfstTransducer wrap(ByteBuffer buffer) {
+        Objects.requireNonNull(buffer, "buffer");
+        try {
+            return readInPlace(buffer.duplicate());
+        } catch (IOException ex) {
+            throw new MorphologyException("Failed to read HFST transducer from buffer", ex);
+        }
+    }
+
+    private static HfstTransducer readInPlace(ByteBuffer buffer) throws IOException {
+        InputStream stream = new BufferInputStream(buffer);
+        Header header = Header.read(stream);
+        Alphabet alphabet = Alphabet.read(stream, header.numberOfSymbols);
+        TransitionTables tables = BufferTransitionTables.slice(buffer, header);
+        return new HfstTransducer(new Transducer(alphabet, tables));
+    }
+
     public List<Analysis> analyze(String input) {
         if (input == null || input.isEmpty()) {
             return Collections.emptyList();
@@ -80,6 +124,10 @@ public final class HfstTransducer {
             this.weighted = weighted;
         }
 
+        int transitionEntrySize() {
+            return weighted ? 12 : 8;
+        }
+
         static Header read(InputStream stream) throws IOException {
             byte[] prefix = readFully(stream, 5);
             byte[] headerBytes;
@@ -134,17 +182,23 @@ public final class HfstTransducer {
 
     private static final class Alphabet {
         private final List<String> keyTable;
-        private final Map<Integer, FlagDiacriticOperation> flagDiacriticOperations;
+        private final FlagDiacriticOperation[] flagDiacriticOperations;
+        private final int flagFeatureCount;
 
         private Alphabet(List<String> keyTable,
-                         Map<Integer, FlagDiacriticOperation> flagDiacriticOperations) {
+                         FlagDiacriticOperation[] flagDiacriticOperations,
+                         int flagFeatureCount) {
             this.keyTable = keyTable;
             this.flagDiacriticOperations = flagDiacriticOperations;
+            this.flagFeatureCount = flagFeatureCount;
         }
 
         static Alphabet read(InputStream stream, int numberOfSymbols) throws IOException {
             List<String> keyTable = new ArrayList<>(numberOfSymbols);
-            Map<Integer, FlagDiacriticOperation> operations = new HashMap<>();
+            FlagDiacriticOperation[] operations = new FlagDiacriticOperation[numberOfSymbols];
+            Map<String, Integer> features = new HashMap<>();
+            Map<String, Integer> values = new HashMap<>();
+            values.put("", FlagDiacriticOperation.EMPTY_VALUE);
             for (int i = 0; i < numberOfSymbols; i++) {
                 keyTable.add("");
             }
@@ -155,9 +209,9 @@ public final class HfstTransducer {
                         && symbol.charAt(symbol.length() - 1) == '@'
                         && symbol.charAt(2) == '.'
                         && "PNRDCU".indexOf(symbol.charAt(1)) >= 0) {
-                    FlagDiacriticOperation operation = parseFlag(symbol.substring(1, symbol.length() - 1));
+                    FlagDiacriticOperation operation = parseFlag(symbol.substring(1, symbol.length() - 1), features, values);
                     if (operation != null) {
-                        operations.put(i, operation);
+                        operations[i] = operation;
                         keyTable.set(i, "");
                         continue;
                     }
@@ -167,8 +221,11 @@ public final class HfstTransducer {
             if (!keyTable.isEmpty()) {
                 keyTable.set(0, "");
             }
-            return new Alphabet(Collections.unmodifiableList(keyTable),
-                    Collections.unmodifiableMap(operations));
+            return new Alphabet(Collections.unmodifiableList(keyTable), operations, features.size());
+        }
+
+        FlagDiacriticOperation flagDiacriticOperation(int symbol) {
+            return symbol < flagDiacriticOperations.length ? flagDiacriticOperations[symbol] : null;
         }
 
         private static String readSymbol(InputStream stream) throws IOException {
@@ -186,50 +243,54 @@ public final class HfstTransducer {
             return buffer.toString(StandardCharsets.UTF_8);
         }
 
-        private static FlagDiacriticOperation parseFlag(String body) {
+        /**
+         * Parses the body of a flag diacritic symbol, interning its feature and value names to small
+         * integer ids so that the flag state of a lookup fits into an {@code int[]} frame.
+         */
+        private static FlagDiacriticOperation parseFlag(String body,
+                                                        Map<String, Integer> features,
+                                                        Map<String, Integer> values) {
             String[] parts = body.split("\\.", -1);
-            if (parts.length == 2) {
-                return new FlagDiacriticOperation(parts[0], parts[1], "");
-            }
-            if (parts.length == 3) {
-                return new FlagDiacriticOperation(parts[0], parts[1], parts[2]);
+            if (parts.length != 2 && parts.length != 3) {
+                return null;
             }
-            return null;
+            String value = parts.length == 3 ? parts[2] : "";
+            int featureId = features.computeIfAbsent(parts[1], key -> features.size());
+            int valueId = values.computeIfAbsent(value, key -> values.size());
+            return new FlagDiacriticOperation(parts[0].charAt(0), featureId, valueId);
         }
     }
 
-    private abstract static class AbstractTransducer {
-        protected final Alphabet alphabet;
-        protected final FlagDiacriticStateStack stateStack = new FlagDiacriticStateStack();
-        protected final LetterTrie letterTrie;
-        protected IndexList outputString = new IndexList();
-        protected IndexList inputString = new IndexList();
-
-        protected AbstractTransducer(Alphabet alphabet, LetterTrie letterTrie) {
+    /**
+     * Loaded transducer: the alphabet, the letter trie and the transition tables. Instances are
+     * immutable after construction and may be shared between threads: every lookup keeps its
+     * traversal state in a {@link LookupContext} that is pooled per thread and reset between calls.
+     */
+    private static final class Transducer {
+        private final Alphabet alphabet;
+        private final LetterTrie letterTrie;
+        private final TransitionTables tables;
+        private final ThreadLocal<LookupContext> contexts;
+
+        private Transducer(Alphabet alphabet, TransitionTables tables) {
             this.alphabet = alphabet;
-            this.letterTrie = letterTrie;
+            this.letterTrie = buildTrie(alphabet);
+            this.tables = tables;
+            this.contexts = ThreadLocal.withInitial(() -> new LookupContext(alphabet.flagFeatureCount));
         }
 
-        abstract List<Analysis> analyze(String input);
-    }
-
-    private static final class SimpleTransducer extends AbstractTransducer {
-
-        private final TransitionIndex[] indices;
-        private final Transition[] transitions;
-
-        private SimpleTransducer(InputStream stream, Header header, Alphabet alphabet) throws IOException {
-            super(alphabet, buildTrie(alphabet));
-            this.indices = readIndices(stream, header.sizeOfTransitionIndexTable);
-            this.transitions = readTransitions(stream, header.sizeOfTransitionTargetTable);
+        List<Analysis> analyze(String input) {
+            LookupContext context = contexts.get();
+            context.reset();
+            if (!tokenize(input, context.cursor, context.inputString)) {
+                return Collections.emptyList();
+            }
+            getAnalyses(0, context);
+            return context.takeResults();
         }
 
-        @Override
-        List<Analysis> analyze(String input) {
-            InputCursor cursor = new InputCursor(input);
-            List<Analysis> displayVector = new ArrayList<>();
-            outputString = IndexList.singleton(NO_SYMBOL_NUMBER);
-            inputString = new IndexList();
+        private boolean tokenize(String input, InputCursor cursor, IndexList inputString) {
+            cursor.reset(input);
             while (cursor.hasMore()) {
                 int previous = cursor.position();
                 int symbol = letterTrie.findKey(cursor);
@@ -242,108 +303,110 @@ public final class HfstTransducer {
                 }
             }
             if (inputString.isEmpty() || inputString.lastValue() == NO_SYMBOL_NUMBER) {
-                return Collections.emptyList();
+                return false;
             }
             inputString.append(NO_SYMBOL_NUMBER);
-            getAnalyses(0, displayVector);
-            return displayVector;
+            return true;
         }
 
-        private void getAnalyses(long index, List<Analysis> displayVector) {
+        private void getAnalyses(long index, LookupContext context) {
             if (index >= TRANSITION_TARGET_TABLE_START) {
                 int baseIndex = (int) (index - TRANSITION_TARGET_TABLE_START);
-                tryEpsilonTransitions(baseIndex + 1, displayVector);
-                if (inputString.get() == NO_SYMBOL_NUMBER) {
-                    if (isFinalTransition(baseIndex)) {
-                        noteAnalysis(displayVector, 0.0);
+                tryEpsilonTransitions(baseIndex + 1, context);
+                if (context.inputString.get() == NO_SYMBOL_NUMBER) {
+                    if (tables.isFinalTransition(baseIndex)) {
+                        noteAnalysis(context, context.currentWeight + tables.transitionWeight(baseIndex));
                     }
-                    outputString.put(NO_SYMBOL_NUMBER);
+                    context.outputString.put(NO_SYMBOL_NUMBER);
                     return;
                 }
-                inputString.increment();
-                findTransitions(baseIndex + 1, displayVector);
+                context.inputString.increment();
+                findTransitions(baseIndex + 1, context);
             } else {
                 int tableIndex = (int) index;
-                tryEpsilonIndices(tableIndex + 1, displayVector);
-                if (inputString.get() == NO_SYMBOL_NUMBER) {
-                    if (indices[tableIndex].isFinal()) {
-                        noteAnalysis(displayVector, 0.0);
+                tryEpsilonIndices(tableIndex + 1, context);
+                if (context.inputString.get() == NO_SYMBOL_NUMBER) {
+                    if (tables.isFinalIndex(tableIndex)) {
+                        noteAnalysis(context, context.currentWeight + tables.finalIndexWeight(tableIndex));
                     }
-                    outputString.put(NO_SYMBOL_NUMBER);
+                    context.outputString.put(NO_SYMBOL_NUMBER);
                     return;
                 }
-                inputString.increment();
-                findIndex(tableIndex + 1, displayVector);
+                context.inputString.increment();
+                findIndex(tableIndex + 1, context);
             }
-            inputString.decrement();
-            outputString.put(NO_SYMBOL_NUMBER);
+            context.inputString.decrement();
+            context.outputString.put(NO_SYMBOL_NUMBER);
         }
 
-        private void noteAnalysis(List<Analysis> displayVector, double weight) {
-            StringBuilder output = new StringBuilder();
-            for (int value : outputString.values()) {
+        private void noteAnalysis(LookupContext context, double weight) {
+            StringBuilder output = context.output;
+            output.setLength(0);
+            IndexList outputString = context.outputString;
+            for (int i = 0; i < outputString.size(); i++) {
+                int value = outputString.valueAt(i);
                 if (value == NO_SYMBOL_NUMBER) {
                     break;
                 }
                 output.append(alphabet.keyTable.get(value));
             }
-            displayVector.add(new Analysis(output.toString(), weight));
+            context.addResult(new Analysis(output.toString(), weight));
         }
 
-        private void tryEpsilonIndices(int index, List<Analysis> displayVector) {
-            if (index < indices.length && indices[index].inputSymbol == 0) {
-                long target = indices[index].target - TRANSITION_TARGET_TABLE_START;
-                if (target >= 0 && target < transitions.length) {
-                    tryEpsilonTransitions((int) target + 1, displayVector);
+        private void tryEpsilonIndices(int index, LookupContext context) {
+            if (index < tables.indexCount && tables.indexInput(index) == 0) {
+                long target = tables.indexTarget(index) - TRANSITION_TARGET_TABLE_START;
+                if (target >= 0 && target < tables.transitionCount) {
+                    tryEpsilonTransitions((int) target + 1, context);
                 }
             }
         }
 
-        private void tryEpsilonTransitions(int index, List<Analysis> displayVector) {
-            while (index < transitions.length) {
-                Transition transition = transitions[index];
-                if (transition.inputSymbol == 0) {
-                    traverse(index, displayVector);
+        private void tryEpsilonTransitions(int index, LookupContext context) {
+            while (index < tables.transitionCount) {
+                int inputSymbol = tables.transitionInput(index);
+                if (inputSymbol == 0) {
+                    traverse(index, context);
                     index += 1;
                     continue;
                 }
-                FlagDiacriticOperation operation = alphabet.flagDiacriticOperations.get(transition.inputSymbol);
+                FlagDiacriticOperation operation = alphabet.flagDiacriticOperation(inputSymbol);
                 if (operation != null) {
-                    if (!stateStack.push(operation)) {
+                    if (!context.stateStack.push(operation)) {
                         index += 1;
                         continue;
                     }
-                    traverse(index, displayVector);
+                    traverse(index, context);
                     index += 1;
-                    stateStack.pop();
+                    context.stateStack.pop();
                     continue;
                 }
                 return;
             }
         }
 
-        private void findIndex(int index, List<Analysis> displayVector) {
-            int adjustment = inputString.get(-1);
+        private void findIndex(int index, LookupContext context) {
+            int adjustment = context.inputString.get(-1);
             int slot = index + adjustment;
-            if (slot >= 0 && slot < indices.length) {
-                TransitionIndex transitionIndex = indices[slot];
-                if (transitionIndex.inputSymbol == adjustment) {
-                    long target = transitionIndex.target - TRANSITION_TARGET_TABLE_START;
-                    if (target >= 0 && target < transitions.length) {
-                        findTransitions((int) target + 1, displayVector);
+            if (slot >= 0 && slot < tables.indexCount) {
+                if (tables.indexInput(slot) == adjustment) {
+                    long target = tables.indexTarget(slot) - TRANSITION_TARGET_TABLE_START;
+                    if (target >= 0 && target < tables.transitionCount) {
+                        findTransitions((int) target + 1, context);
                     }
                 }
             }
         }
 
-        private void findTransitions(int index, List<Analysis> displayVector) {
-            while (index < transitions.length) {
-                Transition transition = transitions[index];
-                if (transition.inputSymbol == NO_SYMBOL_NUMBER) {
+        private void findTransitions(int index, LookupContext context) {
+            int symbol = context.inputString.get(-1);
+            while (index < tables.transitionCount) {
+                int inputSymbol = tables.transitionInput(index);
+                if (inputSymbol == NO_SYMBOL_NUMBER) {
                     return;
                 }
-                if (transition.inputSymbol == inputString.get(-1)) {
-                    traverse(index, displayVector);
+                if (inputSymbol == symbol) {
+                    traverse(index, context);
                 } else {
                     return;
                 }
@@ -351,362 +414,368 @@ public final class HfstTransducer {
             }
         }
 
-        private void traverse(int index, List<Analysis> displayVector) {
-            Transition transition = transitions[index];
-            outputString.put(transition.outputSymbol);
-            outputString.increment();
-            getAnalyses(transition.target, displayVector);
-            outputString.decrement();
+        private void traverse(int index, LookupContext context) {
+            double weight = tables.transitionWeight(index);
+            context.outputString.put(tables.transitionOutput(index));
+            context.outputString.increment();
+            context.currentWeight += weight;
+            getAnalyses(tables.transitionTarget(index), context);
+            context.outputString.decrement();
+            context.currentWeight -= weight;
         }
+    }
 
-        private boolean isFinalTransition(int index) {
-            if (index < 0 || index >= transitions.length) {
-                return false;
-            }
-            Transition transition = transitions[index];
-            return transition.isFinal();
+    /**
+     * Mutable state of a single lookup: the tokenised input, the output being assembled, the flag
+     * diacritic stack, the accumulated weight and the collected analyses.
+     */
+    private static final class LookupContext {
+        private final InputCursor cursor = new InputCursor();
+        private final IndexList inputString = new IndexList();
+        private final IndexList outputString = new IndexList();
+        private final FlagDiacriticStateStack stateStack;
+        private final StringBuilder output = new StringBuilder();
+        private List<Analysis> results;
+        private double currentWeight = 0.0;
+
+        private LookupContext(int flagFeatureCount) {
+            this.stateStack = new FlagDiacriticStateStack(flagFeatureCount);
         }
 
-        private static TransitionIndex[] readIndices(InputStream stream, int count) throws IOException {
-            byte[] bytes = readFully(stream, count * 6);
-            TransitionIndex[] result = new TransitionIndex[count];
-            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
-            for (int i = 0; i < count; i++) {
-                int input = Short.toUnsignedInt(buffer.getShort());
-                long target = Integer.toUnsignedLong(buffer.getInt());
-                result[i] = new TransitionIndex(input, target);
-            }
-            return result;
+        private void reset() {
+            cursor.reset(null);
+            inputString.clear();
+            outputString.clear();
+            outputString.append(NO_SYMBOL_NUMBER);
+            stateStack.clear();
+            results = null;
+            currentWeight = 0.0;
         }
 
-        private static Transition[] readTransitions(InputStream stream, int count) throws IOException {
-            byte[] bytes = readFully(stream, count * 8);
-            Transition[] result = new Transition[count];
-            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
-            for (int i = 0; i < count; i++) {
-                int input = Short.toUnsignedInt(buffer.getShort());
-                int output = Short.toUnsignedInt(buffer.getShort());
-                long target = Integer.toUnsignedLong(buffer.getInt());
-                result[i] = new Transition(input, output, target);
+        private void addResult(Analysis analysis) {
+            if (results == null) {
+                results = new ArrayList<>();
             }
-            return result;
+            results.add(analysis);
+        }
+
+        private List<Analysis> takeResults() {
+            List<Analysis> taken = results == null ? Collections.emptyList() : results;
+            results = null;
+            return taken;
         }
     }
 
-    private static final class WeightedTransducer extends AbstractTransducer {
+    /**
+     * Transition index and transition target tables. Symbols are unsigned 16-bit values and targets
+     * unsigned 32-bit values widened to {@code long} on access. Weights are only present for
+     * weighted transducers; unweighted tables report {@code 0.0}.
+     */
+    private abstract static class TransitionTables {
+        protected final int indexCount;
+        protected final int transitionCount;
+        protected final boolean weighted;
+
+        protected TransitionTables(int indexCount, int transitionCount, boolean weighted) {
+            this.indexCount = indexCount;
+            this.transitionCount = transitionCount;
+            this.weighted = weighted;
+        }
 
-        private final WeightedTransitionIndex[] indices;
-        private final WeightedTransition[] transitions;
-        private double currentWeight = 0.0;
+        abstract int indexInput(int index);
+
+        abstract long indexTarget(int index);
+
+        abstract int transitionInput(int index);
 
-        private WeightedTransducer(InputStream stream, Header header, Alphabet alphabet) throws IOException {
-            super(alphabet, buildTrie(alphabet));
-            this.indices = readIndices(stream, header.sizeOfTransitionIndexTable);
-            this.transitions = readTransitions(stream, header.sizeOfTransitionTargetTable);
+        abstract int transitionOutput(int index);
+
+        abstract long transitionTarget(int index);
+
+        abstract double transitionWeight(int index);
+
+        boolean isFinalIndex(int index) {
+            return indexInput(index) == NO_SYMBOL_NUMBER && indexTarget(index) != NO_TABLE_INDEX;
         }
 
-        @Override
-        List<Analysis> analyze(String input) {
-            InputCursor cursor = new InputCursor(input);
-            List<Analysis> displayVector = new ArrayList<>();
-            outputString = IndexList.singleton(NO_SYMBOL_NUMBER);
-            inputString = new IndexList();
-            currentWeight = 0.0;
-            while (cursor.hasMore()) {
-                int previous = cursor.position();
-                int symbol = letterTrie.findKey(cursor);
-                inputString.append(symbol);
-                if (symbol == NO_SYMBOL_NUMBER) {
-                    break;
-                }
-                if (cursor.position() == previous) {
-                    break;
-                }
-            }
-            if (inputString.isEmpty() || inputString.lastValue() == NO_SYMBOL_NUMBER) {
-                return Collections.emptyList();
-            }
-            inputString.append(NO_SYMBOL_NUMBER);
-            getAnalyses(0, displayVector);
-            return displayVector;
+        double finalIndexWeight(int index) {
+            // Weighted transducers keep the final weight in the target field of the index entry.
+            return weighted ? (double) indexTarget(index) : 0.0;
         }
 
-        private void getAnalyses(long index, List<Analysis> displayVector) {
-            if (index >= TRANSITION_TARGET_TABLE_START) {
-                int baseIndex = (int) (index - TRANSITION_TARGET_TABLE_START);
-                tryEpsilonTransitions(baseIndex + 1, displayVector);
-                if (inputString.get() == NO_SYMBOL_NUMBER) {
-                    if (isFinalTransition(baseIndex)) {
-                        currentWeight += transitions[baseIndex].weight;
-                        noteAnalysis(displayVector, currentWeight);
-                        currentWeight -= transitions[baseIndex].weight;
-                    }
-                    outputString.put(NO_SYMBOL_NUMBER);
-                    return;
-                }
-                inputString.increment();
-                findTransitions(baseIndex + 1, displayVector);
-            } else {
-                int tableIndex = (int) index;
-                tryEpsilonIndices(tableIndex + 1, displayVector);
-                if (inputString.get() == NO_SYMBOL_NUMBER) {
-                    if (indices[tableIndex].isFinal()) {
-                        currentWeight += indices[tableIndex].getFinalWeight();
-                        noteAnalysis(displayVector, currentWeight);
-                        currentWeight -= indices[tableIndex].getFinalWeight();
-                    }
-                    outputString.put(NO_SYMBOL_NUMBER);
-                    return;
-                }
-                inputString.increment();
-                findIndex(tableIndex + 1, displayVector);
+        boolean isFinalTransition(int index) {
+            if (index < 0 || index >= transitionCount) {
+                return false;
             }
-            inputString.decrement();
-            outputString.put(NO_SYMBOL_NUMBER);
+            return transitionInput(index) == NO_SYMBOL_NUMBER
+                    && transitionOutput(index) == NO_SYMBOL_NUMBER
+                    && transitionTarget(index) == 1;
         }
+    }
 
-        private void noteAnalysis(List<Analysis> displayVector, double weight) {
-            StringBuilder output = new StringBuilder();
-            for (int value : outputString.values()) {
-                if (value == NO_SYMBOL_NUMBER) {
-                    break;
-                }
-                output.append(alphabet.keyTable.get(value));
+    /**
+     * Tables copied onto the heap as parallel primitive arrays; used when the transducer is read from
+     * a stream.
+     */
+    private static final class ArrayTransitionTables extends TransitionTables {
+        private final char[] indexInputs;
+        private final int[] indexTargets;
+        private final char[] transitionInputs;
+        private final char[] transitionOutputs;
+        private final int[] transitionTargets;
+        private final float[] transitionWeights;
+
+        private ArrayTransitionTables(char[] indexInputs,
+                                      int[] indexTargets,
+                                      char[] transitionInputs,
+                                      char[] transitionOutputs,
+                                      int[] transitionTargets,
+                                      float[] transitionWeights) {
+            super(indexInputs.length, transitionInputs.length, transitionWeights != null);
+            this.indexInputs = indexInputs;
+            this.indexTargets = indexTargets;
+            this.transitionInputs = transitionInputs;
+            this.transitionOutputs = transitionOutputs;
+            this.transitionTargets = transitionTargets;
+            this.transitionWeights = transitionWeights;
+        }
+
+        static ArrayTransitionTables read(InputStream stream, Header header) throws IOException {
+            int indexCount = header.sizeOfTransitionIndexTable;
+            ByteBuffer indexBuffer = ByteBuffer.wrap(readFully(stream, indexCount * INDEX_ENTRY_SIZE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            char[] indexInputs = new char[indexCount];
+            int[] indexTargets = new int[indexCount];
+            for (int i = 0; i < indexCount; i++) {
+                indexInputs[i] = indexBuffer.getChar();
+                indexTargets[i] = indexBuffer.getInt();
             }
-            displayVector.add(new Analysis(output.toString(), weight));
-        }
 
-        private void tryEpsilonIndices(int index, List<Analysis> displayVector) {
-            if (index < indices.length && indices[index].inputSymbol == 0) {
-                long target = indices[index].target - TRANSITION_TARGET_TABLE_START;
-                if (target >= 0 && target < transitions.length) {
-                    tryEpsilonTransitions((int) target + 1, displayVector);
+            int transitionCount = header.sizeOfTransitionTargetTable;
+            ByteBuffer transitionBuffer = ByteBuffer.wrap(readFully(stream, transitionCount * header.transitionEntrySize()))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            char[] transitionInputs = new char[transitionCount];
+            char[] transitionOutputs = new char[transitionCount];
+            int[] transitionTargets = new int[transitionCount];
+            float[] transitionWeights = header.weighted ? new float[transitionCount] : null;
+            for (int i = 0; i < transitionCount; i++) {
+                transitionInputs[i] = transitionBuffer.getChar();
+                transitionOutputs[i] = transitionBuffer.getChar();
+                transitionTargets[i] = transitionBuffer.getInt();
+                if (transitionWeights != null) {
+                    transitionWeights[i] = transitionBuffer.getFloat();
                 }
             }
+            return new ArrayTransitionTables(indexInputs, indexTargets,
+                    transitionInputs, transitionOutputs, transitionTargets, transitionWeights);
         }
 
-        private void tryEpsilonTransitions(int index, List<Analysis> displayVector) {
-            while (index < transitions.length) {
-                WeightedTransition transition = transitions[index];
-                if (transition.inputSymbol == 0) {
-                    traverse(index, displayVector);
-                    index += 1;
-                    continue;
-                }
-                FlagDiacriticOperation operation = alphabet.flagDiacriticOperations.get(transition.inputSymbol);
-                if (operation != null) {
-                    if (!stateStack.push(operation)) {
-                        index += 1;
-                        continue;
-                    }
-                    traverse(index, displayVector);
-                    index += 1;
-                    stateStack.pop();
-                    continue;
-                }
-                return;
-            }
+        @Override
+        int indexInput(int index) {
+            return indexInputs[index];
         }
 
-        private void findIndex(int index, List<Analysis> displayVector) {
-            int adjustment = inputString.get(-1);
-            int slot = index + adjustment;
-            if (slot >= 0 && slot < indices.length) {
-                WeightedTransitionIndex transitionIndex = indices[slot];
-                if (transitionIndex.inputSymbol == adjustment) {
-                    long target = transitionIndex.target - TRANSITION_TARGET_TABLE_START;
-                    if (target >= 0 && target < transitions.length) {
-                        findTransitions((int) target + 1, displayVector);
-                    }
-                }
-            }
+        @Override
+        long indexTarget(int index) {
+            return Integer.toUnsignedLong(indexTargets[index]);
         }
 
-        private void findTransitions(int index, List<Analysis> displayVector) {
-            while (index < transitions.length) {
-                WeightedTransition transition = transitions[index];
-                if (transition.inputSymbol == NO_SYMBOL_NUMBER) {
-                    return;
-                }
-                if (transition.inputSymbol == inputString.get(-1)) {
-                    traverse(index, displayVector);
-                } else {
-                    return;
-                }
-                index += 1;
-            }
+        @Override
+        int transitionInput(int index) {
+            return transitionInputs[index];
         }
 
-        private void traverse(int index, List<Analysis> displayVector) {
-            WeightedTransition transition = transitions[index];
-            outputString.put(transition.outputSymbol);
-            outputString.increment();
-            currentWeight += transition.weight;
-            getAnalyses(transition.target, displayVector);
-            outputString.decrement();
-            currentWeight -= transition.weight;
+        @Override
+        int transitionOutput(int index) {
+            return transitionOutputs[index];
         }
 
-        private boolean isFinalTransition(int index) {
-            if (index < 0 || index >= transitions.length) {
-                return false;
-            }
-            return transitions[index].isFinal();
+        @Override
+        long transitionTarget(int index) {
+            return Integer.toUnsignedLong(transitionTargets[index]);
         }
 
-        private static WeightedTransitionIndex[] readIndices(InputStream stream, int count) throws IOException {
-            byte[] bytes = readFully(stream, count * 6);
-            WeightedTransitionIndex[] result = new WeightedTransitionIndex[count];
-            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
-            for (int i = 0; i < count; i++) {
-                int input = Short.toUnsignedInt(buffer.getShort());
-                long target = Integer.toUnsignedLong(buffer.getInt());
-                result[i] = new WeightedTransitionIndex(input, target);
-            }
-            return result;
+        @Override
+        double transitionWeight(int index) {
+            return transitionWeights == null ? 0.0 : transitionWeights[index];
         }
+    }
 
-        private static WeightedTransition[] readTransitions(InputStream stream, int count) throws IOException {
-            byte[] bytes = readFully(stream, count * 12);
-            WeightedTransition[] result = new WeightedTransition[count];
-            ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
-            for (int i = 0; i < count; i++) {
-                int input = Short.toUnsignedInt(buffer.getShort());
-                int output = Short.toUnsignedInt(buffer.getShort());
-                long target = Integer.toUnsignedLong(buffer.getInt());
-                double weight = buffer.getFloat();
-                result[i] = new WeightedTransition(input, output, target, weight);
+    /**
+     * Tables read in place from little-endian buffers, typically slices of a read-only
+     * {@link MappedByteBuffer}. Only absolute reads are used, so the buffers may be shared between
+     * threads.
+     */
+    private static final class BufferTransitionTables extends TransitionTables {
+        private final ByteBuffer indices;
+        private final ByteBuffer transitions;
+        private final int transitionEntrySize;
+
+        private BufferTransitionTables(ByteBuffer indices, ByteBuffer transitions, Header header) {
+            super(header.sizeOfTransitionIndexTable, header.sizeOfTransitionTargetTable, header.weighted);
+            this.indices = indices;
+            this.transitions = transitions;
+            this.transitionEntrySize = header.transitionEntrySize();
+        }
+
+        static BufferTransitionTables slice(ByteBuffer buffer, Header header) throws IOException {
+            int indexBytes = header.sizeOfTransitionIndexTable * INDEX_ENTRY_SIZE;
+            int transitionBytes = header.sizeOfTransitionTargetTable * header.transitionEntrySize();
+            if (buffer.remaining() < indexBytes + transitionBytes) {
+                throw new IOException("Unexpected EOF");
             }
-            return result;
+            ByteBuffer indices = buffer.slice(buffer.position(), indexBytes).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer transitions = buffer.slice(buffer.position() + indexBytes, transitionBytes)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            return new BufferTransitionTables(indices, transitions, header);
         }
-    }
 
-    private static class TransitionIndex {
-        final int inputSymbol;
-        final long target;
+        @Override
+        int indexInput(int index) {
+            return indices.getChar(index * INDEX_ENTRY_SIZE);
+        }
 
-        private TransitionIndex(int inputSymbol, long target) {
-            this.inputSymbol = inputSymbol;
-            this.target = target;
+        @Override
+        long indexTarget(int index) {
+            return Integer.toUnsignedLong(indices.getInt(index * INDEX_ENTRY_SIZE + 2));
         }
 
-        boolean isFinal() {
-            return inputSymbol == NO_SYMBOL_NUMBER && target != NO_TABLE_INDEX;
+        @Override
+        int transitionInput(int index) {
+            return transitions.getChar(index * transitionEntrySize);
         }
-    }
 
-    private static class Transition {
-        final int inputSymbol;
-        final int outputSymbol;
-        final long target;
+        @Override
+        int transitionOutput(int index) {
+            return transitions.getChar(index * transitionEntrySize + 2);
+        }
 
-        private Transition(int inputSymbol, int outputSymbol, long target) {
-            this.inputSymbol = inputSymbol;
-            this.outputSymbol = outputSymbol;
-            this.target = target;
+        @Override
+        long transitionTarget(int index) {
+            return Integer.toUnsignedLong(transitions.getInt(index * transitionEntrySize + 4));
         }
 
-        boolean isFinal() {
-            return inputSymbol == NO_SYMBOL_NUMBER
-                    && outputSymbol == NO_SYMBOL_NUMBER
-                    && target == 1;
+        @Override
+        double transitionWeight(int index) {
+            return weighted ? transitions.getFloat(index * transitionEntrySize + 8) : 0.0;
         }
     }
 
-    private static final class WeightedTransitionIndex extends TransitionIndex {
-        private WeightedTransitionIndex(int inputSymbol, long target) {
-            super(inputSymbol, target);
-        }
+    /**
+     * Adapts the header and alphabet sections of a mapped file to the stream based readers. Reading
+     * advances the position of the wrapped buffer.
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
 
-        private double getFinalWeight() {
-            return (double) target;
+        private BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
         }
-    }
 
-    private static final class WeightedTransition extends Transition {
-        private final double weight;
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? Byte.toUnsignedInt(buffer.get()) : -1;
+        }
 
-        private WeightedTransition(int inputSymbol, int outputSymbol, long target, double weight) {
-            super(inputSymbol, outputSymbol, target);
-            this.weight = weight;
+        @Override
+        public int read(byte[] target, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(target, offset, count);
+            return count;
         }
     }
 
     private static final class FlagDiacriticOperation {
-        private final String operation;
-        private final String feature;
-        private final String value;
+        private static final int EMPTY_VALUE = 0;
 
-        private FlagDiacriticOperation(String operation, String feature, String value) {
+        private final char operation;
+        private final int feature;
+        private final int value;
+
+        private FlagDiacriticOperation(char operation, int feature, int value) {
             this.operation = operation;
             this.feature = feature;
             this.value = value;
         }
     }
 
+    /**
+     * Stack of flag diacritic states kept as consecutive fixed-width {@code int} frames, one slot per
+     * interned feature. A slot holds {@code 0} when the feature is unset, {@code value + 1} when it is
+     * set positively and {@code -(value + 1)} when it is set negatively.
+     */
     private static final class FlagDiacriticStateStack {
-        private final ArrayDeque<Map<String, FlagState>> stack = new ArrayDeque<>();
+        private static final int UNSET = 0;
+
+        private final int width;
+        private int[] frames;
+        private int depth = 1;
+
+        private FlagDiacriticStateStack(int width) {
+            this.width = width;
+            this.frames = new int[width * 8];
+        }
 
-        private FlagDiacriticStateStack() {
-            stack.push(new HashMap<>());
+        private void clear() {
+            depth = 1;
+            Arrays.fill(frames, 0, width, UNSET);
         }
 
         private void pop() {
-            if (stack.size() > 1) {
-                stack.pop();
+            if (depth > 1) {
+                depth -= 1;
             }
         }
 
         private boolean push(FlagDiacriticOperation operation) {
-            Map<String, FlagState> current = stack.peek();
+            int state = frames[(depth - 1) * width + operation.feature];
             switch (operation.operation) {
-                case "P":
-                    stack.push(new HashMap<>(current));
-                    stack.peek().put(operation.feature, new FlagState(operation.value, true));
+                case 'P':
+                    pushFrame(operation.feature, positive(operation.value));
                     return true;
-                case "N":
-                    stack.push(new HashMap<>(current));
-                    stack.peek().put(operation.feature, new FlagState(operation.value, false));
+                case 'N':
+                    pushFrame(operation.feature, negative(operation.value));
                     return true;
-                case "R":
-                    FlagState required = current.get(operation.feature);
-                    if (operation.value.isEmpty()) {
-                        if (required == null) {
+                case 'R':
+                    if (operation.value == FlagDiacriticOperation.EMPTY_VALUE) {
+                        if (state == UNSET) {
                             return false;
                         }
-                        stack.push(new HashMap<>(current));
+                        pushFrame();
                         return true;
                     }
-                    if (required != null && required.isPositive && Objects.equals(required.value, operation.value)) {
-                        stack.push(new HashMap<>(current));
+                    if (state == positive(operation.value)) {
+                        pushFrame();
                         return true;
                     }
                     return false;
-                case "D":
-                    FlagState disallowed = current.get(operation.feature);
-                    if (operation.value.isEmpty()) {
-                        if (disallowed == null) {
-                            stack.push(new HashMap<>(current));
+                case 'D':
+                    if (operation.value == FlagDiacriticOperation.EMPTY_VALUE) {
+                        if (state == UNSET) {
+                            pushFrame();
                             return true;
                         }
                         return false;
                     }
-                    if (disallowed != null && disallowed.isPositive && Objects.equals(disallowed.value, operation.value)) {
+                    if (state == positive(operation.value)) {
                         return false;
                     }
-                    stack.push(new HashMap<>(current));
+                    pushFrame();
                     return true;
-                case "C":
-                    stack.push(new HashMap<>(current));
-                    stack.peek().remove(operation.feature);
+                case 'C':
+                    pushFrame(operation.feature, UNSET);
                     return true;
-                case "U":
-                    FlagState state = current.get(operation.feature);
-                    if (state == null
-                            || (state.isPositive && Objects.equals(state.value, operation.value))
-                            || (!state.isPositive && !Objects.equals(state.value, operation.value))) {
-                        stack.push(new HashMap<>(current));
-                        stack.peek().put(operation.feature, new FlagState(operation.value, true));
+                case 'U':
+                    if (state == UNSET
+                            || state == positive(operation.value)
+                            || (state < 0 && state != negative(operation.value))) {
+                        pushFrame(operation.feature, positive(operation.value));
                         return true;
                     }
                     return false;
@@ -714,66 +783,129 @@ public final class HfstTransducer {
                     return false;
             }
         }
-    }
 
-    private static final class FlagState {
-        private final String value;
-        private final boolean isPositive;
+        private void pushFrame() {
+            int current = (depth - 1) * width;
+            int next = current + width;
+            if (next + width > frames.length) {
+                frames = Arrays.copyOf(frames, Math.max(frames.length * 2, next + width));
+            }
+            System.arraycopy(frames, current, frames, next, width);
+            depth += 1;
+        }
 
-        private FlagState(String value, boolean isPositive) {
-            this.value = value;
-            this.isPositive = isPositive;
+        private void pushFrame(int feature, int state) {
+            pushFrame();
+            frames[(depth - 1) * width + feature] = state;
+        }
+
+        private static int positive(int value) {
+            return value + 1;
+        }
+
+        private static int negative(int value) {
+            return -(value + 1);
         }
     }
 
+    /**
+     * Maps the code points of the input to symbol numbers by longest match against the alphabet.
+     * Nodes keep their children and terminal symbols for the Cyrillic block (which covers the Tatar
+     * letters) in dense arrays indexed by code point, and fall back to hash maps for everything else.
+     */
     private static final class LetterTrie {
         private final Node root = new Node();
 
         private void addString(String value, int symbolNumber) {
-            List<String> segments = splitToSegments(value);
-            root.add(segments, 0, symbolNumber);
+            if (value.isEmpty()) {
+                // Empty symbols (epsilon and flag diacritics) never match input.
+                return;
+            }
+            Node node = root;
+            int offset = 0;
+            while (true) {
+                int codePoint = value.codePointAt(offset);
+                offset += Character.charCount(codePoint);
+                if (offset >= value.length()) {
+                    node.putSymbol(codePoint, symbolNumber);
+                    return;
+                }
+                node = node.childOrCreate(codePoint);
+            }
         }
 
         private int findKey(InputCursor cursor) {
             return root.find(cursor);
         }
 
-        private static List<String> splitToSegments(String value) {
-            List<String> segments = new ArrayList<>();
-            if (value.isEmpty()) {
-                segments.add("");
-                return segments;
+        private static final class Node {
+            private static final int DENSE_START = 0x0400;
+            private static final int DENSE_SIZE = 0x0100;
+            private static final int NO_ENTRY = -1;
+
+            private int[] denseSymbols;
+            private Node[] denseChildren;
+            private final Map<Integer, Integer> symbols = new HashMap<>();
+            private final Map<Integer, Node> children = new HashMap<>();
+
+            private void putSymbol(int codePoint, int symbolNumber) {
+                int slot = codePoint - DENSE_START;
+                if (slot >= 0 && slot < DENSE_SIZE) {
+                    if (denseSymbols == null) {
+                        denseSymbols = new int[DENSE_SIZE];
+                        Arrays.fill(denseSymbols, NO_ENTRY);
+                    }
+                    denseSymbols[slot] = symbolNumber;
+                } else {
+                    symbols.put(codePoint, symbolNumber);
+                }
             }
-            value.codePoints().forEach(cp -> segments.add(new String(Character.toChars(cp))));
-            return segments;
-        }
 
-        private static final class Node {
-            private final Map<String, Integer> symbols = new HashMap<>();
-            private final Map<String, Node> children = new HashMap<>();
+            private Node childOrCreate(int codePoint) {
+                int slot = codePoint - DENSE_START;
+                if (slot >= 0 && slot < DENSE_SIZE) {
+                    if (denseChildren == null) {
+                        denseChildren = new Node[DENSE_SIZE];
+                    }
+                    Node child = denseChildren[slot];
+                    if (child == null) {
+                        child = new Node();
+                        denseChildren[slot] = child;
+                    }
+                    return child;
+                }
+                return children.computeIfAbsent(codePoint, key -> new Node());
+            }
 
-            private void add(List<String> segments, int index, int symbolNumber) {
-                if (segments.isEmpty()) {
-                    symbols.put("", symbolNumber);
-                    return;
+            private int symbol(int codePoint) {
+                int slot = codePoint - DENSE_START;
+                if (slot >= 0 && slot < DENSE_SIZE) {
+                    return denseSymbols == null ? NO_ENTRY : denseSymbols[slot];
                 }
-                if (index >= segments.size() - 1) {
-                    symbols.put(segments.get(index), symbolNumber);
-                    return;
+                if (symbols.isEmpty()) {
+                    return NO_ENTRY;
+                }
+                Integer symbol = symbols.get(codePoint);
+                return symbol == null ? NO_ENTRY : symbol;
+            }
+
+            private Node child(int codePoint) {
+                int slot = codePoint - DENSE_START;
+                if (slot >= 0 && slot < DENSE_SIZE) {
+                    return denseChildren == null ? null : denseChildren[slot];
                 }
-                Node child = children.computeIfAbsent(segments.get(index), key -> new Node());
-                child.add(segments, index + 1, symbolNumber);
+                return children.isEmpty() ? null : children.get(codePoint);
             }
 
             private int find(InputCursor cursor) {
                 if (!cursor.hasMore()) {
                     return NO_SYMBOL_NUMBER;
                 }
-                String current = cursor.getAndAdvance();
-                Node child = children.get(current);
-                Integer direct = symbols.get(current);
+                int current = cursor.getAndAdvance();
+                Node child = child(current);
+                int direct = symbol(current);
                 if (child == null) {
-                    if (direct == null) {
+                    if (direct == NO_ENTRY) {
                         cursor.retreat();
                         return NO_SYMBOL_NUMBER;
                     }
@@ -781,7 +913,7 @@ public final class HfstTransducer {
                 }
                 int temp = child.find(cursor);
                 if (temp == NO_SYMBOL_NUMBER) {
-                    if (direct == null) {
+                    if (direct == NO_ENTRY) {
                         cursor.retreat();
                         return NO_SYMBOL_NUMBER;
                     }
@@ -792,64 +924,72 @@ public final class HfstTransducer {
         }
     }
 
+    /**
+     * Walks the code points of the input string in place; positions are {@code char} offsets.
+     */
     private static final class InputCursor {
-        private final List<String> symbols;
+        private String value = "";
         private int pos = 0;
 
-        private InputCursor(String value) {
-            if (value == null) {
-                this.symbols = Collections.emptyList();
-            } else {
-                List<String> list = new ArrayList<>();
-                value.codePoints().forEach(cp -> list.add(new String(Character.toChars(cp))));
-                this.symbols = list;
-            }
+        private void reset(String value) {
+            this.value = value == null ? "" : value;
+            this.pos = 0;
         }
 
         private boolean hasMore() {
-            return pos < symbols.size();
+            return pos < value.length();
         }
 
         private int position() {
             return pos;
         }
 
-        private String getAndAdvance() {
-            String value = symbols.get(pos);
-            pos += 1;
-            return value;
+        private int getAndAdvance() {
+            int codePoint = value.codePointAt(pos);
+            pos += Character.charCount(codePoint);
+            return codePoint;
         }
 
         private void retreat() {
             if (pos > 0) {
-                pos -= 1;
+                pos -= Character.charCount(value.codePointBefore(pos));
             }
         }
     }
 
     private static final class IndexList {
-        private final List<Integer> values = new ArrayList<>();
+        private int[] values = new int[16];
+        private int size = 0;
         private int pos = 0;
 
-        private static IndexList singleton(int value) {
-            IndexList list = new IndexList();
-            list.values.add(value);
-            return list;
+        private void clear() {
+            size = 0;
+            pos = 0;
         }
 
         private void append(int value) {
-            values.add(value);
+            ensureCapacity(size + 1);
+            values[size] = value;
+            size += 1;
         }
 
         private boolean isEmpty() {
-            return values.isEmpty();
+            return size == 0;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private int valueAt(int index) {
+            return values[index];
         }
 
         private int lastValue() {
-            if (values.isEmpty()) {
+            if (size == 0) {
                 return NO_SYMBOL_NUMBER;
             }
-            return values.get(values.size() - 1);
+            return values[size - 1];
         }
 
         private int get() {
@@ -858,10 +998,10 @@ public final class HfstTransducer {
 
         private int get(int adjustment) {
             int index = pos + adjustment;
-            if (index < 0 || index >= values.size()) {
+            if (index < 0 || index >= size) {
                 return NO_SYMBOL_NUMBER;
             }
-            return values.get(index);
+            return values[index];
         }
 
         private void put(int value) {
@@ -870,10 +1010,12 @@ public final class HfstTransducer {
 
         private void put(int value, int adjustment) {
             int index = pos + adjustment;
-            while (values.size() <= index) {
-                values.add(NO_SYMBOL_NUMBER);
+            if (index >= size) {
+                ensureCapacity(index + 1);
+                Arrays.fill(values, size, index + 1, NO_SYMBOL_NUMBER);
+                size = index + 1;
             }
-            values.set(index, value);
+            values[index] = value;
         }
 
         private void increment() {
@@ -886,8 +1028,10 @@ public final class HfstTransducer {
             }
         }
 
-        private List<Integer> values() {
-            return values;
+        private void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, capacity));
+            }
         }
     }
 
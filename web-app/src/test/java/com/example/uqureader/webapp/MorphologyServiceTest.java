@@ -1,5 +1,6 @@
 package com.example.uqureader.webapp;
 
+import com.example.uqureader.webapp.cache.CacheStats;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import org.junit.jupiter.api.AfterAll;
@@ -56,6 +57,17 @@ class MorphologyServiceTest {
         Assertions.assertEquals("Комедия", firstSentence.get(0).getAsJsonArray().get(0).getAsString());
     }
 
+    @Test
+    void repeatedTokenRequestsAreServedFromCache() {
+        CacheStats before = service.cacheStats().get("token");
+        service.analyzeToken("театр");
+        service.analyzeToken("театр");
+        CacheStats after = service.cacheStats().get("token");
+        Assertions.assertTrue(after.getHits() >= before.getHits() + 1);
+        Assertions.assertTrue(after.getEntries() > 0);
+        Assertions.assertTrue(after.getWeightBytes() > 0);
+    }
+
     private String readResource(String path) throws IOException {
         try (InputStream stream = getClass().getResourceAsStream(path)) {
             if (stream == null) {
@@ -0,0 +1,173 @@
+package com.example.uqureader.webapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.uqureader.webapp.morphology.MorphologyAnalyzer;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class WebMorphologyApplicationTest {
+
+    private final Gson gson = new Gson();
+
+    @Test
+    void streamingEndpointReturnsSentencesAsNdjson() throws Exception {
+        String text = read(getClass().getResourceAsStream("/texts/berenche_teatr.txt"));
+        MorphologyService service = new MorphologyService(MorphologyAnalyzer.loadDefault());
+        HttpServer server = new WebMorphologyApplication(service).start(0,
+                new HttpServerSettings(HttpServerSettings.ExecutionMode.POOL, 2, 4, 16));
+        try {
+            HttpURLConnection connection = open(server.getAddress().getPort(), "/api/text/stream");
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setChunkedStreamingMode(4096);
+            connection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(text.getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals(200, connection.getResponseCode());
+            assertEquals("chunked", connection.getHeaderField("Transfer-Encoding"));
+            List<String> lines = read(connection.getInputStream()).lines().toList();
+
+            JsonObject expected = service.analyzeText(text);
+            JsonArray sentences = expected.getAsJsonArray("sentences");
+            assertEquals(sentences.size() + 1, lines.size());
+            for (int i = 0; i < sentences.size(); i++) {
+                assertEquals(sentences.get(i), gson.fromJson(lines.get(i), JsonArray.class), "sentence " + i);
+            }
+            JsonObject summary = gson.fromJson(lines.get(lines.size() - 1), JsonObject.class);
+            expected.remove("sentences");
+            assertEquals(expected, summary);
+        } finally {
+            server.stop(0);
+            service.close();
+        }
+    }
+
+    @Test
+    void tokenRequestsAreServedWhileTextIsBeingAnalysedAndExcessIsRejected() throws Exception {
+        Semaphore textStarted = new Semaphore(0);
+        CountDownLatch releaseText = new CountDownLatch(1);
+        MorphologyService service = new MorphologyService(MorphologyAnalyzer.loadDefault()) {
+            @Override
+            public JsonObject analyzeText(String text) {
+                textStarted.release();
+                try {
+                    releaseText.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.analyzeText(text);
+            }
+        };
+        HttpServerSettings settings = new HttpServerSettings(HttpServerSettings.ExecutionMode.POOL, 2, 0, 16);
+        HttpServer server = new WebMorphologyApplication(service).start(0, settings);
+        try {
+            int port = server.getAddress().getPort();
+            CompletableFuture<Integer> text = CompletableFuture.supplyAsync(() -> postText(port, "Бу театр."));
+            assertTrue(textStarted.tryAcquire(30, TimeUnit.SECONDS));
+
+            HttpURLConnection token = open(port, "/api/token/" + URLEncoder.encode("театр", StandardCharsets.UTF_8));
+            assertEquals(200, token.getResponseCode());
+            JsonObject payload = gson.fromJson(read(token.getInputStream()), JsonObject.class);
+            assertEquals("театр", payload.get("token").getAsString());
+
+            // The worker that served the token may not be idle yet, so retry until the text is accepted.
+            CompletableFuture<Integer> secondText = CompletableFuture.supplyAsync(() -> {
+                int status;
+                do {
+                    status = postText(port, "Бу театр.");
+                } while (status == 503);
+                return status;
+            });
+            assertTrue(textStarted.tryAcquire(30, TimeUnit.SECONDS));
+
+            HttpURLConnection rejected = open(port, "/api/token/" + URLEncoder.encode("бу", StandardCharsets.UTF_8));
+            assertEquals(503, rejected.getResponseCode());
+            assertEquals("1", rejected.getHeaderField("Retry-After"));
+            read(rejected.getErrorStream());
+
+            releaseText.countDown();
+            assertEquals(200, text.get(30, TimeUnit.SECONDS));
+            assertEquals(200, secondText.get(30, TimeUnit.SECONDS));
+        } finally {
+            releaseText.countDown();
+            server.stop(0);
+            service.close();
+        }
+    }
+
+    @Test
+    void stoppingTheServerReleasesItsWorkers() throws Exception {
+        MorphologyService service = new MorphologyService(MorphologyAnalyzer.loadDefault());
+        HttpServer server = new WebMorphologyApplication(service).start(0,
+                new HttpServerSettings(HttpServerSettings.ExecutionMode.POOL, 2, 4, 16));
+        try {
+            int port = server.getAddress().getPort();
+            HttpURLConnection token = open(port, "/api/token/" + URLEncoder.encode("бу", StandardCharsets.UTF_8));
+            assertEquals(200, token.getResponseCode());
+            read(token.getInputStream());
+            assertTrue(workerThreads() > 0);
+        } finally {
+            server.stop(0);
+            service.close();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (workerThreads() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, workerThreads(), "workers should exit without waiting for the idle timeout");
+    }
+
+    private static long workerThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.isAlive() && thread.getName().startsWith("morphology-http-"))
+                .count();
+    }
+
+    private int postText(int port, String text) {
+        try {
+            HttpURLConnection connection = open(port, "/api/text/");
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(gson.toJson(Map.of("text", text)).getBytes(StandardCharsets.UTF_8));
+            }
+            int status = connection.getResponseCode();
+            read(status == 200 ? connection.getInputStream() : connection.getErrorStream());
+            return status;
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private HttpURLConnection open(int port, String path) throws IOException {
+        return (HttpURLConnection) new URL("http://localhost:" + port + path).openConnection();
+    }
+
+    private String read(InputStream stream) throws IOException {
+        try (InputStream input = stream) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
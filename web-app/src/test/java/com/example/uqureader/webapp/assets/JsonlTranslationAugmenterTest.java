@@ -1,5 +1,6 @@
 package com.example.uqureader.webapp.assets;
 
+import com.example.uqureader.webapp.dictionary.TatRusDictionaryImporter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -56,6 +57,30 @@ class JsonlTranslationAugmenterTest {
         assertEquals(3, second.getTranslationsWritten());
     }
 
+    @Test
+    void upgradedDictionaryMatchesCapitalisedLemmas() throws Exception {
+        Path assets = Files.createDirectory(tempDir.resolve("assets"));
+        Path dictionary = tempDir.resolve("tat_rus_dictionary.db");
+        createDictionary(dictionary);
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dictionary.toAbsolutePath());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO tat_rus_dictionary (tat_lemma, rus_lemma) VALUES ('Казан', 'Казань')");
+        }
+        Path jsonl = assets.resolve("sample.jsonl");
+        Files.writeString(jsonl,
+                "{\"prefix\": \"\", \"surface\": \"Казанда\", \"analysis\": \"Казан+N+Sg+Loc;\"}\n"
+                        + "{\"prefix\": \"\", \"surface\": \"сүз\", \"analysis\": \"сүз+N+Sg+Nom;\"}\n",
+                StandardCharsets.UTF_8);
+
+        assertEquals(4, new TatRusDictionaryImporter().upgrade(dictionary));
+        JsonlTranslationAugmenter.Report report = new JsonlTranslationAugmenter().augment(assets, dictionary);
+
+        String[] lines = Files.readString(jsonl, StandardCharsets.UTF_8).split("\\R");
+        assertTrue(lines[0].contains("\"translations\": [\"Казань\"]"), lines[0]);
+        assertTrue(lines[1].contains("\"translations\": [\"слово\"]"), lines[1]);
+        assertEquals(2, report.getTokensWithTranslations());
+    }
+
     private void createDictionary(Path dbPath) throws Exception {
         try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dbPath.toAbsolutePath());
              Statement statement = connection.createStatement()) {
@@ -0,0 +1,85 @@
+package com.example.uqureader.webapp.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class LruResultCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsedEntryWhenEntryLimitIsReached() {
+        LruResultCache<String, String> cache = new LruResultCache<>(
+                new CacheSettings(2, Long.MAX_VALUE, null), (key, value) -> 1);
+        cache.get("a", key -> "A");
+        cache.get("b", key -> "B");
+        cache.get("a", key -> "unused");
+        cache.get("c", key -> "C");
+
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("A", cache.get("a", key -> {
+            loads.incrementAndGet();
+            return "A2";
+        }));
+        assertEquals("B2", cache.get("b", key -> {
+            loads.incrementAndGet();
+            return "B2";
+        }));
+        assertEquals(1, loads.get());
+
+        CacheStats stats = cache.stats();
+        assertEquals(2, stats.getHits());
+        assertEquals(4, stats.getMisses());
+        assertEquals(2, stats.getEvictions());
+        assertEquals(2, stats.getEntries());
+    }
+
+    @Test
+    void respectsByteLimitAndSkipsOversizedValues() {
+        LruResultCache<String, String> cache = new LruResultCache<>(
+                new CacheSettings(100, 10, null), (key, value) -> value.length());
+        cache.get("a", key -> "12345");
+        cache.get("b", key -> "12345");
+        assertEquals(10, cache.stats().getWeightBytes());
+
+        cache.get("c", key -> "123");
+        assertEquals(2, cache.stats().getEntries());
+        assertEquals(8, cache.stats().getWeightBytes());
+        assertEquals(1, cache.stats().getEvictions());
+
+        assertEquals("12345678901", cache.get("d", key -> "12345678901"));
+        assertEquals(2, cache.stats().getEntries());
+        assertEquals(1, cache.stats().getEvictions());
+    }
+
+    @Test
+    void expiresEntriesAfterTimeToLive() {
+        AtomicLong clock = new AtomicLong();
+        LruResultCache<String, String> cache = new LruResultCache<>(
+                new CacheSettings(10, Long.MAX_VALUE, Duration.ofSeconds(5)), (key, value) -> 1, clock::get);
+        cache.get("a", key -> "A");
+        clock.addAndGet(Duration.ofSeconds(4).toNanos());
+        assertEquals("A", cache.get("a", key -> "A2"));
+        clock.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertEquals("A3", cache.get("a", key -> "A3"));
+
+        CacheStats stats = cache.stats();
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(1, stats.getExpirations());
+        assertEquals(1, stats.getEntries());
+    }
+
+    @Test
+    void zeroLimitDisablesCaching() {
+        LruResultCache<String, String> cache = new LruResultCache<>(
+                new CacheSettings(0, Long.MAX_VALUE, null), (key, value) -> 1);
+        cache.get("a", key -> "A");
+        assertEquals("A2", cache.get("a", key -> "A2"));
+        assertEquals(0, cache.stats().getEntries());
+        assertEquals(2, cache.stats().getMisses());
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.uqureader.webapp.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+class StripedResultCacheTest {
+
+    @Test
+    void splitsLimitsBetweenSegmentsAndAggregatesStats() {
+        StripedResultCache<Integer, String> cache = new StripedResultCache<>(
+                new CacheSettings(64, Long.MAX_VALUE, null), (key, value) -> 1, 4);
+        for (int i = 0; i < 1_000; i++) {
+            cache.get(i, String::valueOf);
+        }
+        CacheStats stats = cache.stats();
+        assertTrue(stats.getEntries() <= 64, "Entries: " + stats.getEntries());
+        assertEquals(1_000, stats.getMisses());
+        assertEquals(1_000 - stats.getEntries(), stats.getEvictions());
+    }
+
+    @Test
+    void concurrentReadersSeeLoadedValues() throws Exception {
+        StripedResultCache<Integer, String> cache = new StripedResultCache<>(
+                new CacheSettings(10_000, Long.MAX_VALUE, null), (key, value) -> 1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        int key = i % 500;
+                        assertEquals(String.valueOf(key), cache.get(key, String::valueOf));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        CacheStats stats = cache.stats();
+        assertEquals(500, stats.getEntries());
+        assertEquals(40_000, stats.getHits() + stats.getMisses());
+    }
+}
@@ -109,6 +109,36 @@ class Morph3Fb2ExporterTest {
         }
     }
 
+    @Test
+    void keepsPreviousOutputWhenExportFails() throws Exception {
+        Path tempDir = Files.createTempDirectory("morph3-exporter-");
+        Path morphFile = tempDir.resolve("sample.txt.morph3.tsv");
+        Path originalFile = tempDir.resolve("sample.txt");
+        Path outputFile = tempDir.resolve("Sample.fb2");
+
+        try {
+            Files.writeString(originalFile, "Сүз.\n\nСүз.", StandardCharsets.UTF_8);
+            Files.writeString(outputFile, "previous", StandardCharsets.UTF_8);
+            Files.writeString(morphFile, String.join("\n",
+                    "Сүз\tсүз+N+Sg+Nom;",
+                    ".\tType1",
+                    "Сүз"), StandardCharsets.UTF_8);
+
+            Morph3Fb2Exporter exporter = new Morph3Fb2Exporter(
+                    new PrintStream(outBuffer, true, StandardCharsets.UTF_8),
+                    new PrintStream(errBuffer, true, StandardCharsets.UTF_8));
+
+            int exitCode = exporter.run(new String[]{morphFile.toString(), originalFile.toString()});
+
+            assertEquals(3, exitCode, "Некорректная строка должна прерывать экспорт");
+            assertEquals("previous", Files.readString(outputFile, StandardCharsets.UTF_8),
+                    "Незавершённый экспорт не должен перезаписывать прежний fb2-файл");
+            assertFalse(Files.exists(tempDir.resolve("Sample.fb2.part")), "Временный файл должен быть удалён");
+        } finally {
+            deleteRecursively(tempDir);
+        }
+    }
+
     private void assertInlineWordMarkup() throws Exception {
         String content = Files.readString(OUTPUT_FILE, StandardCharsets.UTF_8);
         assertTrue(content.contains("<style name=\"morph\" m:analysis=\"кубыз+N+Sg+Nom;\" m:surface=\"КУБЫЗ\">КУБЫЗ</style>"),
@@ -0,0 +1,165 @@
+package com.example.uqureader.webapp.cli;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class MorphToFb2PipelineTest {
+
+    private static final Path MARKUP_DIR = Path.of("src/main/resources/markup");
+    private static final Path TEXTS_DIR = Path.of("src/main/resources/texts");
+    private static final Path DICTIONARY = Path.of("../data/tat_rus_dictionary.db");
+    private static final List<String> BOOKS = List.of("berenche_teatr", "qubiz_qabiz");
+
+    private Path workDir;
+
+    @BeforeEach
+    void createWorkDir() throws IOException {
+        workDir = Files.createTempDirectory("morph-pipeline-");
+    }
+
+    @AfterEach
+    void deleteWorkDir() throws IOException {
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void parallelRunProducesSameFilesAsSequentialRun() throws IOException {
+        Path sequentialDir = Files.createDirectory(workDir.resolve("sequential"));
+        Path parallelDir = Files.createDirectory(workDir.resolve("parallel"));
+
+        assertEquals(0, run(sequentialDir, List.of("--keep-intermediate")),
+                "Последовательный запуск должен завершиться успешно");
+        assertEquals(0, run(parallelDir, List.of("--keep-intermediate", "--jobs", "2")),
+                "Параллельный запуск должен завершиться успешно");
+
+        Map<String, byte[]> expected = outputs(sequentialDir);
+        Map<String, byte[]> actual = outputs(parallelDir);
+        assertEquals(expected.keySet(), actual.keySet());
+        assertEquals(BOOKS.size() * 3, expected.size());
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            String content = new String(entry.getValue(), StandardCharsets.UTF_8)
+                    .replace(sequentialDir.toString(), parallelDir.toString());
+            assertArrayEquals(content.getBytes(StandardCharsets.UTF_8), actual.get(entry.getKey()),
+                    "Файл отличается: " + entry.getKey());
+        }
+    }
+
+    @Test
+    void inMemoryRunMatchesStandaloneToolsWithoutIntermediateFiles() throws IOException {
+        Path pipelineDir = Files.createDirectory(workDir.resolve("pipeline"));
+        Path toolsDir = Files.createDirectory(workDir.resolve("tools"));
+        assertEquals(0, run(pipelineDir, List.of()));
+        prepareInputs(toolsDir);
+
+        PrintStream quiet = new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8);
+        NaiveTatarSuffixAnalyzer analyzer = NaiveTatarSuffixAnalyzer.fromClasspathOrDefault("/suffixes_tat.json", 4);
+        for (String book : BOOKS) {
+            Path morph = toolsDir.resolve(book + ".txt.morph.tsv");
+            Path morph2 = toolsDir.resolve(book + ".txt.morph2.tsv");
+            Path morph3 = toolsDir.resolve(book + ".txt.morph3.tsv");
+            assertEquals(0, new NaiveMorphologyPostProcessor(analyzer, quiet, quiet).run(new String[]{morph.toString()}));
+            assertEquals(0, new Morph2TranslationAugmenter(quiet, quiet).run(new String[]{
+                    "--dictionary", DICTIONARY.toString(), morph2.toString()}));
+            assertEquals(0, new Morph3Fb2Exporter(quiet, quiet).run(new String[]{
+                    "--original-dir", toolsDir.toString(), morph3.toString()}));
+        }
+
+        Map<String, byte[]> actual = outputs(pipelineDir);
+        Map<String, byte[]> expected = outputs(toolsDir);
+        expected.keySet().removeIf(name -> !name.endsWith(".fb2"));
+        assertEquals(expected.keySet(), actual.keySet(), "Промежуточные файлы не должны создаваться");
+        for (Map.Entry<String, byte[]> entry : expected.entrySet()) {
+            String content = new String(entry.getValue(), StandardCharsets.UTF_8)
+                    .replace(toolsDir.toString(), pipelineDir.toString());
+            assertArrayEquals(content.getBytes(StandardCharsets.UTF_8), actual.get(entry.getKey()),
+                    "Файл отличается: " + entry.getKey());
+        }
+    }
+
+    @Test
+    void failedFileDoesNotStopTheOthersWhateverTheJobs() throws IOException {
+        Path dir = Files.createDirectory(workDir.resolve("failing"));
+        prepareInputs(dir);
+        Files.delete(dir.resolve("berenche_teatr.txt"));
+
+        List<String> outputs = new ArrayList<>();
+        for (String jobs : List.of("1", "2")) {
+            Files.deleteIfExists(dir.resolve("Qubiz qabiz.fb2"));
+            ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
+            ByteArrayOutputStream errBuffer = new ByteArrayOutputStream();
+            MorphToFb2Pipeline pipeline = new MorphToFb2Pipeline(
+                    new PrintStream(outBuffer, true, StandardCharsets.UTF_8),
+                    new PrintStream(errBuffer, true, StandardCharsets.UTF_8));
+            int exitCode = pipeline.run(arguments(dir, List.of("-j", jobs)));
+
+            assertEquals(3, exitCode, "jobs " + jobs);
+            assertTrue(Files.exists(dir.resolve("Qubiz qabiz.fb2")), "Второй файл должен быть обработан, jobs " + jobs);
+            String out = outBuffer.toString(StandardCharsets.UTF_8);
+            assertTrue(out.contains("[1/2] " + dir.resolve("berenche_teatr.txt.morph.tsv") + ": ошибка"), out);
+            assertTrue(out.contains("[2/2] " + dir.resolve("qubiz_qabiz.txt.morph.tsv") + ": готово"), out);
+            assertTrue(errBuffer.toString(StandardCharsets.UTF_8).contains("1 файлов не обработано"));
+            outputs.add(out + errBuffer.toString(StandardCharsets.UTF_8));
+        }
+        assertEquals(outputs.get(0), outputs.get(1), "Вывод не должен зависеть от числа потоков");
+    }
+
+    private int run(Path dir, List<String> options) throws IOException {
+        prepareInputs(dir);
+        MorphToFb2Pipeline pipeline = new MorphToFb2Pipeline(
+                new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8),
+                new PrintStream(new ByteArrayOutputStream(), true, StandardCharsets.UTF_8));
+        return pipeline.run(arguments(dir, options));
+    }
+
+    private String[] arguments(Path dir, List<String> options) {
+        List<String> args = new ArrayList<>(options);
+        args.add("--dictionary");
+        args.add(DICTIONARY.toString());
+        args.add("--original-dir");
+        args.add(dir.toString());
+        for (String book : BOOKS) {
+            args.add(dir.resolve(book + ".txt.morph.tsv").toString());
+        }
+        return args.toArray(new String[0]);
+    }
+
+    private void prepareInputs(Path dir) throws IOException {
+        for (String book : BOOKS) {
+            Files.copy(MARKUP_DIR.resolve(book + ".txt.morph.tsv"), dir.resolve(book + ".txt.morph.tsv"));
+            Files.copy(TEXTS_DIR.resolve(book + ".txt"), dir.resolve(book + ".txt"));
+        }
+    }
+
+    private Map<String, byte[]> outputs(Path dir) throws IOException {
+        Map<String, byte[]> result = new TreeMap<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".fb2") || name.contains(".morph2.") || name.contains(".morph3.")) {
+                    result.put(name, Files.readAllBytes(file));
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.uqureader.webapp.cli;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.uqureader.webapp.MorphologyException;
+import com.example.uqureader.webapp.morphology.RemoteMorphologyClient;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TatarMorphologyAnnotatorTest {
+
+    private static final List<String> SENTENCES = List.of(
+            sentence("Беренче"), sentence("Икенче"), sentence("Өченче"));
+
+    private final Queue<String> requests = new ConcurrentLinkedQueue<>();
+    private HttpServer server;
+    private URI endpoint;
+    private Path workDir;
+    private Path cacheDir;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        server.createContext("/new2022/morph/ajax.php", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String text = URLDecoder.decode(body.substring("text=".length()), StandardCharsets.UTF_8);
+            requests.add(text);
+            JsonArray tokens = new JsonArray();
+            for (String word : text.split(" ")) {
+                JsonObject token = new JsonObject();
+                token.addProperty("word", word);
+                token.addProperty("analysis", word.toLowerCase() + "+N+Sg+Nom");
+                tokens.add(token);
+            }
+            byte[] data = tokens.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, data.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(data);
+            }
+        });
+        server.start();
+        endpoint = URI.create("http://localhost:" + server.getAddress().getPort() + "/new2022/morph/ajax.php");
+        workDir = Files.createTempDirectory("morph-annotator-");
+        cacheDir = workDir.resolve("cache");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.stop(0);
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    void interruptedRunResumesFromCachedFragments() throws IOException {
+        Path input = writeText("kitap.txt", String.join(" ", SENTENCES));
+        Path output = workDir.resolve("kitap.txt.morph.tsv");
+
+        assertEquals(3, run(new FailingClient(3), input), "Обрыв на третьем фрагменте должен завершиться ошибкой");
+        assertFalse(Files.exists(output), "Результат не должен появляться до окончания разметки");
+        assertEquals(SENTENCES.subList(0, 2), List.copyOf(requests));
+
+        requests.clear();
+        assertEquals(0, run(client(), input));
+        assertEquals(SENTENCES.subList(2, 3), List.copyOf(requests), "Повторно отправляется только недостающий фрагмент");
+        assertTrue(Files.exists(output));
+
+        String resumed = Files.readString(output, StandardCharsets.UTF_8);
+        requests.clear();
+        Files.delete(output);
+        assertEquals(0, run(client(), "--no-cache", input.toString()));
+        assertEquals(SENTENCES, List.copyOf(requests));
+        assertEquals(Files.readString(output, StandardCharsets.UTF_8), resumed,
+                "Результат продолженного запуска должен совпадать с обычным");
+    }
+
+    @Test
+    void identicalFragmentsOfDifferentFilesAreSentOnce() throws IOException {
+        Path first = writeText("first.txt", SENTENCES.get(0) + " " + SENTENCES.get(1));
+        Path second = writeText("second.txt", SENTENCES.get(0) + "\n\n" + SENTENCES.get(2));
+
+        assertEquals(0, run(client(), first));
+        assertEquals(0, run(client(), second));
+
+        assertEquals(SENTENCES, List.copyOf(requests));
+        String markup = Files.readString(workDir.resolve("second.txt.morph.tsv"), StandardCharsets.UTF_8);
+        assertTrue(markup.startsWith("Беренче\tберенче+N+Sg+Nom;"), markup);
+    }
+
+    private int run(RemoteMorphologyClient client, Path input) {
+        return run(client, "--cache-dir", cacheDir.toString(), input.toString());
+    }
+
+    private int run(RemoteMorphologyClient client, String... args) {
+        ByteArrayOutputStream sink = new ByteArrayOutputStream();
+        TatarMorphologyAnnotator annotator = new TatarMorphologyAnnotator(client,
+                new PrintStream(sink, true, StandardCharsets.UTF_8),
+                new PrintStream(sink, true, StandardCharsets.UTF_8));
+        return annotator.run(args);
+    }
+
+    private RemoteMorphologyClient client() {
+        return new RemoteMorphologyClient(HttpClient.newHttpClient(), List.of(endpoint), 500);
+    }
+
+    private Path writeText(String name, String content) throws IOException {
+        return Files.writeString(workDir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static String sentence(String first) {
+        // Long enough for every sentence to become a batch of its own.
+        return first + " " + "сүз ".repeat(80).trim() + ".";
+    }
+
+    /**
+     * Client whose connection "breaks" right before the given fragment is sent.
+     */
+    private final class FailingClient extends RemoteMorphologyClient {
+        private final int failingBatch;
+
+        FailingClient(int failingBatch) {
+            super(HttpClient.newHttpClient(), List.of(endpoint), 500);
+            this.failingBatch = failingBatch;
+        }
+
+        @Override
+        public List<WordMarkup> analyzeText(String text, BatchProgressListener listener, BatchStore store) {
+            return super.analyzeText(text, new BatchProgressListener() {
+                @Override
+                public void onBatchStart(int index, int total, String fragment) {
+                    if (index == failingBatch) {
+                        throw new MorphologyException("Соединение разорвано");
+                    }
+                    listener.onBatchStart(index, total, fragment);
+                }
+
+                @Override
+                public void onBatchDone(int index, int total, boolean fromStore) {
+                    listener.onBatchDone(index, total, fromStore);
+                }
+            }, store);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.uqureader.webapp.dictionary;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TatRusDictionaryImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void importsFixtureInSmallBatches() throws Exception {
+        Path database = tempDir.resolve("data").resolve("tat_rus_dictionary.db");
+
+        TatRusDictionaryImporter.ImportResult result;
+        try (InputStream input = fixture()) {
+            result = new TatRusDictionaryImporter(2).importFrom(input, database);
+        }
+
+        List<String> rows = rows(database);
+        assertEquals(new TatRusDictionaryImporter.ImportResult(1, 6, 6, 0, 0), result);
+        assertEquals(List.of(
+                "сүз|сүз|[\"n\"]|слово|[\"n\",\"nt\"]|[]|main|LR|main sense|сүз",
+                "бар|бар|[\"v\",\"iv\"]|идти|[\"vblex\"]|[\"v__vblex\"]|main|RL|null|бар",
+                "Казан|Казан|[\"np\",\"top\"]|Казань|[\"np\",\"top\"]|[]|main|LR|city, capital|казан",
+                "эш итү|эш итү|[\"v\"]|работать|[\"vblex\"]|[\"a\",\"b\"]|main|LR|null|эш итү",
+                "китап|китап|[\"n\"]|книга|[\"n\"]|[]|main|LR|null|китап",
+                "а́к|а́к|[\"adj\"]|белый|[\"adj\"]|[]|extra|LR|null|а́к"), rows);
+        assertEquals(2, TranslationDictionary.load(database).lookup("КАЗАН").get(0).tags().size());
+    }
+
+    @Test
+    void failedImportKeepsPreviousRows() throws Exception {
+        Path database = tempDir.resolve("tat_rus_dictionary.db");
+        TatRusDictionaryImporter importer = new TatRusDictionaryImporter(2);
+        try (InputStream input = fixture()) {
+            importer.importFrom(input, database);
+        }
+
+        String truncated = "<dictionary><section id=\"main\">"
+                + "<e><p><l>юк</l><r>нет</r></p></e>".repeat(5);
+        assertThrows(IOException.class, () -> importer.importFrom(stream(truncated), database));
+        assertThrows(IOException.class, () -> importer.importFrom(stream("<dictionary/>"), database));
+
+        assertEquals(6, rows(database).size());
+    }
+
+    @Test
+    void reimportAppliesOnlyTheDifference() throws Exception {
+        Path database = tempDir.resolve("tat_rus_dictionary.db");
+        TatRusDictionaryImporter importer = new TatRusDictionaryImporter(2);
+        String original;
+        try (InputStream input = fixture()) {
+            original = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        importer.importFrom(stream(original), database);
+        List<String> before = rows(database, "id, entry_key");
+
+        String changed = original
+                .replace("<!-- main sense -->", "<!-- primary sense -->")
+                .replace("<e><p><l>  китап&#160;<s n=\"n\"/></l><r>книга<s n=\"n\"/></r></p></e>", "")
+                .replace("</section>\n  <section id=\"extra\"",
+                        "<e><p><l>юк<s n=\"adv\"/></l><r>нет<s n=\"adv\"/></r></p></e>\n"
+                                + "  </section>\n  <section id=\"extra\"");
+        TatRusDictionaryImporter.ImportResult result = importer.importFrom(stream(changed), database);
+
+        assertEquals(new TatRusDictionaryImporter.ImportResult(2, 6, 1, 1, 1), result);
+        List<String> after = rows(database, "id, entry_key");
+        assertEquals(before.subList(0, 4), after.subList(0, 4), "unchanged and updated rows keep their ids and keys");
+        assertEquals(List.of("сүз|primary sense|2", "юк|null|2"),
+                rows(database, "tat_lemma, comment, generation", "WHERE generation = 2"));
+        assertEquals(List.of("китап|2"), rows(database, "tat_lemma_key, generation", "", "tat_rus_dictionary_removed"));
+
+        TatRusDictionaryImporter.ImportResult repeated = importer.importFrom(stream(changed), database);
+        assertEquals(new TatRusDictionaryImporter.ImportResult(2, 6, 0, 0, 0), repeated);
+        assertEquals(after, rows(database, "id, entry_key"));
+    }
+
+    @Test
+    void incrementalImportListsTranslationsLikeAFreshImport() throws Exception {
+        TatRusDictionaryImporter importer = new TatRusDictionaryImporter(2);
+        String original;
+        try (InputStream input = fixture()) {
+            original = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String changed = original
+                .replace("<e r=\"RL\"><p><l>бар<s n=\"v\"/><s n=\"iv\"/></l><r>идти<s n=\"vblex\"/></r></p>"
+                        + "<par n=\"v__vblex\"/></e>", "")
+                .replace("<section id=\"main\" type=\"standard\">", "<section id=\"main\" type=\"standard\">\n"
+                        + "    <e><p><l>китап<s n=\"n\"/></l><r>том<s n=\"n\"/></r></p></e>\n"
+                        + "    <e><p><l>сүз<s n=\"n\"/></l><r>речь<s n=\"n\"/></r></p></e>");
+        Path incremental = tempDir.resolve("incremental.db");
+        importer.importFrom(stream(original), incremental);
+        importer.importFrom(stream(changed), incremental);
+        Path fresh = tempDir.resolve("fresh.db");
+        importer.importFrom(stream(changed), fresh);
+
+        TranslationDictionary expected = TranslationDictionary.load(fresh);
+        TranslationDictionary actual = TranslationDictionary.load(incremental);
+        List<String> lemmas = List.of("китап", "сүз", "бар", "казан", "эш итү", "а́к");
+        assertEquals(List.of("том", "книга"), translations(expected, "китап"));
+        for (String lemma : lemmas) {
+            assertEquals(translations(expected, lemma), translations(actual, lemma), lemma);
+        }
+        assertEquals(List.of("бар|2"), rows(incremental, "tat_lemma_key, generation", "", "tat_rus_dictionary_removed"));
+
+        importer.importFrom(stream(original), incremental);
+        importer.importFrom(stream(original.replace(
+                "<e><p><l>а&#x301;к<s n=\"adj\"/></l><r>белый<s n=\"adj\"/></r></p></e>", "")), incremental);
+        assertEquals(List.of("а́к|4", "китап|3", "сүз|3"), rows(incremental, "tat_lemma_key, generation",
+                "", "tat_rus_dictionary_removed").stream().sorted().toList(),
+                "removals of every generation are kept, except for keys that were added again");
+        assertEquals(List.of("а́к|4"), rows(incremental, "tat_lemma_key, generation",
+                "WHERE generation > 3", "tat_rus_dictionary_removed"));
+    }
+
+    private static List<String> translations(TranslationDictionary dictionary, String lemma) {
+        return dictionary.lookup(lemma).stream().map(TranslationDictionary.Entry::translation).toList();
+    }
+
+    private InputStream fixture() {
+        InputStream input = getClass().getResourceAsStream("/dictionary/tat-rus-sample.dix");
+        assertNotNull(input, "fixture dictionary is missing");
+        return input;
+    }
+
+    private static InputStream stream(String xml) {
+        return new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<String> rows(Path database) throws Exception {
+        return rows(database, "tat_lemma, tat_surface, tat_tags, rus_lemma, rus_tags, "
+                + "paradigm, section, direction, comment, tat_lemma_key");
+    }
+
+    private static List<String> rows(Path database, String columns) throws Exception {
+        return rows(database, columns, "");
+    }
+
+    private static List<String> rows(Path database, String columns, String where) throws Exception {
+        return rows(database, columns, where, "tat_rus_dictionary");
+    }
+
+    private static List<String> rows(Path database, String columns, String where, String table) throws Exception {
+        List<String> rows = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database.toAbsolutePath());
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT " + columns + " FROM " + table + " " + where
+                     + " ORDER BY rowid")) {
+            int count = rs.getMetaData().getColumnCount();
+            while (rs.next()) {
+                List<String> values = new ArrayList<>();
+                for (int i = 1; i <= count; i++) {
+                    values.add(String.valueOf(rs.getString(i)));
+                }
+                rows.add(String.join("|", values));
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.uqureader.webapp.dictionary;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslationDictionaryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void loadsEntriesGroupedByLemmaKey() throws Exception {
+        Path database = tempDir.resolve("tat_rus_dictionary.db");
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + database.toAbsolutePath());
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE tat_rus_dictionary (tat_lemma TEXT, rus_lemma TEXT, tat_tags TEXT)");
+            statement.executeUpdate("INSERT INTO tat_rus_dictionary (tat_lemma, rus_lemma, tat_tags) VALUES\n"
+                    + "('бар', 'есть', '[\"V\"]'),\n"
+                    + "('бар', 'каждый', '[\" Adj \"]'),\n"
+                    + "('Казан', 'Казань', '[\"N\",\"prop\"]'),\n"
+                    + "('сүз', 'слово', '[\"n\"]'),\n"
+                    + "('сүз', 'речь', NULL)");
+        }
+
+        TranslationDictionary dictionary = TranslationDictionary.load(database);
+
+        assertEquals(5, dictionary.size());
+        assertEquals(3, dictionary.lemmaCount());
+        assertEquals(List.of(new TranslationDictionary.Entry("есть", Set.of("v")),
+                        new TranslationDictionary.Entry("каждый", Set.of("adj"))),
+                dictionary.lookup("бар"));
+        assertEquals("Казань", dictionary.lookup("казан").get(0).translation());
+        assertTrue(dictionary.lookup("сүз").get(1).tags().isEmpty());
+        assertTrue(dictionary.lookup("юк").isEmpty());
+
+        Map<String, List<TranslationDictionary.Entry>> batch =
+                dictionary.lookupAll(List.of("КАЗАН", "юк", "сүз", "КАЗАН"));
+        assertEquals(List.of("КАЗАН", "юк", "сүз"), List.copyOf(batch.keySet()));
+        assertSame(dictionary.lookup("сүз"), batch.get("сүз"));
+        assertTrue(batch.get("юк").isEmpty());
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.uqureader.webapp.morphology;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.uqureader.webapp.MorphologyException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnalyzerImageTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void imageAnalysesLikeDefaultAnalyzer() throws IOException {
+        Path image = tempDir.resolve("analyzer.img");
+        assertEquals(MorphologyAnalyzer.compileImage(image), Files.size(image));
+
+        String text;
+        try (InputStream stream = getClass().getResourceAsStream("/texts/berenche_teatr.txt")) {
+            text = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String sample = text + "\nКитап, Hamlet 1917 ел. Qwzx-йцук!";
+        assertEquals(MorphologyAnalyzer.loadDefault().analyze(sample).markup(),
+                MorphologyAnalyzer.loadImage(image).analyze(sample).markup());
+    }
+
+    @Test
+    void rejectsDamagedImages() throws IOException {
+        Path image = tempDir.resolve("analyzer.img");
+        MorphologyAnalyzer.compileImage(image);
+        byte[] bytes = Files.readAllBytes(image);
+
+        byte[] damaged = bytes.clone();
+        damaged[damaged.length / 2] ^= 1;
+        Files.write(image, damaged);
+        assertThrows(MorphologyException.class, () -> MorphologyAnalyzer.loadImage(image));
+
+        byte[] otherVersion = bytes.clone();
+        ByteBuffer.wrap(otherVersion).putInt(4, AnalyzerImage.FORMAT_VERSION + 1);
+        Files.write(image, otherVersion);
+        assertThrows(MorphologyException.class, () -> MorphologyAnalyzer.loadImage(image));
+
+        Files.writeString(image, "not an image");
+        assertThrows(MorphologyException.class, () -> MorphologyAnalyzer.loadImage(image));
+        assertThrows(MorphologyException.class, () -> MorphologyAnalyzer.loadImage(tempDir.resolve("missing.img")));
+    }
+}
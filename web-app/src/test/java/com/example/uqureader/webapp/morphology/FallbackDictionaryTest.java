@@ -0,0 +1,144 @@
+package com.example.uqureader.webapp.morphology;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.example.uqureader.webapp.MorphologyException;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FallbackDictionaryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compiledDictionaryKeepsMarkupAnalyses() throws IOException {
+        Path markup = Files.createDirectories(tempDir.resolve("markup"));
+        Files.writeString(markup.resolve("a.txt.morph.tsv"), "Бу\tбу+PN;\nкитап\tNR\nИ\tи+V;\n,\tType2\n");
+        Files.writeString(markup.resolve("b.txt.morph.tsv"), "китап\tкитап+N+Sg+Nom;\nи\tи: быть+V;\nбуа\tбуа+N;\n");
+        Files.writeString(markup.resolve("b.txt.morph2.tsv"), "китап\tignored\n");
+        StringBuilder many = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            many.append("сүз").append(i).append('\t').append("сүз+N").append(i % 7).append(";\n");
+        }
+        Files.writeString(markup.resolve("c.txt"), many + "no tab here\n");
+
+        FallbackDictionary dictionary = FallbackDictionary.compile(markup);
+        Path compiled = tempDir.resolve(FallbackDictionary.COMPILED_RESOURCE);
+        dictionary.write(compiled);
+
+        for (FallbackDictionary loaded : List.of(dictionary, FallbackDictionary.map(compiled))) {
+            assertEquals(107, loaded.size());
+            assertEquals("бу+PN;", loaded.get("Бу"));
+            assertEquals("бу+PN;", loaded.get("бу"));
+            assertEquals("китап+N+Sg+Nom;", loaded.get("китап"), "lexical analyses replace NR");
+            assertEquals("и: быть+V;", loaded.get("и"), "analyses with translations are preferred");
+            assertEquals("и+V;", loaded.get("И"));
+            assertEquals("Type2", loaded.get(","));
+            assertEquals("сүз+N6;", loaded.get("сүз55"));
+            assertNull(loaded.get("сүз"));
+            assertNull(loaded.get("сүз100"));
+            assertNull(loaded.get(""));
+            assertEquals(List.of("a.txt.morph.tsv", "b.txt.morph.tsv", "c.txt"),
+                    loaded.sources().stream().map(FallbackDictionary.Source::name).toList());
+        }
+    }
+
+    @Test
+    void rejectsDamagedFiles() throws IOException {
+        Path markup = Files.createDirectories(tempDir.resolve("markup"));
+        Files.writeString(markup.resolve("a.txt.morph.tsv"), "Бу\tбу+PN;\n");
+        Path compiled = tempDir.resolve(FallbackDictionary.COMPILED_RESOURCE);
+        FallbackDictionary.compile(markup).write(compiled);
+        byte[] bytes = Files.readAllBytes(compiled);
+
+        Files.write(compiled, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(MorphologyException.class, () -> FallbackDictionary.map(compiled));
+        Files.writeString(compiled, "Бу\tбу+PN;\n");
+        assertThrows(MorphologyException.class, () -> FallbackDictionary.map(compiled));
+    }
+
+    @Test
+    void directoryLoadRecompilesStaleOrDamagedFiles() throws IOException {
+        Path markup = Files.createDirectories(tempDir.resolve("classes").resolve("markup"));
+        Files.writeString(markup.resolve("a.txt.morph.tsv"), "китап\tкитап+N;\n");
+        Files.writeString(markup.resolve("b.txt.morph.tsv"), "бала\tбала+N;\n");
+        Path compiled = markup.resolve(FallbackDictionary.COMPILED_RESOURCE);
+        List<FallbackDictionary.Source> sources = FallbackDictionary.compile(markup).sources();
+        FallbackDictionary.build(Map.of("китап", "compiled"), sources).write(compiled);
+        assertEquals("compiled", load(markup.getParent()).get("китап"), "an up-to-date compiled file is used");
+
+        Files.writeString(markup.resolve("a.txt.morph.tsv"), "китап\tкитап+V;\n");
+        assertEquals("китап+V;", load(markup.getParent()).get("китап"), "same-length edits are detected");
+
+        Files.writeString(compiled, "Бу\tбу+PN;\n");
+        assertEquals("китап+V;", load(markup.getParent()).get("китап"), "damaged files are ignored");
+    }
+
+    @Test
+    void jarLoadUsesOnlyPackagedMarkup() throws IOException {
+        Path markup = Files.createDirectories(tempDir.resolve("markup"));
+        Files.writeString(markup.resolve("qubiz_qabiz.txt.morph.tsv"), "китап\tкитап+N;\nбала\tNR\n");
+        Files.writeString(markup.resolve("berenche_teatr.txt.morph.tsv"), "бала\tбала+N;\n");
+        Files.writeString(markup.resolve("yazgi_cillar.txt.morph.tsv"), "китап\tкитап: книга+N;\nсүз\tсүз+N;\n");
+        FallbackDictionary packaged = FallbackDictionary.compilePackaged(markup);
+        assertEquals(List.of("berenche_teatr.txt.morph.tsv", "qubiz_qabiz.txt.morph.tsv"),
+                packaged.sources().stream().map(FallbackDictionary.Source::name).toList());
+        assertEquals("китап+N;", packaged.get("китап"));
+        assertNull(packaged.get("сүз"), "markup outside the packaged set is not used");
+
+        Path jar = tempDir.resolve("web-app.jar");
+        writeJar(jar, markup);
+        assertArrayEquals(bytes(packaged), bytes(load(jar)), "without a compiled file the markup is parsed");
+
+        FallbackDictionary.build(Map.of("китап", "compiled"), packaged.sources())
+                .write(markup.resolve(FallbackDictionary.COMPILED_RESOURCE));
+        writeJar(jar, markup);
+        assertEquals("compiled", load(jar).get("китап"), "an up-to-date compiled file is used");
+
+        Files.writeString(markup.resolve("qubiz_qabiz.txt.morph.tsv"), "китап\tкитап+V;\nбала\tNR\n");
+        writeJar(jar, markup);
+        assertEquals("китап+V;", load(jar).get("китап"), "a stale compiled file is ignored");
+    }
+
+    private static FallbackDictionary load(Path classpathEntry) throws IOException {
+        try (URLClassLoader loader = new URLClassLoader(new URL[]{classpathEntry.toUri().toURL()}, null)) {
+            return FallbackDictionary.load(loader);
+        }
+    }
+
+    private static byte[] bytes(FallbackDictionary dictionary) {
+        ByteBuffer buffer = dictionary.bytes();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void writeJar(Path jar, Path markup) throws IOException {
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar));
+             DirectoryStream<Path> files = Files.newDirectoryStream(markup)) {
+            for (Path file : files) {
+                output.putNextEntry(new JarEntry("markup/" + file.getFileName()));
+                output.write(Files.readAllBytes(file));
+                output.closeEntry();
+            }
+        }
+    }
+}
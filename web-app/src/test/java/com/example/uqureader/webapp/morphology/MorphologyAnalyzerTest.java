@@ -0,0 +1,148 @@
+package com.example.uqureader.webapp.morphology;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.example.uqureader.webapp.cache.CacheStats;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MorphologyAnalyzerTest {
+
+    @Test
+    void wordAnalysesAreReusedAcrossTexts() throws IOException {
+        MorphologyAnalyzer analyzer = MorphologyAnalyzer.loadDefault();
+        String text = readResource("/texts/berenche_teatr.txt");
+
+        MorphologyAnalyzer.TextAnalysis first = analyzer.analyze(text);
+        CacheStats afterFirst = analyzer.analysisCacheStats();
+        MorphologyAnalyzer.TextAnalysis second = analyzer.analyze(text);
+        CacheStats afterSecond = analyzer.analysisCacheStats();
+
+        assertEquals(first.markup(), second.markup());
+        assertEquals(afterFirst.getMisses(), afterSecond.getMisses(), "Second pass should not consult the transducer");
+        assertTrue(afterSecond.getHits() > afterFirst.getHits());
+        assertEquals(first.markup(), MorphologyAnalyzer.loadDefault().analyze(text).markup());
+
+        analyzer.clearAnalysisCache();
+        assertEquals(0, analyzer.analysisCacheStats().getEntries());
+        assertEquals(first.markup(), analyzer.analyze(text).markup());
+        assertTrue(analyzer.analysisCacheStats().getMisses() > afterSecond.getMisses(), "Cleared words are looked up again");
+    }
+
+    @Test
+    void streamedSentencesMatchWholeTextAnalysis() throws IOException {
+        MorphologyAnalyzer analyzer = MorphologyAnalyzer.loadDefault();
+        String text = readResource("/texts/harri_potter_ham_lagnetle_bala.txt");
+        String hyphenated = "Бу театр-\nда уйный. Ул кайт-\r\nты!.. Әйе...\r\nЮк - бар.\n";
+        for (String sample : List.of(text, text.replace("\n", "\r\n"), hyphenated.repeat(200))) {
+            MorphologyAnalyzer.TextAnalysis expected = analyzer.analyze(sample);
+            for (int chunkSize : new int[] {16, 1000, 64 * 1024}) {
+                List<List<MorphologyAnalyzer.TokenEntry>> sentences = new ArrayList<>();
+                MorphologyAnalyzer.TextStatistics statistics =
+                        analyzer.analyze(new StringReader(sample), sentences::add, chunkSize);
+                assertEquals(toStrings(expected.sentences()), toStrings(sentences), "chunk size " + chunkSize);
+                assertEquals(expected.tokensCount(), statistics.tokensCount());
+                assertEquals(expected.uniqueTokensCount(), statistics.uniqueTokensCount());
+                assertEquals(expected.sentencesCount(), statistics.sentencesCount());
+            }
+        }
+    }
+
+    @Test
+    void streamedTextWithoutBoundariesIsAnalysedAsItArrives() throws IOException {
+        MorphologyAnalyzer analyzer = MorphologyAnalyzer.loadDefault();
+        StringBuilder runOn = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            runOn.append(word(i)).append(i % 7 == 0 ? " - " : i % 5 == 0 ? ", " : " ");
+        }
+        String text = runOn.toString();
+        MorphologyAnalyzer.TextAnalysis expected = analyzer.analyze(text);
+        for (int chunkSize : new int[] {16, 1000}) {
+            analyzer.clearAnalysisCache();
+            long missesBefore = analyzer.analysisCacheStats().getMisses();
+            long[] missesAtHalf = {-1};
+            Reader input = new StringReader(text) {
+                private int position;
+
+                @Override
+                public int read(char[] buffer, int offset, int length) throws IOException {
+                    if (position >= text.length() / 2 && missesAtHalf[0] < 0) {
+                        missesAtHalf[0] = analyzer.analysisCacheStats().getMisses() - missesBefore;
+                    }
+                    int read = super.read(buffer, offset, length);
+                    position += Math.max(read, 0);
+                    return read;
+                }
+            };
+            List<List<MorphologyAnalyzer.TokenEntry>> sentences = new ArrayList<>();
+            MorphologyAnalyzer.TextStatistics statistics = analyzer.analyze(input, sentences::add, chunkSize);
+            assertEquals(toStrings(expected.sentences()), toStrings(sentences), "chunk size " + chunkSize);
+            assertEquals(expected.tokensCount(), statistics.tokensCount());
+            assertTrue(missesAtHalf[0] > 5000, "words are analysed before the input ends, chunk size " + chunkSize);
+        }
+
+        String unbroken = "а".repeat(10_000);
+        List<List<MorphologyAnalyzer.TokenEntry>> sentences = new ArrayList<>();
+        analyzer.analyze(new StringReader(unbroken), sentences::add, 16);
+        StringBuilder tokens = new StringBuilder();
+        sentences.forEach(sentence -> sentence.forEach(entry -> tokens.append(entry.token())));
+        assertEquals(unbroken, tokens.toString(), "a run without whitespace is cut but not lost");
+    }
+
+    private static String word(int index) {
+        String letters = "абвгдежзиклмнопрстуфхчшыэюяәөүң";
+        StringBuilder word = new StringBuilder();
+        do {
+            word.append(letters.charAt(index % letters.length()));
+            index /= letters.length();
+        } while (index > 0);
+        return word.toString();
+    }
+
+    @Test
+    void parallelAnalysisMatchesSequentialAnalysis() throws IOException {
+        MorphologyAnalyzer analyzer = MorphologyAnalyzer.loadDefault();
+        String text = readResource("/texts/berenche_teatr.txt");
+        String hyphenated = "Бу театр-\nда уйный. Ул кайт-\r\nты!.. Әйе...\r\nЮк - бар.\n";
+        for (String sample : List.of(text, hyphenated.repeat(200), "Сүз. " + "а".repeat(5000))) {
+            MorphologyAnalyzer.TextAnalysis expected = analyzer.analyze(sample, 0);
+            for (int threshold : new int[] {1, 1000, 16 * 1024}) {
+                MorphologyAnalyzer.TextAnalysis actual = analyzer.analyze(sample, threshold);
+                assertEquals(expected.markup(), actual.markup(), "threshold " + threshold);
+                assertEquals(toStrings(expected.sentences()), toStrings(actual.sentences()));
+                assertEquals(expected.tokensCount(), actual.tokensCount());
+                assertEquals(expected.uniqueTokensCount(), actual.uniqueTokensCount());
+            }
+        }
+    }
+
+    private static List<String> toStrings(List<List<MorphologyAnalyzer.TokenEntry>> sentences) {
+        List<String> result = new ArrayList<>(sentences.size());
+        for (List<MorphologyAnalyzer.TokenEntry> sentence : sentences) {
+            StringBuilder builder = new StringBuilder();
+            for (MorphologyAnalyzer.TokenEntry entry : sentence) {
+                builder.append(entry.token()).append('\t').append(entry.analysis()).append('\n');
+            }
+            result.add(builder.toString());
+        }
+        return result;
+    }
+
+    private String readResource(String path) throws IOException {
+        try (InputStream stream = getClass().getResourceAsStream(path)) {
+            if (stream == null) {
+                throw new IOException("Missing resource: " + path);
+            }
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -23,29 +23,207 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 class RemoteMorphologyClientTest {
 
-//    private static final Gson GSON = new Gson();
-//
-//    private HttpServer server;
-//    private URI endpoint;
-//
-//    @BeforeEach
-//    void setUp() throws IOException {
-//        server = HttpServer.create(new InetSocketAddress(0), 0);
-//        endpoint = URI.create("http://localhost:" + server.getAddress().getPort() + "/new2022/morph/ajax.php");
-//    }
-//
-//    @AfterEach
-//    void tearDown() {
-//        if (server != null) {
-//            server.stop(0);
-//        }
-//    }
-//
+    private static final Gson GSON = new Gson();
+
+    private HttpServer server;
+    private URI endpoint;
+    private ExecutorService serverExecutor;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(0), 0);
+        endpoint = URI.create("http://localhost:" + server.getAddress().getPort() + "/new2022/morph/ajax.php");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (serverExecutor != null) {
+            serverExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentAnalyzeTextKeepsBatchOrder() throws Exception {
+        int concurrency = 3;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.createContext("/new2022/morph/ajax.php", exchange -> {
+            int current = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(current, Math::max);
+            try {
+                String text = readForm(exchange).get("text");
+                // Earlier fragments answer later so that responses arrive out of order.
+                int number = Integer.parseInt(text.replaceAll("\\D+", ""));
+                Thread.sleep(Math.max(0, 60 - number * 5L));
+                writeJson(exchange, List.of(new WordMarkup(text, List.of("analysis" + number))));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        server.start();
+
+        RemoteMorphologyClient client = new RemoteMorphologyClient(
+                HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(), List.of(endpoint), 500, concurrency);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            text.append("Җөмлә ").append(i).append(' ').append("сүз ".repeat(120).trim()).append(". ");
+        }
+        List<String> batches = client.splitIntoBatches(text.toString().strip());
+        List<Integer> reported = Collections.synchronizedList(new ArrayList<>());
+
+        List<WordMarkup> tokens = client.analyzeText(text.toString(), (index, total, fragment) -> {
+            Assertions.assertEquals(batches.size(), total);
+            reported.add(index);
+        });
+
+        Assertions.assertEquals(batches, tokens.stream().map(WordMarkup::word).collect(Collectors.toList()));
+        for (int i = 0; i < tokens.size(); i++) {
+            Assertions.assertEquals("analysis" + i, tokens.get(i).analyses().get(0));
+        }
+        List<Integer> expectedIndexes = new ArrayList<>();
+        for (int i = 1; i <= batches.size(); i++) {
+            expectedIndexes.add(i);
+        }
+        Assertions.assertEquals(expectedIndexes, reported);
+        Assertions.assertTrue(maxInFlight.get() > 1, "Фрагменты должны отправляться параллельно");
+        Assertions.assertTrue(maxInFlight.get() <= concurrency, "Превышен предел одновременных запросов");
+    }
+
+    @Test
+    void concurrentAnalyzeTextRetriesFailedBatch() {
+        Map<String, AtomicInteger> attempts = new java.util.concurrent.ConcurrentHashMap<>();
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server.setExecutor(serverExecutor);
+        server.createContext("/new2022/morph/ajax.php", exchange -> {
+            String text = readForm(exchange).get("text");
+            int attempt = attempts.computeIfAbsent(text, key -> new AtomicInteger()).incrementAndGet();
+            if (text.startsWith("Беренче") && attempt == 1) {
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            writeJson(exchange, List.of(new WordMarkup(text, List.of("ok"))));
+        });
+        server.start();
+
+        RemoteMorphologyClient client = new RemoteMorphologyClient(
+                HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(), List.of(endpoint), 500, 2);
+        String first = "Беренче " + "сүз ".repeat(120).trim() + ".";
+        String second = "Икенче " + "сүз ".repeat(120).trim() + ".";
+        String third = "Өченче " + "сүз ".repeat(120).trim() + ".";
+
+        List<WordMarkup> tokens = client.analyzeText(first + " " + second + " " + third);
+
+        Assertions.assertEquals(List.of(first, second, third),
+                tokens.stream().map(WordMarkup::word).collect(Collectors.toList()));
+        Assertions.assertEquals(2, attempts.get(first).get(), "Неудачный фрагмент должен быть отправлен повторно");
+    }
+
+    @Test
+    void concurrentAnalyzeTextStopsAtFirstFailedBatch() throws Exception {
+        AtomicInteger received = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        serverExecutor = Executors.newFixedThreadPool(8);
+        server.setExecutor(serverExecutor);
+        server.createContext("/new2022/morph/ajax.php", exchange -> {
+            received.incrementAndGet();
+            String text = readForm(exchange).get("text");
+            try {
+                if (!text.startsWith("Җөмлә 2 ")) {
+                    release.await(30, TimeUnit.SECONDS);
+                }
+                writeJson(exchange, List.of(new WordMarkup(text, List.of("ok"))));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (IOException ex) {
+                // The client has given up on this batch.
+            }
+        });
+        server.start();
+
+        RemoteMorphologyClient client = new RemoteMorphologyClient(
+                HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build(), List.of(endpoint), 500, 3);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            text.append("Җөмлә ").append(i).append(' ').append("сүз ".repeat(120).trim()).append(". ");
+        }
+        RemoteMorphologyClient.BatchStore failingStore = new RemoteMorphologyClient.BatchStore() {
+            @Override
+            public List<WordMarkup> load(String fragment) {
+                return null;
+            }
+
+            @Override
+            public void store(String fragment, List<WordMarkup> markup) {
+                throw new IllegalStateException("store failed");
+            }
+        };
+        try {
+            long start = System.nanoTime();
+            IllegalStateException error = Assertions.assertThrows(IllegalStateException.class,
+                    () -> client.analyzeText(text.toString(), null, failingStore));
+            Assertions.assertEquals("store failed", error.getMessage());
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10),
+                    "Не нужно ждать фрагменты, отправленные до ошибки");
+            Assertions.assertTrue(received.get() <= 3, "После ошибки новые фрагменты не отправляются: " + received.get());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void adaptiveConcurrencyLimitBacksOffOnFailures() throws Exception {
+        RemoteMorphologyClient.AdaptiveConcurrencyLimit limit = new RemoteMorphologyClient.AdaptiveConcurrencyLimit(8);
+        Assertions.assertEquals(8, limit.limit());
+
+        limit.onFailure();
+        Assertions.assertEquals(4, limit.limit());
+        limit.onFailure();
+        limit.onFailure();
+        limit.onFailure();
+        Assertions.assertEquals(1, limit.limit());
+
+        limit.onSuccess();
+        Assertions.assertEquals(2, limit.limit());
+        limit.onSuccess();
+        Assertions.assertEquals(2, limit.limit());
+        limit.onSuccess();
+        Assertions.assertEquals(3, limit.limit());
+
+        limit.acquire();
+        limit.acquire();
+        limit.acquire();
+        Thread waiter = new Thread(() -> {
+            try {
+                limit.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        waiter.join(200);
+        Assertions.assertTrue(waiter.isAlive(), "Запрос сверх предела должен ждать освобождения");
+        limit.release();
+        waiter.join(2000);
+        Assertions.assertFalse(waiter.isAlive());
+    }
+
 //    @Test
 //    void analyzeWordReturnsRemoteMarkup() {
 //        server.createContext("/new2022/morph/ajax.php", exchange -> {
@@ -110,31 +288,31 @@ class RemoteMorphologyClientTest {
 //        Assertions.assertEquals(originalTokens, resultingTokens);
 //    }
 //
-//    private Map<String, String> readForm(HttpExchange exchange) throws IOException {
-//        Assertions.assertEquals("POST", exchange.getRequestMethod().toUpperCase(Locale.ROOT));
-//        byte[] body = exchange.getRequestBody().readAllBytes();
-//        String decoded = URLDecoder.decode(new String(body, StandardCharsets.UTF_8), StandardCharsets.UTF_8);
-//        String[] pairs = decoded.split("&");
-//        java.util.LinkedHashMap<String, String> map = new java.util.LinkedHashMap<>();
-//        for (String pair : pairs) {
-//            if (pair.isEmpty()) {
-//                continue;
-//            }
-//            String[] kv = pair.split("=", 2);
-//            String key = kv.length > 0 ? kv[0] : "";
-//            String value = kv.length > 1 ? kv[1] : "";
-//            map.put(key, value);
-//        }
-//        return map;
-//    }
-//
-//    private void writeJson(HttpExchange exchange, Object payload) throws IOException {
-//        byte[] data = GSON.toJson(payload).getBytes(StandardCharsets.UTF_8);
-//        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
-//        exchange.sendResponseHeaders(200, data.length);
-//        try (OutputStream output = exchange.getResponseBody()) {
-//            output.write(data);
-//        }
-//    }
+    private Map<String, String> readForm(HttpExchange exchange) throws IOException {
+        Assertions.assertEquals("POST", exchange.getRequestMethod().toUpperCase(Locale.ROOT));
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        String decoded = URLDecoder.decode(new String(body, StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        String[] pairs = decoded.split("&");
+        java.util.LinkedHashMap<String, String> map = new java.util.LinkedHashMap<>();
+        for (String pair : pairs) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            String[] kv = pair.split("=", 2);
+            String key = kv.length > 0 ? kv[0] : "";
+            String value = kv.length > 1 ? kv[1] : "";
+            map.put(key, value);
+        }
+        return map;
+    }
+
+    private void writeJson(HttpExchange exchange, Object payload) throws IOException {
+        byte[] data = GSON.toJson(payload).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, data.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(data);
+        }
+    }
 }
 
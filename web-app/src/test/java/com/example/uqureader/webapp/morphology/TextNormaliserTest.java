@@ -0,0 +1,26 @@
+package com.example.uqureader.webapp.morphology;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class TextNormaliserTest {
+
+    @Test
+    void appliesRewritesInOrder() {
+        assertEquals("Җиһ", TextNormaliser.normalise("ЂиЏ"));
+        assertEquals("театрда курак", TextNormaliser.normalise("театр-\r\nда ку\u00ad-\nрак"));
+        assertEquals("\n", TextNormaliser.normalise("--\r\n\r\n"), "joining exposes another line break");
+        assertEquals("-\n", TextNormaliser.normalise("-¬\n"), "¬ is removed after joining");
+        assertEquals("…", TextNormaliser.normalise(".¬.."));
+        assertEquals("әйе? Юк!…", TextNormaliser.normalise("Әйе?.. Юк!..."));
+        assertEquals("Юк  - бар", TextNormaliser.normalise("Юк -бар"));
+    }
+
+    @Test
+    void convertsToNfcAndKeepsSupplementaryCharacters() {
+        assertEquals("кайт\u00e9", TextNormaliser.normalise("кайтe\u0301"));
+        String supplementary = new StringBuilder().appendCodePoint(0x10452).toString();
+        assertEquals(supplementary, TextNormaliser.normalise(supplementary));
+    }
+}
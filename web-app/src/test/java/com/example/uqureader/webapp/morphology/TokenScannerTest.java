@@ -0,0 +1,35 @@
+package com.example.uqureader.webapp.morphology;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TokenScannerTest {
+
+    @Test
+    void splitsAndClassifiesInOnePass() {
+        TokenScanner.Tokens tokens = TokenScanner.scan("-Бу  театр-да, 2024 елда «Hamlet-2» уйный!.. ÷ кайт--ты\t-");
+
+        List<String> actual = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            actual.add(tokens.text(i) + " " + tokens.tokenClass(i));
+        }
+        assertEquals(List.of("Бу WORD", "театр-да WORD", ", COMMA", "2024 NUMBER", "елда WORD",
+                "« QUOTE", "Hamlet LATIN", "2 NUMBER", "» QUOTE", "уйный WORD", "! SENTENCE_END",
+                ". SENTENCE_END", ". SENTENCE_END", "÷ SIGN", "кайт--ты ERROR"), actual);
+    }
+
+    @Test
+    void classifyAgreesWithScan() {
+        TokenScanner.Tokens tokens = TokenScanner.scan("Әйе, сүз-сүз - x-y «№» 7 ёж… 😀 аб вг");
+        for (int i = 0; i < tokens.size(); i++) {
+            assertEquals(tokens.tokenClass(i), TokenScanner.classify(tokens.text(i)), tokens.text(i));
+        }
+        assertEquals(TokenScanner.TokenClass.NEWLINE, TokenScanner.classify("\n"));
+        assertEquals(TokenScanner.TokenClass.ERROR, TokenScanner.classify(""));
+        assertEquals(TokenScanner.TokenClass.COMMA, TokenScanner.classify("–"));
+    }
+}
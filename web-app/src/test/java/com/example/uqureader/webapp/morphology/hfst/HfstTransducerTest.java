@@ -0,0 +1,101 @@
+package com.example.uqureader.webapp.morphology.hfst;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class HfstTransducerTest {
+
+    private static final int THREADS = 8;
+    private static final Path TRANSDUCER_FILE = Path.of("src/main/resources/tatar_last.hfstol");
+
+    private HfstTransducer transducer;
+    private List<String> words;
+
+    @BeforeAll
+    void setUp() throws IOException {
+        try (InputStream stream = getClass().getResourceAsStream("/tatar_last.hfstol")) {
+            assertNotNull(stream, "Bundled transducer is missing");
+            transducer = HfstTransducer.read(stream);
+        }
+        String text;
+        try (InputStream stream = getClass().getResourceAsStream("/texts/berenche_teatr.txt")) {
+            assertNotNull(stream, "Bundled text is missing");
+            text = new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Set<String> unique = new LinkedHashSet<>();
+        for (String word : text.split("[^\\p{L}-]+")) {
+            if (!word.isEmpty()) {
+                unique.add(word.toLowerCase(Locale.ROOT));
+            }
+        }
+        words = new ArrayList<>(unique);
+    }
+
+    @Test
+    void analyzeReturnsKnownAnalysis() {
+        List<HfstTransducer.Analysis> analyses = transducer.analyze("юк");
+        assertEquals(List.of(new HfstTransducer.Analysis("юк+MOD+", 0.0)), analyses);
+    }
+
+    @Test
+    void mappedTransducerMatchesStreamedTransducer() {
+        HfstTransducer mapped = HfstTransducer.map(TRANSDUCER_FILE);
+        for (String word : words) {
+            assertEquals(transducer.analyze(word), mapped.analyze(word), "Analyses differ for " + word);
+        }
+    }
+
+    @Test
+    void concurrentLookupsMatchSequentialResults() throws Exception {
+        Map<String, List<HfstTransducer.Analysis>> expected = new LinkedHashMap<>();
+        for (String word : words) {
+            expected.put(word, transducer.analyze(word));
+        }
+        assertFalse(expected.isEmpty());
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Map<String, List<HfstTransducer.Analysis>>>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int offset = i;
+                futures.add(executor.submit(() -> {
+                    Map<String, List<HfstTransducer.Analysis>> actual = new LinkedHashMap<>();
+                    for (int j = 0; j < words.size(); j++) {
+                        String word = words.get((j + offset * 97) % words.size());
+                        actual.put(word, transducer.analyze(word));
+                    }
+                    return actual;
+                }));
+            }
+            for (Future<Map<String, List<HfstTransducer.Analysis>>> future : futures) {
+                Map<String, List<HfstTransducer.Analysis>> actual = future.get();
+                for (Map.Entry<String, List<HfstTransducer.Analysis>> entry : expected.entrySet()) {
+                    assertEquals(entry.getValue(), actual.get(entry.getKey()), "Analyses differ for " + entry.getKey());
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}